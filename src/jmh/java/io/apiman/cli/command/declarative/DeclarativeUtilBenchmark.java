@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.command.declarative;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.support.DeclarationGenerator;
+import io.apiman.cli.util.MappingUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading small, medium and huge declarations, in full and by reading their APIs one at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeclarativeUtilBenchmark {
+    @Param({"10", "1000", "20000"})
+    public int apiCount;
+
+    @Param({"YAML", "JSON"})
+    public DeclarationGenerator.Format format;
+
+    private Path declarationFile;
+    private ObjectMapper mapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        declarationFile = DeclarationGenerator.write(apiCount, format);
+        mapper = (DeclarationGenerator.Format.JSON == format) ? MappingUtil.JSON_MAPPER : MappingUtil.YAML_MAPPER;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(declarationFile);
+    }
+
+    @Benchmark
+    public BaseDeclaration loadDeclaration() {
+        return DeclarativeUtil.loadDeclaration(declarationFile, mapper, DeclarationGenerator.PROPERTIES);
+    }
+
+    @Benchmark
+    public void readDeclaration(Blackhole blackhole) {
+        try (DeclarationReader reader = DeclarationReader.open(declarationFile, mapper,
+                DeclarationGenerator.PROPERTIES)) {
+            blackhole.consume(reader.getDeclaration());
+            reader.forEachRemaining(blackhole::consume);
+        }
+    }
+}
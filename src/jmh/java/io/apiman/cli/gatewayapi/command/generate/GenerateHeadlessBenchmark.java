@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.gatewayapi.command.generate;
+
+import com.google.common.io.ByteStreams;
+import io.apiman.cli.command.declarative.DeclarativeUtil;
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.support.DeclarationGenerator;
+import io.apiman.cli.util.MappingUtil;
+import io.apiman.cli.util.PluginCache;
+import io.apiman.cli.util.PolicyResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures generating headless gateway configuration from a loaded declaration. The configuration is
+ * serialised in full, but discarded rather than written to disk, so only the generation is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerateHeadlessBenchmark {
+    @Param({"10", "1000", "20000"})
+    public int apiCount;
+
+    private Path outputDir;
+    private List<BaseDeclaration> declarations;
+    private GenerateHeadless command;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        outputDir = Files.createTempDirectory("headless");
+
+        final Path declarationFile = DeclarationGenerator.write(apiCount, DeclarationGenerator.Format.YAML);
+        try {
+            declarations = Collections.singletonList(DeclarativeUtil.loadDeclaration(declarationFile,
+                    MappingUtil.YAML_MAPPER, DeclarationGenerator.PROPERTIES));
+        } finally {
+            Files.delete(declarationFile);
+        }
+
+        command = new GenerateHeadless();
+        command.setPolicyResolver(new PolicyResolver(new PluginCache(outputDir.resolve("plugins").toFile(),
+                PluginCache.DEFAULT_MAX_SIZE, PluginCache.DEFAULT_MAX_AGE)));
+        command.setJsonWriter((outputPath, headlessConfig) -> headlessConfig.writeJson(ByteStreams.nullOutputStream()));
+
+        // an output directory causes the configuration to be passed to the writer, rather than STDOUT
+        command.outputFiles = Collections.singletonList(outputDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Stream<Path> paths = Files.walk(outputDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void generateHeadless() {
+        command.applyDeclarations(declarations);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.gatewayapi.model;
+
+import io.apiman.cli.command.declarative.DeclarativeUtil;
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.cli.support.DeclarationGenerator;
+import io.apiman.cli.util.MappingUtil;
+import io.apiman.cli.util.PluginCache;
+import io.apiman.cli.util.PolicyResolver;
+import io.apiman.gateway.engine.beans.Api;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures building the APIs to publish to each gateway from a loaded declaration, including
+ * resolving their built-in policies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GatewayApiDataModelBenchmark {
+    @Param({"10", "1000", "20000"})
+    public int apiCount;
+
+    private Path cacheDir;
+    private PolicyResolver policyResolver;
+    private BaseDeclaration declaration;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        cacheDir = Files.createTempDirectory("plugins");
+        policyResolver = new PolicyResolver(new PluginCache(cacheDir.toFile(), PluginCache.DEFAULT_MAX_SIZE,
+                PluginCache.DEFAULT_MAX_AGE));
+
+        final Path declarationFile = DeclarationGenerator.write(apiCount, DeclarationGenerator.Format.YAML);
+        try {
+            declaration = DeclarativeUtil.loadDeclaration(declarationFile, MappingUtil.YAML_MAPPER,
+                    DeclarationGenerator.PROPERTIES);
+        } finally {
+            Files.delete(declarationFile);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Stream<Path> paths = Files.walk(cacheDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public Map<DeclarativeGateway, List<Api>> buildGatewayToApisMap() {
+        return new GatewayApiDataModel(declaration, policyResolver).getGatewayToApisMap();
+    }
+}
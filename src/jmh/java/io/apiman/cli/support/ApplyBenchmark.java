@@ -0,0 +1,293 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import io.apiman.cli.Cli;
+import io.apiman.cli.support.stub.StubBehaviour;
+import io.apiman.cli.support.stub.StubGatewayServer;
+import io.apiman.cli.support.stub.StubManagerServer;
+import io.apiman.cli.support.stub.StubServer;
+import io.apiman.cli.util.LogUtil;
+import io.apiman.cli.util.MappingUtil;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput, latency and memory of {@code manager apply} and {@code gateway apply}
+ * against in-process stub servers, for declarations of increasing size. The stub servers can add
+ * latency, errors and throttling to show how apply behaves against a slow or overloaded server.
+ * <p>
+ * Unlike the JMH benchmarks, each apply is run once per size, end to end, as a user would run it.
+ */
+public final class ApplyBenchmark {
+    private static final long HEAP_SAMPLE_INTERVAL = 10;
+    private static final String GATEWAY_ENDPOINT = "gatewayEndpoint";
+
+    @Parameter(names = "--apiCounts", description = "Numbers of APIs to apply")
+    private List<Integer> apiCounts = Arrays.asList(10, 100, 1000, 10000);
+
+    @Parameter(names = "--parallelism", description = "Value of --parallelism passed to apply")
+    private int parallelism = 8;
+
+    @Parameter(names = "--latency", description = "Latency added to each request (ms)")
+    private long latency;
+
+    @Parameter(names = "--routeLatency",
+            description = "Latency added to requests to a route (\"METHOD /template=ms\"), overriding --latency")
+    private List<String> routeLatencies = new ArrayList<>();
+
+    @Parameter(names = "--errorRate", description = "Proportion of requests failed (0 to 1)")
+    private double errorRate;
+
+    @Parameter(names = "--errorStatus", description = "HTTP status of failed requests")
+    private int errorStatus = HttpURLConnection.HTTP_UNAVAILABLE;
+
+    @Parameter(names = "--retryAfter", description = "Retry-After delay of throttled requests (seconds)")
+    private int retryAfter;
+
+    @Parameter(names = "--maxConcurrentRequests", description = "Requests served concurrently before throttling")
+    private int maxConcurrentRequests;
+
+    @Parameter(names = "--results", description = "Results file")
+    private Path resultsFile;
+
+    @Parameter(names = "--verbose", description = "Show the output of each apply")
+    private boolean verbose;
+
+    @Parameter(names = "--help", help = true)
+    private boolean help;
+
+    private ApplyBenchmark() {
+    }
+
+    public static void main(String... args) throws Exception {
+        final ApplyBenchmark benchmark = new ApplyBenchmark();
+        final JCommander jc = new JCommander(benchmark);
+        jc.parse(args);
+        if (benchmark.help) {
+            jc.usage();
+            return;
+        }
+        benchmark.run();
+    }
+
+    private void run() throws Exception {
+        final List<Result> results = new ArrayList<>();
+
+        // one apply of each kind, so that the first measurement doesn't include class loading
+        applyManager(apiCounts.get(0));
+        applyGateway(apiCounts.get(0));
+
+        for (int apiCount : apiCounts) {
+            results.add(applyManager(apiCount));
+            results.add(applyGateway(apiCount));
+        }
+
+        LogUtil.OUTPUT.info(String.format("%-8s %8s %10s %10s %10s %10s %10s",
+                "command", "apis", "time (ms)", "requests", "req/s", "errors", "heap (MB)"));
+        results.forEach(result -> LogUtil.OUTPUT.info(String.format("%-8s %8d %10d %10d %10.1f %10d %10d",
+                result.getCommand(), result.getApiCount(), result.getTime(), result.getRequests(),
+                result.getRequestsPerSecond(), result.getErrors(), result.getPeakHeap() / (1024 * 1024))));
+
+        if (null != resultsFile) {
+            MappingUtil.JSON_MAPPER.writerWithDefaultPrettyPrinter().writeValue(resultsFile.toFile(), results);
+            LogUtil.OUTPUT.info("Results written to {}", resultsFile);
+        }
+    }
+
+    private Result applyManager(int apiCount) throws Exception {
+        try (StubManagerServer server = new StubManagerServer()) {
+            start(server);
+            final Result result = apply("manager", apiCount, server,
+                    "--server", server.getEndpoint(),
+                    "-P", GATEWAY_ENDPOINT + "=" + DeclarationGenerator.PROPERTIES.get(GATEWAY_ENDPOINT));
+
+            verify(apiCount, server.countApiVersions(StubManagerServer.STATUS_PUBLISHED));
+            return result;
+        }
+    }
+
+    private Result applyGateway(int apiCount) throws Exception {
+        try (StubGatewayServer server = new StubGatewayServer()) {
+            start(server);
+            final Result result = apply("gateway", apiCount, server,
+                    "-P", GATEWAY_ENDPOINT + "=" + server.getEndpoint());
+
+            verify(apiCount, server.countApis());
+            return result;
+        }
+    }
+
+    /**
+     * Apply a generated declaration to the server, once.
+     *
+     * @param command  the command, {@code manager} or {@code gateway}
+     * @param apiCount the number of APIs to declare
+     * @param server   the stub server
+     * @param options  the options identifying the server
+     * @return the result
+     */
+    private Result apply(String command, int apiCount, StubServer server, String... options) throws Exception {
+        final Path declarationFile = DeclarationGenerator.write(apiCount, DeclarationGenerator.Format.YAML);
+        final List<String> args = new ArrayList<>(Arrays.asList(command, "apply",
+                "--declarationFile", declarationFile.toString(),
+                "--parallelism", String.valueOf(parallelism)));
+        args.addAll(Arrays.asList(options));
+
+        // the gateway endpoint is passed in the options of each command
+        DeclarationGenerator.PROPERTIES.forEach((key, value) -> {
+            if (!GATEWAY_ENDPOINT.equals(key)) {
+                args.add("-P");
+                args.add(key + "=" + value);
+            }
+        });
+
+        final AtomicLong peakHeap = new AtomicLong();
+        final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            System.gc();
+            final Runtime runtime = Runtime.getRuntime();
+            sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(
+                    runtime.totalMemory() - runtime.freeMemory(), Math::max),
+                    0, HEAP_SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+
+            final long start = System.nanoTime();
+            Cli.main(args.toArray(new String[args.size()]));
+            final long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // the command reconfigures logging on each run
+            quietLogging();
+
+            return new Result(command, apiCount, time, server.getRequestCount(),
+                    server.getInjectedErrorCount() + server.getThrottledCount(), peakHeap.get());
+
+        } finally {
+            sampler.shutdownNow();
+            Files.deleteIfExists(declarationFile);
+        }
+    }
+
+    private void start(StubServer server) throws IOException {
+        server.setBehaviour(new StubBehaviour()
+                .withLatency(latency)
+                .withErrorRate(errorRate)
+                .withErrorStatus(errorStatus)
+                .withRetryAfter(retryAfter)
+                .withMaxConcurrentRequests(maxConcurrentRequests));
+
+        // routes are only registered on one of the servers
+        routeLatencies.forEach(routeLatency -> {
+            final int separator = routeLatency.lastIndexOf('=');
+            final String route = routeLatency.substring(0, separator);
+            if (server.getRoutes().contains(route)) {
+                server.setBehaviour(route, new StubBehaviour()
+                        .withLatency(Long.parseLong(routeLatency.substring(separator + 1)))
+                        .withErrorRate(errorRate)
+                        .withErrorStatus(errorStatus)
+                        .withRetryAfter(retryAfter)
+                        .withMaxConcurrentRequests(maxConcurrentRequests));
+            }
+        });
+        server.start();
+        quietLogging();
+    }
+
+    private void quietLogging() {
+        if (!verbose) {
+            Configurator.setRootLevel(Level.WARN);
+        }
+    }
+
+    private static void verify(int expected, long actual) {
+        if (expected != actual) {
+            throw new IllegalStateException(String.format(
+                    "Expected %d APIs to be applied to the stub server, but found %d", expected, actual));
+        }
+    }
+
+    /**
+     * The result of a single apply.
+     */
+    public static final class Result {
+        private final String command;
+        private final int apiCount;
+        private final long time;
+        private final long requests;
+        private final long errors;
+        private final long peakHeap;
+
+        Result(String command, int apiCount, long time, long requests, long errors, long peakHeap) {
+            this.command = command;
+            this.apiCount = apiCount;
+            this.time = time;
+            this.requests = requests;
+            this.errors = errors;
+            this.peakHeap = peakHeap;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public int getApiCount() {
+            return apiCount;
+        }
+
+        /**
+         * @return the wall clock time of the apply (ms)
+         */
+        public long getTime() {
+            return time;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public double getRequestsPerSecond() {
+            return time == 0 ? 0 : requests * 1000.0 / time;
+        }
+
+        /**
+         * @return the number of requests failed or throttled by the server
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the peak heap usage during the apply (bytes)
+         */
+        public long getPeakHeap() {
+            return peakHeap;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support;
+
+import com.google.common.collect.ImmutableMap;
+import io.apiman.cli.util.MappingUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Generates synthetic declarations with a given number of APIs, so that benchmark results scale with
+ * the size of the declaration. Each API refers to a shared property, a property passed on the command
+ * line, a shared policy and an inline policy, as real declarations do.
+ */
+public final class DeclarationGenerator {
+    /**
+     * The properties passed on the command line, as with {@code -P key=value}.
+     */
+    public static final Map<String, String> PROPERTIES = ImmutableMap.of(
+            "backendHost", "http://localhost:8080",
+            "gatewayEndpoint", "http://localhost:8080/apiman-gateway-api");
+
+    public enum Format {
+        YAML(".yml"),
+        JSON(".json");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private DeclarationGenerator() {
+    }
+
+    /**
+     * @param apiCount the number of APIs
+     * @param format   the format of the declaration
+     * @return the declaration
+     */
+    public static String generate(int apiCount, Format format) throws IOException {
+        final String yaml = generateYaml(apiCount);
+        if (Format.YAML == format) {
+            return yaml;
+        }
+        return MappingUtil.JSON_MAPPER.writeValueAsString(MappingUtil.YAML_MAPPER.readTree(yaml));
+    }
+
+    /**
+     * Write a declaration to a temporary file, which the caller should delete.
+     *
+     * @param apiCount the number of APIs
+     * @param format   the format of the declaration
+     * @return the declaration file
+     */
+    public static Path write(int apiCount, Format format) throws IOException {
+        final Path declarationFile = Files.createTempFile("declaration", format.extension);
+        Files.write(declarationFile, generate(apiCount, format).getBytes(StandardCharsets.UTF_8));
+        return declarationFile;
+    }
+
+    private static String generateYaml(int apiCount) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("---\n")
+                .append("system:\n")
+                .append("  gateways:\n")
+                .append("    - name: \"test-gw\"\n")
+                .append("      type: \"REST\"\n")
+                .append("      config:\n")
+                .append("        endpoint: \"${gatewayEndpoint}\"\n")
+                .append("        username: \"apimanager\"\n")
+                .append("        password: \"apiman123!\"\n")
+                .append("shared:\n")
+                .append("  properties:\n")
+                .append("    basePath: \"/services\"\n")
+                .append("  policies:\n")
+                .append("    - $id: \"sharedPolicy\"\n")
+                .append("      name: \"CachingPolicy\"\n")
+                .append("      config:\n")
+                .append("        ttl: 60\n")
+                .append("org:\n")
+                .append("  name: \"test\"\n")
+                .append("  description: \"Test organisation\"\n")
+                .append("  apis:\n");
+
+        for (int i = 0; i < apiCount; i++) {
+            sb.append("    - name: \"example").append(i).append("\"\n")
+                    .append("      description: \"Example API ").append(i).append("\"\n")
+                    .append("      version: \"1.0\"\n")
+                    .append("      published: true\n")
+                    .append("      config:\n")
+                    .append("        endpoint: \"${backendHost}${basePath}/echo").append(i).append("\"\n")
+                    .append("        endpointType: \"rest\"\n")
+                    .append("        public: true\n")
+                    .append("        gateway: \"test-gw\"\n")
+                    .append("        security:\n")
+                    .append("          authorizationType: \"basic\"\n")
+                    .append("          username: \"user").append(i).append("\"\n")
+                    .append("          password: \"Password123\"\n")
+                    .append("      policies:\n")
+                    .append("        - \"sharedPolicy\"\n")
+                    .append("        - name: \"IPWhitelistPolicy\"\n")
+                    .append("          config:\n")
+                    .append("            ipList:\n")
+                    .append("              - \"10.0.0.").append(i % 256).append("\"\n");
+        }
+        return sb.toString();
+    }
+}
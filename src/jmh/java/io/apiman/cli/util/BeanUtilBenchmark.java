@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import io.apiman.cli.support.DeclarationGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving placeholders in the text of a declaration, as is done for unquoted placeholders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BeanUtilBenchmark {
+    @Param({"10", "1000", "20000"})
+    public int apiCount;
+
+    private String declaration;
+    private Map<String, String> properties;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        declaration = DeclarationGenerator.generate(apiCount, DeclarationGenerator.Format.YAML);
+
+        properties = new HashMap<>(DeclarationGenerator.PROPERTIES);
+        properties.put("gatewayEndpoint", "http://localhost:8080/apiman-gateway-api");
+    }
+
+    @Benchmark
+    public String resolvePlaceholders() {
+        return BeanUtil.resolvePlaceholders(declaration, properties);
+    }
+}
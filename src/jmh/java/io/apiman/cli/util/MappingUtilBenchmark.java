@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.apiman.cli.command.api.model.ApiConfig;
+import io.apiman.cli.command.api.model.EndpointProperties;
+import io.apiman.cli.command.api.model.ServiceConfig;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.command.declarative.model.DeclarativeApiConfig;
+import io.apiman.cli.command.declarative.model.DeclarativeEndpointSecurity;
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.command.gateway.model.Gateway;
+import io.apiman.cli.command.org.model.Org;
+import io.apiman.gateway.engine.beans.Api;
+import io.apiman.gateway.engine.beans.Policy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Measures each POJO -> POJO mapping made for declared items, using the specialised mappers and the
+ * reflective mapping they replace, and serialising an API with a long policy chain for display and
+ * for the wire.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MappingUtilBenchmark {
+    private static final int POLICY_COUNT = 50;
+
+    /**
+     * A source object, and the class it is mapped to.
+     */
+    @State(Scope.Benchmark)
+    public static class TypeMap {
+        @Param({"DeclarativeGateway", "DeclarativeOrg", "DeclarativeApi", "DeclarativeApiConfig",
+                "DeclarativeEndpointSecurity", "ApiConfig"})
+        public String source;
+
+        private Object sourceObject;
+        private Class<?> destinationClass;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            final String security = "{\"authorizationType\":\"BASIC\",\"requireSsl\":true,\"username\":\"user\"," +
+                    "\"password\":\"secret\"}";
+            final String apiConfig = "{\"endpoint\":\"http://example.com\",\"endpointType\":\"rest\"," +
+                    "\"gateway\":\"test-gw\",\"makePublic\":true,\"security\":" + security + "}";
+
+            switch (source) {
+                case "DeclarativeGateway":
+                    sourceObject = read("{\"name\":\"test-gw\",\"type\":\"REST\",\"config\":{" +
+                            "\"endpoint\":\"http://localhost:8080/apiman-gateway-api\",\"username\":\"apimanager\"," +
+                            "\"password\":\"secret\"}}", DeclarativeGateway.class);
+                    destinationClass = Gateway.class;
+                    break;
+
+                case "DeclarativeOrg":
+                    sourceObject = read("{\"name\":\"test\",\"description\":\"Test organisation\"}",
+                            DeclarativeOrg.class);
+                    destinationClass = Org.class;
+                    break;
+
+                case "DeclarativeApi":
+                    sourceObject = read("{\"name\":\"example\",\"description\":\"Example API\",\"version\":\"1.0\"," +
+                            "\"published\":true,\"config\":" + apiConfig + "}", DeclarativeApi.class);
+                    destinationClass = io.apiman.cli.command.api.model.Api.class;
+                    break;
+
+                case "DeclarativeApiConfig":
+                    sourceObject = read(apiConfig, DeclarativeApiConfig.class);
+                    destinationClass = ApiConfig.class;
+                    break;
+
+                case "DeclarativeEndpointSecurity":
+                    sourceObject = read(security, DeclarativeEndpointSecurity.class);
+                    destinationClass = EndpointProperties.class;
+                    break;
+
+                case "ApiConfig":
+                    sourceObject = MappingUtil.map(read(apiConfig, DeclarativeApiConfig.class), ApiConfig.class);
+                    destinationClass = ServiceConfig.class;
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown source: " + source);
+            }
+        }
+
+        private static <T> T read(String json, Class<T> sourceClass) throws Exception {
+            return MappingUtil.JSON_MAPPER.readValue(json, sourceClass);
+        }
+    }
+
+    /**
+     * An API, as published to the gateway, with policy configuration written for display and for the wire.
+     */
+    @State(Scope.Benchmark)
+    public static class PublishedApi {
+        private Api displayApi;
+        private Api wireApi;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            displayApi = buildApi(MappingUtil::safeWriteValueAsJson);
+            wireApi = buildApi(MappingUtil::safeWriteValueAsWireJson);
+        }
+    }
+
+    @Benchmark
+    public Object map(TypeMap typeMap) {
+        return MappingUtil.map(typeMap.sourceObject, typeMap.destinationClass);
+    }
+
+    @Benchmark
+    public Object mapReflectively(TypeMap typeMap) {
+        return MappingUtil.mapReflectively(typeMap.sourceObject, typeMap.destinationClass);
+    }
+
+    @Benchmark
+    public String safeWriteValueAsJson(PublishedApi publishedApi) {
+        return MappingUtil.safeWriteValueAsJson(publishedApi.displayApi);
+    }
+
+    @Benchmark
+    public String safeWriteValueAsWireJson(PublishedApi publishedApi) {
+        return MappingUtil.safeWriteValueAsWireJson(publishedApi.wireApi);
+    }
+
+    /**
+     * @param configWriter writes the policy configuration as JSON
+     * @return an API, as published to the gateway, with {@link #POLICY_COUNT} policies
+     */
+    private static Api buildApi(Function<Object, String> configWriter) {
+        final List<Policy> policies = Lists.newArrayList();
+        for (int i = 0; i < POLICY_COUNT; i++) {
+            final Map<String, Object> config = Maps.newLinkedHashMap();
+            config.put("ttl", 60 + i);
+            config.put("requestHeader", "X-Request-" + i);
+            config.put("responseHeader", "X-Response-" + i);
+            config.put("ipList", Lists.newArrayList("10.0.0." + i, "10.0.1." + i, "192.168.0." + i));
+
+            final Policy policy = new Policy();
+            policy.setPolicyImpl("plugin:io.apiman.plugins:apiman-plugins-test-policy:1.3.1.Final:war/io.apiman.plugins.test_policy.TestPolicy" + i);
+            policy.setPolicyJsonConfig(configWriter.apply(config));
+            policies.add(policy);
+        }
+
+        final Map<String, String> endpointProperties = Maps.newHashMap();
+        endpointProperties.put("authorization.type", "basic");
+        endpointProperties.put("basic-auth.username", "user");
+
+        final Api api = new Api();
+        api.setOrganizationId("test");
+        api.setApiId("example");
+        api.setVersion("1.0");
+        api.setEndpoint("http://example.com/api");
+        api.setEndpointType("rest");
+        api.setEndpointProperties(endpointProperties);
+        api.setPublicAPI(true);
+        api.setApiPolicies(policies);
+        return api;
+    }
+}
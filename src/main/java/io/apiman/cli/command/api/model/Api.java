@@ -28,6 +28,12 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Api {
+    /**
+     * This is a response property.
+     */
+    @JsonProperty
+    private String id;
+
     @JsonProperty
     private String name;
 
@@ -58,10 +64,33 @@ public class Api {
         this.initialVersion = initialVersion;
     }
 
+    /**
+     * Copy the fields of another API, such as those of an API declaration.
+     *
+     * @param api the API to copy
+     */
+    public Api(Api api) {
+        this.id = api.id;
+        this.name = api.name;
+        this.description = api.description;
+        this.organizationName = api.organizationName;
+        this.initialVersion = api.initialVersion;
+        this.version = api.version;
+        this.status = api.status;
+    }
+
+    public String getId() {
+        return id;
+    }
+
     public String getName() {
         return name;
     }
 
+    public String getDescription() {
+        return description;
+    }
+
     public void setInitialVersion(String initialVersion) {
         this.initialVersion = initialVersion;
     }
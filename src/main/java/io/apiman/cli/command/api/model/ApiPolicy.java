@@ -64,6 +64,10 @@ public class ApiPolicy {
         return id;
     }
 
+    public String getConfiguration() {
+        return configuration;
+    }
+
     public void setDefinitionId(String definitionId) {
         this.definitionId = definitionId;
     }
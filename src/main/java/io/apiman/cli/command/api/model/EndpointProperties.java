@@ -16,10 +16,8 @@
 
 package io.apiman.cli.command.api.model;
 
-import java.lang.reflect.Field;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -43,34 +41,47 @@ public class EndpointProperties {
     @JsonProperty("basic-auth.password")
     private String password;
 
+    public String getAuthorizationType() {
+        return authorizationType;
+    }
+
     public void setAuthorizationType(String authorizationType) {
         this.authorizationType = authorizationType;
     }
 
+    public boolean isRequireSsl() {
+        return requireSsl;
+    }
+
     public void setRequireSsl(boolean requireSsl) {
         this.requireSsl = requireSsl;
     }
 
+    public String getUsername() {
+        return username;
+    }
+
     public void setUsername(String username) {
         this.username = username;
     }
 
+    public String getPassword() {
+        return password;
+    }
+
     public void setPassword(String password) {
         this.password = password;
     }
 
+    /**
+     * @return the properties, keyed by their JSON property names, in declaration order
+     */
     public Map<String, String> toMap() {
-        Map<String, String> map = new LinkedHashMap<>();
-        for (Field field : this.getClass().getDeclaredFields()) {
-            try {
-                if (field.isAnnotationPresent(JsonProperty.class)) {
-                    JsonProperty annotation = field.getAnnotation(JsonProperty.class);
-                    map.put(annotation.value(), Objects.toString(field.get(this)));
-                }
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        final Map<String, String> map = new LinkedHashMap<>();
+        map.put("authorization.type", String.valueOf(authorizationType));
+        map.put("basic-auth.requireSSL", String.valueOf(requireSsl));
+        map.put("basic-auth.username", String.valueOf(username));
+        map.put("basic-auth.password", String.valueOf(password));
         return map;
     }
 }
@@ -21,6 +21,7 @@ import com.beust.jcommander.Parameter;
 import io.apiman.cli.annotations.CommandAvailableSince;
 import io.apiman.cli.exception.CommandException;
 import io.apiman.cli.services.WaitService;
+import io.apiman.cli.util.HttpUtil;
 
 import java.util.Map;
 
@@ -36,6 +37,15 @@ public abstract class AbstractFinalCommand extends AbstractCommand {
     @Parameter(names = {"--waitTime", "-w"}, description = "Server startup wait time (seconds)")
     private Integer waitTime = DEFAULT_WAIT_TIME;
 
+    @Parameter(names = "--connectTimeout", description = "Server connection timeout (seconds)")
+    private int connectTimeout = HttpUtil.DEFAULT_CONNECT_TIMEOUT;
+
+    @Parameter(names = "--readTimeout", description = "Server read timeout (seconds)")
+    private int readTimeout = HttpUtil.DEFAULT_READ_TIMEOUT;
+
+    @Parameter(names = "--compressRequests", description = "Compress large request bodies using gzip")
+    private boolean compressRequests;
+
     protected AbstractFinalCommand(WaitService waitService) {
         this.waitService = waitService;
     }
@@ -49,13 +59,34 @@ public abstract class AbstractFinalCommand extends AbstractCommand {
     }
 
     public final void performAction(JCommander parser) throws CommandException {
+        HttpUtil.configureTransport(connectTimeout, readTimeout, compressRequests);
+        configureServices();
         waitService.waitForServer(waitTime);
         doVersionCheck();
-        performFinalAction(parser);
+        try {
+            performFinalAction(parser);
+        } finally {
+            HttpUtil.logConcurrencyLimits();
+        }
     }
 
     public abstract void performFinalAction(JCommander parser) throws CommandException;
 
+    /**
+     * Configure the services used by this command with its parsed options, before waiting for
+     * the server. The default implementation does nothing.
+     */
+    protected void configureServices() {
+        // no op
+    }
+
+    /**
+     * @return the time, in seconds, to wait for servers to start
+     */
+    protected int getWaitTime() {
+        return waitTime;
+    }
+
     /**
      * Indicates that there is no child command and that this instance should handle the request.
      *
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.command.declarative;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.util.MappingUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records a content hash of each API applied to a target server, so that APIs unchanged since the
+ * last successful run can be skipped without contacting the server.
+ * <p>
+ * Entries are only recorded once an API has been applied successfully. State is disabled unless
+ * a state file is provided.
+ */
+public class ApplyState {
+    private static final Logger LOGGER = LogManager.getLogger(ApplyState.class);
+
+    /**
+     * Serialises content in a stable form for hashing, regardless of property or map ordering.
+     */
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY);
+
+    private final Path stateFile;
+    private final Map<String, String> previous;
+    private final boolean full;
+    private final Map<String, String> current = new ConcurrentHashMap<>();
+
+    private ApplyState(Path stateFile, Map<String, String> previous, boolean full) {
+        this.stateFile = stateFile;
+        this.previous = previous;
+        this.full = full;
+    }
+
+    /**
+     * @return state that records nothing, and considers every API changed
+     */
+    public static ApplyState disabled() {
+        return new ApplyState(null, new TreeMap<>(), false);
+    }
+
+    /**
+     * Load the state recorded by the last run.
+     *
+     * @param stateFile the state file, which need not exist
+     * @param full      whether every API is considered changed; the recorded state is still retained
+     *                  for APIs this run does not apply
+     * @return the state
+     */
+    public static ApplyState load(Path stateFile, boolean full) {
+        final Map<String, String> previous = new TreeMap<>();
+        if (Files.isRegularFile(stateFile)) {
+            try {
+                final StateFile contents = MappingUtil.JSON_MAPPER.readValue(stateFile.toFile(), StateFile.class);
+                if (null != contents.entries) {
+                    previous.putAll(contents.entries);
+                }
+                LOGGER.debug("Loaded {} entries from state file: {}", previous.size(), stateFile);
+
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring unreadable state file: {}", stateFile, e);
+            }
+        }
+        return new ApplyState(stateFile, previous, full);
+    }
+
+    /**
+     * @return {@code true} if state is recorded, so there is any point hashing items
+     */
+    public boolean isEnabled() {
+        return null != stateFile;
+    }
+
+    /**
+     * @param target the server to which the item is applied
+     * @param item   identifies the item, such as an API and version
+     * @param hash   the content hash of the item
+     * @return {@code true} if the item was applied to the target, with the same content, by the last run,
+     * unless every item is considered changed
+     */
+    public boolean isUnchanged(String target, String item, String hash) {
+        final boolean unchanged = !full && hash.equals(previous.get(buildKey(target, item)));
+        if (unchanged) {
+            // carry forward, as the item remains applied
+            record(target, item, hash);
+        }
+        return unchanged;
+    }
+
+    /**
+     * Record that the item has been applied successfully.
+     *
+     * @param target the server to which the item was applied
+     * @param item   identifies the item, such as an API and version
+     * @param hash   the content hash of the item
+     */
+    public void record(String target, String item, String hash) {
+        current.put(buildKey(target, item), hash);
+    }
+
+    /**
+     * Write the state file, if enabled. Entries from the last run that were not considered by this run
+     * are retained.
+     */
+    public void save() {
+        if (null == stateFile) {
+            return;
+        }
+
+        final StateFile contents = new StateFile();
+        contents.entries = new TreeMap<>(previous);
+        contents.entries.putAll(current);
+
+        try {
+            final Path parent = stateFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+
+            final Path tempFile = Files.createTempFile(parent, stateFile.getFileName().toString(), ".tmp");
+            MappingUtil.JSON_MAPPER.writeValue(tempFile.toFile(), contents);
+            Files.move(tempFile, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.debug("Wrote {} entries to state file: {}", contents.entries.size(), stateFile);
+
+        } catch (IOException e) {
+            throw new CommandException("Unable to write state file: " + stateFile, e);
+        }
+    }
+
+    /**
+     * Compute a stable content hash of the given parts.
+     *
+     * @param parts the content to hash
+     * @return the hash, as a hex string
+     */
+    public static String hash(Object... parts) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        try {
+            for (Object part : parts) {
+                hasher.putBytes(part instanceof byte[] ? (byte[]) part : CANONICAL_MAPPER.writeValueAsBytes(part));
+                hasher.putByte((byte) 0);
+            }
+        } catch (IOException e) {
+            throw new CommandException("Unable to hash content", e);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static String buildKey(String target, String item) {
+        return target + "|" + item;
+    }
+
+    /**
+     * The state file contents.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class StateFile {
+        @JsonProperty
+        private Map<String, String> entries;
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.command.declarative;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.exception.DeclarativeException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Reads the APIs of a declaration one at a time, so the declaration need never be held in memory at once.
+ * <p>
+ * The system, shared items and organisation are read when the reader is opened, and are available from
+ * {@link #getDeclaration()}, without the organisation's APIs. Each API is then read, has its placeholders
+ * resolved, and is bound, as it is requested.
+ * <p>
+ * Streaming requires the <tt>org</tt> to follow the <tt>system</tt> and <tt>shared</tt> sections, its
+ * <tt>apis</tt> to be its last field, and no placeholders to be unquoted. Other declarations are loaded
+ * in full, using {@link DeclarativeUtil#loadDeclaration(Path, ObjectMapper, Map)}.
+ */
+public class DeclarationReader implements Iterator<DeclarativeApi>, Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(DeclarationReader.class);
+    private static final String FIELD_SYSTEM = "system";
+    private static final String FIELD_SHARED = "shared";
+    private static final String FIELD_ORG = "org";
+    private static final String FIELD_APIS = "apis";
+    private static final String FIELD_POLICIES = "policies";
+    private static final String FIELD_POLICY_ID = "$id";
+
+    /**
+     * A YAML key, such as <tt>name: "test"</tt>, with an optionally quoted name.
+     */
+    private static final Pattern YAML_KEY = Pattern.compile("^( *)([\"']?)([^\"'#:\\s]+)\\2:(\\s.*)?$");
+
+    private final ObjectMapper mapper;
+    private BaseDeclaration declaration;
+
+    /**
+     * Set when streaming.
+     */
+    private JsonParser parser;
+    private Map<String, String> properties;
+    private final Map<String, JsonNode> policies = new HashMap<>();
+
+    /**
+     * Set when the declaration is loaded in full.
+     */
+    private Iterator<DeclarativeApi> loadedApis;
+
+    private DeclarativeApi next;
+
+    private DeclarationReader(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Open the declaration at the given Path, reading the items preceding its APIs.
+     *
+     * @param path       the Path to the declaration
+     * @param mapper     the Mapper to use
+     * @param properties property placeholders to resolve
+     * @return the reader
+     */
+    public static DeclarationReader open(Path path, ObjectMapper mapper, Map<String, String> properties) {
+        final DeclarationReader reader = new DeclarationReader(mapper);
+        try {
+            if (isStreamable(path, mapper)) {
+                reader.openStream(path, properties);
+            } else {
+                LOGGER.debug("Declaration cannot be streamed - loading in full: {}", path);
+                reader.load(DeclarativeUtil.loadDeclaration(path, mapper, properties));
+            }
+            return reader;
+
+        } catch (IOException e) {
+            reader.close();
+            throw new DeclarativeException("Unable to load declaration: " + path, e);
+        }
+    }
+
+    /**
+     * @param declaration a declaration already loaded
+     * @return a reader of the APIs of the declaration
+     */
+    public static DeclarationReader of(BaseDeclaration declaration) {
+        final DeclarationReader reader = new DeclarationReader(null);
+        reader.declaration = declaration;
+        reader.loadedApis = iterateApis(declaration);
+        return reader;
+    }
+
+    private void load(BaseDeclaration loaded) {
+        loadedApis = iterateApis(loaded);
+        ofNullable(loaded.getOrg()).ifPresent(org -> org.setApis(null));
+        declaration = loaded;
+    }
+
+    private static Iterator<DeclarativeApi> iterateApis(BaseDeclaration declaration) {
+        return ofNullable(declaration.getOrg())
+                .map(org -> ofNullable(org.getApis()).orElse(Collections.emptyList()).iterator())
+                .orElse(Collections.emptyIterator());
+    }
+
+    /**
+     * @return the system, shared items and organisation of the declaration; the APIs of the organisation
+     * are only available from this reader
+     */
+    public BaseDeclaration getDeclaration() {
+        return declaration;
+    }
+
+    /**
+     * @return <code>true</code> if the APIs are read from the file as they are requested, or <code>false</code>
+     * if the declaration was loaded in full, in which case reading its APIs does not read the file again
+     */
+    public boolean isStreaming() {
+        return null == loadedApis;
+    }
+
+    /**
+     * Checks the order of the sections of the declaration, without binding them, and that no placeholder
+     * is unquoted, as the type of such a value is only known once it has been resolved in the text.
+     */
+    private static boolean isStreamable(Path path, ObjectMapper mapper) throws IOException {
+        if (mapper.getFactory() instanceof YAMLFactory) {
+            // tokenising YAML takes almost as long as loading it, so its layout is checked in its text
+            return isStreamableYaml(path);
+        }
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(Files.newInputStream(path)))) {
+            for (String line = lines.readLine(); null != line; line = lines.readLine()) {
+                if (DeclarativeUtil.hasUnquotedPlaceholders(line)) {
+                    return false;
+                }
+            }
+        }
+
+        try (JsonParser skim = mapper.getFactory().createParser(Files.newInputStream(path))) {
+            if (JsonToken.START_OBJECT != skim.nextToken()) {
+                return false;
+            }
+
+            boolean orgRead = false;
+            while (JsonToken.FIELD_NAME == skim.nextToken()) {
+                final String field = skim.getCurrentName();
+                skim.nextToken();
+
+                if (orgRead && (FIELD_SYSTEM.equals(field) || FIELD_SHARED.equals(field))) {
+                    return false;
+                } else if (FIELD_ORG.equals(field) && JsonToken.START_OBJECT == skim.getCurrentToken()) {
+                    orgRead = true;
+
+                    boolean apisRead = false;
+                    while (JsonToken.FIELD_NAME == skim.nextToken()) {
+                        if (apisRead) {
+                            return false;
+                        }
+                        apisRead = FIELD_APIS.equals(skim.getCurrentName());
+                        skim.nextToken();
+                        skim.skipChildren();
+                    }
+                } else {
+                    skim.skipChildren();
+                }
+            }
+            return true;
+
+        } catch (IOException e) {
+            LOGGER.trace("Unable to parse declaration - loading in full", e);
+            return false;
+        }
+    }
+
+    /**
+     * Checks the layout of a YAML declaration from the indentation of its keys. Only block style
+     * declarations are streamed; anything else is loaded in full.
+     */
+    private static boolean isStreamableYaml(Path path) throws IOException {
+        int topIndent = -1;
+        int orgIndent = -1;
+        boolean inOrg = false;
+        boolean orgRead = false;
+        boolean apisRead = false;
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(Files.newInputStream(path)))) {
+            for (String line = lines.readLine(); null != line; line = lines.readLine()) {
+                if (DeclarativeUtil.hasUnquotedPlaceholders(line)) {
+                    return false;
+                }
+
+                final String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.equals("---")) {
+                    continue;
+                }
+
+                final int indent = line.indexOf(trimmed.charAt(0));
+                if (topIndent < 0) {
+                    topIndent = indent;
+                }
+
+                if (indent < topIndent) {
+                    return false;
+                } else if (indent > topIndent) {
+                    if (!inOrg) {
+                        // within the system, shared or another section
+                        continue;
+                    }
+                    if (orgIndent < 0) {
+                        orgIndent = indent;
+                    }
+                    if (indent > orgIndent) {
+                        // within a field of the organisation, such as its APIs
+                        continue;
+                    } else if (indent < orgIndent || apisRead) {
+                        return false;
+                    }
+                }
+
+                final Matcher key = YAML_KEY.matcher(line);
+                if (!key.matches()) {
+                    return false;
+                }
+                final String name = key.group(3);
+                final String value = null != key.group(4) ? key.group(4).trim() : "";
+                final boolean inlineValue = !value.isEmpty() && !value.startsWith("#");
+
+                if (indent == topIndent) {
+                    if (orgRead && (FIELD_SYSTEM.equals(name) || FIELD_SHARED.equals(name))) {
+                        return false;
+                    }
+                    inOrg = FIELD_ORG.equals(name);
+                    if (inOrg) {
+                        if (inlineValue) {
+                            return false;
+                        }
+                        orgRead = true;
+                    }
+                } else {
+                    apisRead = FIELD_APIS.equals(name);
+                    if (apisRead && inlineValue) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read and bind the sections preceding the APIs, leaving the parser at the start of the APIs.
+     */
+    private void openStream(Path path, Map<String, String> declaredProperties) throws IOException {
+        parser = mapper.getFactory().createParser(Files.newInputStream(path));
+        parser.nextToken();
+
+        final ObjectNode header = mapper.createObjectNode();
+        boolean apisFound = false;
+
+        while (!apisFound && JsonToken.FIELD_NAME == parser.nextToken()) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+
+            if (FIELD_ORG.equals(field) && JsonToken.START_OBJECT == parser.getCurrentToken()) {
+                final ObjectNode org = header.putObject(FIELD_ORG);
+                while (JsonToken.FIELD_NAME == parser.nextToken()) {
+                    final String orgField = parser.getCurrentName();
+                    parser.nextToken();
+
+                    if (FIELD_APIS.equals(orgField) && JsonToken.START_ARRAY == parser.getCurrentToken()) {
+                        apisFound = true;
+                        break;
+                    }
+                    org.set(orgField, parser.readValueAsTree());
+                }
+            } else {
+                header.set(field, parser.readValueAsTree());
+            }
+        }
+
+        if (!apisFound) {
+            closeParser();
+        }
+
+        properties = DeclarativeUtil.mergeSharedProperties(declaredProperties,
+                DeclarativeUtil.readSharedProperties(header));
+
+        DeclarativeUtil.resolvePlaceholders(header, properties);
+        header.path(FIELD_SHARED).path(FIELD_POLICIES).forEach(this::registerPolicy);
+
+        declaration = mapper.treeToValue(header, BaseDeclaration.class);
+    }
+
+    /**
+     * Policies with an ID may be referred to by the APIs that follow.
+     */
+    private void registerPolicy(JsonNode policy) {
+        if (policy.hasNonNull(FIELD_POLICY_ID)) {
+            policies.put(policy.get(FIELD_POLICY_ID).asText(), policy);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (null == next) {
+            next = readNext();
+        }
+        return null != next;
+    }
+
+    @Override
+    public DeclarativeApi next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final DeclarativeApi api = next;
+        next = null;
+        return api;
+    }
+
+    /**
+     * @return the next API, or {@code null} if there are no more
+     */
+    private DeclarativeApi readNext() {
+        if (null != loadedApis) {
+            return loadedApis.hasNext() ? loadedApis.next() : null;
+        }
+        if (null == parser) {
+            return null;
+        }
+
+        try {
+            if (JsonToken.END_ARRAY == parser.nextToken()) {
+                closeParser();
+                return null;
+            }
+
+            final JsonNode api = DeclarativeUtil.resolvePlaceholders(parser.readValueAsTree(), properties);
+
+            // replace the first reference to each policy with the policy itself
+            final JsonNode apiPolicies = api.path(FIELD_POLICIES);
+            if (apiPolicies.isArray()) {
+                final ArrayNode policyArray = (ArrayNode) apiPolicies;
+                final Set<String> referenced = new HashSet<>();
+                for (int i = 0; i < policyArray.size(); i++) {
+                    final JsonNode policy = policyArray.get(i);
+                    if (policy.isTextual() && policies.containsKey(policy.asText())) {
+                        if (referenced.add(policy.asText())) {
+                            policyArray.set(i, policies.get(policy.asText()).deepCopy());
+                        }
+                    } else {
+                        registerPolicy(policy);
+                    }
+                }
+            }
+
+            return mapper.treeToValue(api, DeclarativeApi.class);
+
+        } catch (IOException e) {
+            closeParser();
+            throw new DeclarativeException("Unable to read API from declaration", e);
+        }
+    }
+
+    private void closeParser() {
+        if (null != parser) {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                LOGGER.trace("Error closing declaration", e);
+            }
+            parser = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeParser();
+    }
+}
@@ -16,7 +16,13 @@
 
 package io.apiman.cli.command.declarative;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.CharStreams;
 import io.apiman.cli.command.declarative.model.BaseDeclaration;
@@ -29,10 +35,17 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 
@@ -43,9 +56,19 @@ import static java.util.Optional.ofNullable;
  */
 public class DeclarativeUtil {
     private static final Logger LOGGER = LogManager.getLogger(DeclarativeUtil.class);
+    private static final String PLACEHOLDER_PREFIX = "${";
+    private static final String FIELD_SHARED = "shared";
+    private static final String FIELD_PROPERTIES = "properties";
+    private static final String GLOB_CHARACTERS = "*?[{";
+    private static final List<String> DECLARATION_EXTENSIONS = Lists.newArrayList(".yml", ".yaml", ".json");
 
     /**
      * Load the Declaration from the given Path, using the mapper provided.
+     * <p>
+     * The declaration is parsed once, into a tree, from which the shared properties are read. Placeholders
+     * are then resolved within the values of the tree, before it is bound to the Declaration. If a placeholder
+     * appears in an unquoted value, where its resolved value could change the type of the value, the
+     * placeholders are instead resolved in the text of the declaration, before it is parsed.
      *
      * @param path       the Path to the declaration
      * @param mapper     the Mapper to use
@@ -57,29 +80,111 @@ public class DeclarativeUtil {
             String fileContents = CharStreams.toString(new InputStreamReader(is));
             LOGGER.trace("Declaration file raw: {}", fileContents);
 
-            BaseDeclaration declaration = loadDeclaration(mapper, fileContents, properties);
+            if (!hasUnquotedPlaceholders(fileContents)) {
+                final JsonNode tree = readTree(mapper, fileContents);
+                if (null != tree) {
+                    final Map<String, String> allProperties = mergeSharedProperties(properties,
+                            readSharedProperties(tree));
 
-            // check for the presence of shared properties in the declaration
-            final Map<String, String> sharedProperties = ofNullable(declaration.getShared())
-                    .map(SharedItems::getProperties)
-                    .orElse(Collections.emptyMap());
-
-            if (sharedProperties.size() > 0) {
-                LOGGER.trace("Resolving {} shared placeholders", sharedProperties.size());
-                final Map<String, String> mutableProperties = Maps.newHashMap(properties);
-                mutableProperties.putAll(sharedProperties);
-
-                // this is not very efficient, as it requires parsing the declaration twice
-                declaration = loadDeclaration(mapper, fileContents, mutableProperties);
+                    final JsonNode resolved = resolvePlaceholders(tree, allProperties);
+                    LOGGER.trace("Declaration after resolving {} placeholders: {}", allProperties.size(), resolved);
+                    return mapper.treeToValue(resolved, BaseDeclaration.class);
+                }
             }
 
-            return declaration;
+            return loadDeclarationText(mapper, fileContents, properties);
 
         } catch (IOException e) {
             throw new DeclarativeException("Unable to load declaration: " + path, e);
         }
     }
 
+    /**
+     * Expands a declaration path into the declaration files it refers to, in a deterministic order.
+     * <ul>
+     * <li>A file is returned as-is.</li>
+     * <li>A directory is searched recursively for files with a declaration extension (.yml, .yaml or .json),
+     * sorted by path.</li>
+     * <li>A glob, such as <tt>declarations/**&#47;*.yml</tt>, is matched against files beneath the
+     * directory preceding the first glob character, sorted by path.</li>
+     * </ul>
+     *
+     * @param declarationPath the file, directory or glob
+     * @return the declaration files
+     */
+    public static List<Path> expandDeclarationPath(Path declarationPath) {
+        final String pathString = declarationPath.toString();
+        final int globIndex = indexOfGlob(pathString);
+
+        try {
+            if (globIndex >= 0) {
+                final int separatorIndex = pathString.lastIndexOf(declarationPath.getFileSystem().getSeparator(), globIndex);
+                final Path baseDir = separatorIndex >= 0 ? Paths.get(pathString.substring(0, separatorIndex + 1)) : Paths.get("");
+                final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pathString);
+
+                return findFiles(baseDir, matcher);
+
+            } else if (Files.isDirectory(declarationPath)) {
+                return findFiles(declarationPath, path -> DECLARATION_EXTENSIONS.stream()
+                        .anyMatch(extension -> path.getFileName().toString().toLowerCase().endsWith(extension)));
+
+            } else {
+                return Collections.singletonList(declarationPath);
+            }
+
+        } catch (IOException e) {
+            throw new DeclarativeException("Unable to find declarations: " + declarationPath, e);
+        }
+    }
+
+    private static int indexOfGlob(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(path.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Path> findFiles(Path baseDir, PathMatcher matcher) throws IOException {
+        if (!Files.isDirectory(baseDir)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> paths = Files.walk(baseDir)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Loads the Declaration by resolving placeholders in its text, which requires the declaration to be
+     * parsed twice if it contains shared properties.
+     *
+     * @param mapper       the Mapper to use
+     * @param fileContents the contents of the file
+     * @param properties   the property placeholders
+     * @return the Declaration
+     * @throws IOException
+     */
+    private static BaseDeclaration loadDeclarationText(ObjectMapper mapper, String fileContents,
+                                                       Map<String, String> properties) throws IOException {
+
+        BaseDeclaration declaration = loadDeclaration(mapper, fileContents, properties);
+
+        // check for the presence of shared properties in the declaration
+        final Map<String, String> sharedProperties = ofNullable(declaration.getShared())
+                .map(SharedItems::getProperties)
+                .orElse(Collections.emptyMap());
+
+        if (sharedProperties.size() > 0) {
+            LOGGER.trace("Resolving {} shared placeholders", sharedProperties.size());
+            declaration = loadDeclaration(mapper, fileContents, mergeSharedProperties(properties, sharedProperties));
+        }
+        return declaration;
+    }
+
     /**
      * Parses the {@link BaseDeclaration} from the {@code fileContents}, using the specified {@code properties}.
      *
@@ -96,4 +201,118 @@ public class DeclarativeUtil {
         LOGGER.trace("Declaration file after resolving {} placeholders: {}", properties.size(), resolved);
         return mapper.readValue(resolved, BaseDeclaration.class);
     }
+
+    /**
+     * @return the tree, or {@code null} if the unresolved declaration cannot be parsed
+     */
+    private static JsonNode readTree(ObjectMapper mapper, String unresolved) throws IOException {
+        try {
+            return mapper.readTree(unresolved);
+        } catch (JsonProcessingException e) {
+            LOGGER.trace("Unable to parse unresolved declaration - resolving placeholders in text", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the {@code shared.properties} from the unresolved declaration.
+     *
+     * @param tree the unresolved declaration
+     * @return the shared properties, or an empty Map if there are none
+     */
+    static Map<String, String> readSharedProperties(JsonNode tree) {
+        final JsonNode propertiesNode = tree.path(FIELD_SHARED).path(FIELD_PROPERTIES);
+        if (!propertiesNode.isObject()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, String> sharedProperties = Maps.newHashMap();
+        propertiesNode.fields().forEachRemaining(field -> sharedProperties.put(field.getKey(),
+                field.getValue().isNull() ? null : field.getValue().asText()));
+        return sharedProperties;
+    }
+
+    /**
+     * Shared properties take precedence over those provided.
+     */
+    static Map<String, String> mergeSharedProperties(Map<String, String> properties,
+                                                             Map<String, String> sharedProperties) {
+        if (sharedProperties.isEmpty()) {
+            return properties;
+        }
+        final Map<String, String> mutableProperties = Maps.newHashMap(properties);
+        mutableProperties.putAll(sharedProperties);
+        return mutableProperties;
+    }
+
+    /**
+     * Resolves placeholders in the field names and text values of the tree, in place.
+     *
+     * @param node       the node
+     * @param properties the property placeholders
+     * @return the resolved node
+     */
+    static JsonNode resolvePlaceholders(JsonNode node, Map<String, String> properties) {
+        if (node.isTextual()) {
+            return node.textValue().contains(PLACEHOLDER_PREFIX) ?
+                    TextNode.valueOf(BeanUtil.resolvePlaceholders(node.textValue(), properties)) : node;
+
+        } else if (node.isArray()) {
+            final ArrayNode arrayNode = (ArrayNode) node;
+            for (int i = 0; i < arrayNode.size(); i++) {
+                arrayNode.set(i, resolvePlaceholders(arrayNode.get(i), properties));
+            }
+
+        } else if (node.isObject()) {
+            final ObjectNode objectNode = (ObjectNode) node;
+            final List<String> fieldNames = Lists.newArrayList(objectNode.fieldNames());
+            final boolean renameFields = fieldNames.stream().anyMatch(name -> name.contains(PLACEHOLDER_PREFIX));
+
+            if (renameFields) {
+                // rebuild the object to preserve field order
+                final Map<String, JsonNode> fields = Maps.newLinkedHashMap();
+                for (Iterator<Map.Entry<String, JsonNode>> it = objectNode.fields(); it.hasNext(); ) {
+                    final Map.Entry<String, JsonNode> field = it.next();
+                    fields.put(BeanUtil.resolvePlaceholders(field.getKey(), properties),
+                            resolvePlaceholders(field.getValue(), properties));
+                }
+                objectNode.removeAll();
+                objectNode.setAll(fields);
+
+            } else {
+                fieldNames.forEach(name -> objectNode.set(name, resolvePlaceholders(objectNode.get(name), properties)));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Whether any placeholder appears outside quotes, such as {@code ttl: ${ttl}}. The type of such a value
+     * is only known once the placeholder is resolved, so it must be resolved in the text of the declaration.
+     *
+     * @param unresolved the contents of the file
+     * @return {@code true} if any placeholder is unquoted, otherwise {@code false}
+     */
+    static boolean hasUnquotedPlaceholders(String unresolved) {
+        int placeholderIndex = unresolved.indexOf(PLACEHOLDER_PREFIX);
+        while (placeholderIndex >= 0) {
+            final int lineStart = unresolved.lastIndexOf('\n', placeholderIndex) + 1;
+
+            int doubleQuotes = 0;
+            int singleQuotes = 0;
+            for (int i = lineStart; i < placeholderIndex; i++) {
+                final char c = unresolved.charAt(i);
+                if (c == '"') {
+                    doubleQuotes++;
+                } else if (c == '\'') {
+                    singleQuotes++;
+                }
+            }
+            if (doubleQuotes % 2 == 0 && singleQuotes % 2 == 0) {
+                return true;
+            }
+            placeholderIndex = unresolved.indexOf(PLACEHOLDER_PREFIX, placeholderIndex + PLACEHOLDER_PREFIX.length());
+        }
+        return false;
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.command.declarative;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.util.MappingUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The resolved operations of an apply, written by one run and executed by another, so that the second
+ * run need not load, resolve or map the declarations again.
+ * <p>
+ * Plan files hold the requests exactly as they will be sent, including any credentials resolved from
+ * the declarations, so should be protected accordingly.
+ */
+public abstract class PlanFile {
+    private static final Logger LOGGER = LogManager.getLogger(PlanFile.class);
+
+    /**
+     * The command that wrote the plan, and so can execute it.
+     */
+    @JsonProperty
+    private String kind;
+
+    @JsonProperty
+    private long created;
+
+    protected PlanFile() {
+    }
+
+    protected PlanFile(String kind) {
+        this.kind = kind;
+        this.created = System.currentTimeMillis();
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Write the plan as compact JSON, replacing the plan file atomically.
+     *
+     * @param planFile the plan file
+     */
+    public void write(Path planFile) {
+        try {
+            final Path parent = planFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+
+            final Path tempFile = Files.createTempFile(parent, planFile.getFileName().toString(), ".tmp");
+            MappingUtil.WIRE_MAPPER.writeValue(tempFile.toFile(), this);
+            Files.move(tempFile, planFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.info("Wrote plan file: {}", planFile);
+
+        } catch (IOException e) {
+            throw new CommandException("Unable to write plan file: " + planFile, e);
+        }
+    }
+
+    /**
+     * Read a plan written by {@link #write(Path)}.
+     *
+     * @param planFile  the plan file
+     * @param planClass the type of plan
+     * @param kind      the kind of plan expected
+     * @param <T>       the type of plan
+     * @return the plan
+     */
+    public static <T extends PlanFile> T read(Path planFile, Class<T> planClass, String kind) {
+        final T plan;
+        try {
+            plan = MappingUtil.WIRE_MAPPER.readValue(planFile.toFile(), planClass);
+        } catch (IOException e) {
+            throw new CommandException("Unable to read plan file: " + planFile, e);
+        }
+
+        if (!kind.equals(plan.getKind())) {
+            throw new CommandException(String.format("Plan file %s was written by '%s apply', not '%s apply'",
+                    planFile, plan.getKind(), kind));
+        }
+        LOGGER.info("Read plan file: {}", planFile);
+        return plan;
+    }
+}
@@ -19,12 +19,17 @@ package io.apiman.cli.command.declarative.command;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.apiman.cli.command.core.AbstractFinalCommand;
+import io.apiman.cli.command.declarative.ApplyState;
+import io.apiman.cli.command.declarative.DeclarationReader;
 import io.apiman.cli.command.declarative.DeclarativeUtil;
 import io.apiman.cli.command.declarative.model.BaseDeclaration;
 import io.apiman.cli.exception.CommandException;
 import io.apiman.cli.services.WaitService;
 import io.apiman.cli.util.BeanUtil;
+import io.apiman.cli.util.ConcurrencyUtil;
+import io.apiman.cli.util.HttpUtil;
 import io.apiman.cli.util.MappingUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,9 +39,12 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 import static java.util.Optional.ofNullable;
@@ -51,7 +59,13 @@ public abstract class AbstractApplyCommand extends AbstractFinalCommand {
     private static final Logger LOGGER = LogManager.getLogger(AbstractApplyCommand.class);
     protected static final String JSON_EXTENSION = ".json";
 
-    @Parameter(names = {"--declarationFile", "-f"}, description = "Declaration file")
+    /**
+     * Plans are applied with as many concurrent requests as a server can sustain, as the concurrency
+     * limit of each server adapts to it.
+     */
+    protected static final int PLAN_PARALLELISM = HttpUtil.MAX_CONCURRENCY_LIMIT;
+
+    @Parameter(names = {"--declarationFile", "-f"}, description = "Declaration file, directory or glob")
     protected List<Path> declarationFiles;
 
     @Parameter(names = "-P", description = "Set property (key=value)")
@@ -60,6 +74,15 @@ public abstract class AbstractApplyCommand extends AbstractFinalCommand {
     @Parameter(names = "--propertiesFile", description = "Properties file")
     protected List<Path> propertiesFiles;
 
+    @Parameter(names = "--stateFile", description = "State file, used to skip APIs unchanged since the last run")
+    protected Path stateFile;
+
+    @Parameter(names = "--full", description = "Apply every API, ignoring the state file")
+    protected boolean full;
+
+    private ApplyState applyState;
+    private Map<String, String> parsedProperties;
+
     public AbstractApplyCommand(WaitService waitService) {
         super(waitService);
     }
@@ -78,19 +101,93 @@ public abstract class AbstractApplyCommand extends AbstractFinalCommand {
     }
 
     /**
-     * @return load all the {@link #declarationFiles}
+     * Directories and globs are expanded into the files they refer to, in a deterministic order.
+     *
+     * @return the files referred to by the {@link #declarationFiles}
+     */
+    protected List<Path> findDeclarationFiles() {
+        final List<Path> files = declarationFiles.stream()
+                .flatMap(declarationFile -> DeclarativeUtil.expandDeclarationPath(declarationFile).stream())
+                .collect(Collectors.toList());
+
+        if (files.isEmpty()) {
+            throw new CommandException("No declaration files found in: " + declarationFiles);
+        }
+        return files;
+    }
+
+    /**
+     * Loads the declaration files concurrently.
+     *
+     * @param files the declaration files
+     * @return the declarations, in the order of the files
+     */
+    protected List<BaseDeclaration> loadDeclarations(List<Path> files) {
+        return loadDeclarations(files, this::loadDeclaration);
+    }
+
+    /**
+     * Loads the system, shared items and organisation of each declaration file concurrently, without the
+     * APIs of the organisation, which can later be read using {@link #openDeclaration(Path)}.
+     * <p>
+     * Declarations that cannot be streamed are loaded in full, so rather than loading them again to read
+     * their APIs, their readers are added to <code>loadedReaders</code>.
+     *
+     * @param files         the declaration files
+     * @param loadedReaders populated with the readers of the declaration files loaded in full
+     * @return the declarations, without APIs, in the order of the files
      */
-    private List<BaseDeclaration> loadDeclarations() {
-        return declarationFiles.stream()
-                .map(this::loadDeclaration)
+    protected List<BaseDeclaration> loadDeclarationHeaders(List<Path> files,
+                                                           Map<Path, DeclarationReader> loadedReaders) {
+        return loadDeclarations(files, (declarationFile, parsedProperties) -> {
+            final DeclarationReader reader = openDeclaration(declarationFile);
+            if (reader.isStreaming()) {
+                reader.close();
+            } else {
+                loadedReaders.put(declarationFile, reader);
+            }
+            return reader.getDeclaration();
+        });
+    }
+
+    private List<BaseDeclaration> loadDeclarations(List<Path> files,
+                                                   BiFunction<Path, Map<String, String>, BaseDeclaration> loader) {
+        // properties are the same for every declaration
+        final Map<String, String> parsedProperties = getParsedProperties();
+
+        final Map<Path, BaseDeclaration> declarations = new ConcurrentHashMap<>();
+        final Map<Path, Exception> failures = ConcurrencyUtil.forEach(files,
+                Math.min(files.size(), Runtime.getRuntime().availableProcessors()), "load-declaration",
+                declarationFile -> {
+                    final BaseDeclaration declaration = loader.apply(declarationFile, parsedProperties);
+                    LOGGER.info("Loaded declaration: {}", declarationFile);
+                    LOGGER.debug("Declaration loaded: {}", () -> MappingUtil.safeWriteValueAsJson(declaration));
+                    declarations.put(declarationFile, declaration);
+                });
+
+        if (!failures.isEmpty()) {
+            failures.forEach((declarationFile, cause) -> LOGGER.error("Failed to load declaration: {}", declarationFile, cause));
+            throw new CommandException(String.format("Failed to load %d of %d declarations: %s", failures.size(),
+                    files.size(), failures.keySet().stream().map(Path::toString).collect(Collectors.joining(", "))),
+                    failures.values().iterator().next());
+        }
+
+        return files.stream()
+                .map(declarations::get)
                 .collect(Collectors.toList());
     }
 
     /**
-     * Load and then apply the Declaration.
-     * @param declarationFile
+     * @return the properties set using {@link #properties} and {@link #propertiesFiles}, which are loaded once
      */
-    private BaseDeclaration loadDeclaration(Path declarationFile) {
+    protected synchronized Map<String, String> getParsedProperties() {
+        if (null == parsedProperties) {
+            parsedProperties = loadProperties();
+        }
+        return parsedProperties;
+    }
+
+    private Map<String, String> loadProperties() {
         final Map<String, String> parsedProperties = BeanUtil.parseReplacements(properties);
 
         // check for properties file
@@ -111,26 +208,95 @@ public abstract class AbstractApplyCommand extends AbstractFinalCommand {
             fileProperties.forEach((key, value) -> parsedProperties.put((String) key, (String) value));
         }));
 
-        final BaseDeclaration declaration = loadDeclaration(declarationFile, parsedProperties);
-        LOGGER.info("Loaded declaration: {}", declarationFile);
-        LOGGER.debug("Declaration loaded: {}", () -> MappingUtil.safeWriteValueAsJson(declaration));
-        return declaration;
+        return Collections.unmodifiableMap(parsedProperties);
     }
 
     public void applyDeclarations() {
-        applyDeclarations(loadDeclarations());
+        if (null != getPlanIn()) {
+            if (null != getPlanOut()) {
+                throw new CommandException("--plan-in cannot be combined with --plan-out");
+            }
+            // the declarations were resolved when the plan was made
+            applyPlanFile(getPlanIn());
+            return;
+        }
+
+        try {
+            applyDeclarationFiles(findDeclarationFiles());
+        } finally {
+            // record the APIs that were applied, even if others failed
+            getApplyState().save();
+        }
+    }
+
+    /**
+     * @return the state recorded by the last run, or disabled state if no {@link #stateFile} is set, or
+     * a plan is being written, as nothing is applied
+     */
+    protected ApplyState getApplyState() {
+        if (null == applyState) {
+            applyState = (null == stateFile || null != getPlanOut())
+                    ? ApplyState.disabled() : ApplyState.load(stateFile, full);
+        }
+        return applyState;
+    }
+
+    /**
+     * Load the declaration files in full, then apply them.
+     *
+     * @param files the declaration files
+     */
+    protected void applyDeclarationFiles(List<Path> files) {
+        applyDeclarations(loadDeclarations(files));
     }
 
     protected abstract void applyDeclarations(List<BaseDeclaration> declaration);
 
+    /**
+     * @return the plan file to write, instead of applying the declarations, if the command supports plans
+     */
+    protected Path getPlanOut() {
+        return null;
+    }
+
+    /**
+     * @return the plan file to apply, instead of the declarations, if the command supports plans
+     */
+    protected Path getPlanIn() {
+        return null;
+    }
+
+    /**
+     * Apply the plan written to the plan file by an earlier run, as returned by {@link #getPlanOut()}.
+     *
+     * @param planFile the plan file
+     */
+    protected void applyPlanFile(Path planFile) {
+        throw new CommandException("Plan files are not supported by this command");
+    }
+
+    /**
+     * Open the declaration file, to read its APIs one at a time.
+     *
+     * @param declarationFile the declaration file
+     * @return the reader, which must be closed
+     */
+    protected DeclarationReader openDeclaration(Path declarationFile) {
+        return DeclarationReader.open(declarationFile, selectMapper(declarationFile), getParsedProperties());
+    }
+
     protected BaseDeclaration loadDeclaration(Path declarationFile, Map<String, String> parsedProperties) {
       // parse declaration
-      if (declarationFile.endsWith(JSON_EXTENSION)) {
-          return DeclarativeUtil.loadDeclaration(declarationFile, MappingUtil.JSON_MAPPER, parsedProperties);
-      } else {
-          // default is YAML
-          return DeclarativeUtil.loadDeclaration(declarationFile, MappingUtil.YAML_MAPPER, parsedProperties);
-      }
+      return DeclarativeUtil.loadDeclaration(declarationFile, selectMapper(declarationFile), parsedProperties);
+    }
+
+    private static ObjectMapper selectMapper(Path declarationFile) {
+        if (declarationFile.endsWith(JSON_EXTENSION)) {
+            return MappingUtil.JSON_MAPPER;
+        } else {
+            // default is YAML
+            return MappingUtil.YAML_MAPPER;
+        }
     }
 
     public void setDeclarationFiles(List<Path> declarationFiles) {
@@ -144,4 +310,12 @@ public abstract class AbstractApplyCommand extends AbstractFinalCommand {
     public void setPropertiesFiles(List<Path> propertiesFiles) {
         this.propertiesFiles = propertiesFiles;
     }
+
+    public void setStateFile(Path stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
 }
@@ -58,6 +58,14 @@ public class Gateway {
         return name;
     }
 
+    public String getDescription() {
+        return description;
+    }
+
+    public GatewayType getType() {
+        return type;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -45,4 +45,8 @@ public class Org {
     public String getName() {
         return name;
     }
+
+    public String getDescription() {
+        return description;
+    }
 }
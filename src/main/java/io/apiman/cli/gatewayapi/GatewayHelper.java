@@ -17,12 +17,14 @@
 package io.apiman.cli.gatewayapi;
 
 import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.util.ReadinessUtil;
 import io.apiman.gateway.api.rest.contract.exceptions.GatewayApiErrorBean;
 import io.apiman.gateway.engine.beans.SystemStatus;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import retrofit.RetrofitError;
 
+import java.util.Collections;
 import java.util.function.Supplier;
 
 import static java.text.MessageFormat.format;
@@ -32,7 +34,6 @@ import static java.text.MessageFormat.format;
  */
 public interface GatewayHelper {
     Logger LOGGER = LogManager.getLogger(GatewayHelper.class);
-    long STATUS_CHECK_INTERVAL = 1000;
 
     default boolean statusCheck(GatewayApi client, String endpoint) {
         SystemStatus status = callAndCatch(client::getSystemStatus);
@@ -83,31 +84,11 @@ public interface GatewayHelper {
         }
     }
 
-    default void waitForServer(GatewayApi apiClient, int waitTime) {
+    default void waitForServer(GatewayApi apiClient, String endpoint, int waitTime) {
         if (waitTime == 0) {
             return;
         }
-
-        LOGGER.info("Waiting {} seconds for server to start...", waitTime);
-
-        final long start = System.currentTimeMillis();
-        while (true) {
-            if (System.currentTimeMillis() - start > waitTime * 1000) {
-                throw new CommandException("Timed out after " + waitTime + " seconds waiting for server to start");
-            }
-
-            try {
-                final SystemStatus response = apiClient.getSystemStatus();
-                if (response.isUp()) {
-                    LOGGER.info("Server started");
-                    break;
-                }
-            } catch (RetrofitError rfe) {
-                try {
-                    Thread.sleep(STATUS_CHECK_INTERVAL);
-                } catch (InterruptedException ignored) {}
-            }
-        }
+        ReadinessUtil.awaitReady(Collections.singletonMap(endpoint, () -> apiClient.getSystemStatus().isUp()), waitTime);
     }
 
     class StatusCheckException extends CommandException {
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.gatewayapi;
+
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.util.ConcurrencyUtil;
+import io.apiman.gateway.engine.beans.Api;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes APIs to their gateways. Each gateway has its own work queue, served by up to a fixed
+ * number of concurrent requests, so a slow gateway does not hold up the others.
+ */
+public class GatewayPublisher implements GatewayHelper {
+    private static final Logger LOGGER = LogManager.getLogger(GatewayPublisher.class);
+
+    private final Function<DeclarativeGateway, GatewayApi> clientProvider;
+    private final int gatewayParallelism;
+
+    /**
+     * @param clientProvider     provides the client for a gateway; called once per gateway
+     * @param gatewayParallelism the maximum number of concurrent requests to each gateway
+     */
+    public GatewayPublisher(Function<DeclarativeGateway, GatewayApi> clientProvider, int gatewayParallelism) {
+        this.clientProvider = clientProvider;
+        this.gatewayParallelism = gatewayParallelism;
+    }
+
+    /**
+     * Publish the APIs to each gateway. A failure to publish an API does not prevent the remaining
+     * APIs being published.
+     *
+     * @param gatewayToApis the APIs to publish to each gateway
+     * @throws CommandException if any API could not be published
+     */
+    public void publish(Map<DeclarativeGateway, List<Api>> gatewayToApis) {
+        publish(gatewayToApis, (gateway, api) -> {});
+    }
+
+    /**
+     * As {@link #publish(Map)}, notifying the caller as each API is published successfully.
+     *
+     * @param gatewayToApis the APIs to publish to each gateway
+     * @param onPublished   called, possibly concurrently, with each gateway and API once published
+     * @throws CommandException if any API could not be published
+     */
+    public void publish(Map<DeclarativeGateway, List<Api>> gatewayToApis,
+                        BiConsumer<DeclarativeGateway, Api> onPublished) {
+        final List<DeclarativeGateway> gateways = new ArrayList<>(gatewayToApis.keySet());
+        final Map<DeclarativeGateway, Map<Api, Exception>> apiFailures = new ConcurrentHashMap<>();
+
+        // one queue per gateway
+        final Map<DeclarativeGateway, Exception> gatewayFailures = ConcurrencyUtil.forEach(gateways,
+                gateways.size(), "publish", gateway -> {
+                    final GatewayApi client = clientProvider.apply(gateway);
+                    final List<Api> apis = gatewayToApis.get(gateway);
+
+                    final Map<Api, Exception> failures = ConcurrencyUtil.forEach(apis, gatewayParallelism,
+                            "publish-gw" + gateways.indexOf(gateway), api -> {
+                                LOGGER.info("Publishing {} to {}", api, gateway.getConfig().getEndpoint());
+                                callAndCatch(() -> client.publishApi(api));
+                                onPublished.accept(gateway, api);
+                            });
+
+                    apiFailures.put(gateway, failures);
+                    LOGGER.info("Published {} of {} APIs to gateway {}", apis.size() - failures.size(),
+                            apis.size(), gateway.getName());
+                });
+
+        reportFailures(gatewayToApis, gateways, apiFailures, gatewayFailures);
+    }
+
+    private void reportFailures(Map<DeclarativeGateway, List<Api>> gatewayToApis, List<DeclarativeGateway> gateways,
+                                Map<DeclarativeGateway, Map<Api, Exception>> apiFailures,
+                                Map<DeclarativeGateway, Exception> gatewayFailures) {
+
+        final Map<DeclarativeGateway, Integer> failureCounts = new LinkedHashMap<>();
+        gateways.forEach(gateway -> {
+            if (gatewayFailures.containsKey(gateway)) {
+                LOGGER.error("Failed to publish to gateway {}", gateway.getName(), gatewayFailures.get(gateway));
+                failureCounts.put(gateway, gatewayToApis.get(gateway).size());
+
+            } else {
+                final Map<Api, Exception> failures = apiFailures.get(gateway);
+                failures.forEach((api, cause) -> LOGGER.error("Failed to publish API '{}' version '{}' to gateway {}: {}",
+                        api.getApiId(), api.getVersion(), gateway.getName(), cause.getMessage()));
+
+                if (!failures.isEmpty()) {
+                    failureCounts.put(gateway, failures.size());
+                }
+            }
+        });
+
+        if (!failureCounts.isEmpty()) {
+            final int total = gatewayToApis.values().stream().mapToInt(List::size).sum();
+            final int failed = failureCounts.values().stream().mapToInt(Integer::intValue).sum();
+
+            throw new CommandException(String.format("Failed to publish %d of %d APIs: %s", failed, total,
+                    failureCounts.entrySet().stream()
+                            .map(entry -> entry.getKey().getName() + " (" + entry.getValue() + ")")
+                            .collect(Collectors.joining(", "))));
+        }
+    }
+}
@@ -53,6 +53,6 @@ public class GatewayApiService implements WaitService, GatewayHelper {
 
     @Override
     public void waitForServer(int waitTime) {
-        waitForServer(buildGatewayApiClient(), waitTime);
+        waitForServer(buildGatewayApiClient(), gatewayConfig.getGatewayApiEndpoint(), waitTime);
     }
 }
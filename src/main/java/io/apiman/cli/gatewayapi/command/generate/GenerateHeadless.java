@@ -18,6 +18,9 @@ package io.apiman.cli.gatewayapi.command.generate;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import io.apiman.cli.command.declarative.command.AbstractApplyCommand;
@@ -33,6 +36,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -42,6 +46,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Generates config for API Gateway's headless JSON registry.
@@ -61,8 +66,9 @@ import java.util.Optional;
 @Parameters(commandDescription = "Generate config for API Gateway's headless JSON registry")
 public class GenerateHeadless extends AbstractApplyCommand implements GatewayHelper {
     private static final Logger LOGGER = LogManager.getLogger(GenerateHeadless.class);
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
     private PolicyResolver policyResolver;
-    private JsonWriter jsonWriter = (outputPath, headlessConfig) -> Files.write(outputPath, headlessConfig.toJson().getBytes());
+    private JsonWriter jsonWriter = this::writeToFile;
 
     @Parameter(names = {"--outputFile", "-o"}, description = "Output file(s) or directory. If a directory is provided a filename will be generated.")
     protected List<Path> outputFiles = new ArrayList<>();
@@ -71,6 +77,9 @@ public class GenerateHeadless extends AbstractApplyCommand implements GatewayHel
     @Parameter(names = {"--stdout"}, description = "Output definition to STDOUT (implied if no outputFile is specified)")
     protected boolean useStdout = false;
 
+    @Parameter(names = {"--gzip"}, description = "Compress output file(s) using gzip")
+    protected boolean gzip = false;
+
     public GenerateHeadless() {
         super();
     }
@@ -117,7 +126,12 @@ public class GenerateHeadless extends AbstractApplyCommand implements GatewayHel
             final HeadlessConfigBean bean = new HeadlessConfigBean(apis, Collections.emptyList()); // TODO look up clients for the gateway
 
             if (useStdout || outputFiles.isEmpty()) {
-                System.out.println(bean.toJson());
+                try {
+                    bean.writeJson(System.out);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                System.out.println();
             } else {
                 printToFile(gateway, bean, directorySpecified, fileIndex);
                 fileIndex++;
@@ -133,7 +147,7 @@ public class GenerateHeadless extends AbstractApplyCommand implements GatewayHel
         if (directorySpecified || fileIndex > outputFiles.size()) {
             String gatewayName = Optional.ofNullable(gateway.getName()).orElse("unnamed-config-" + fileIndex);
             String fileName = gatewayName.replaceAll("[\\s/]", "-");
-            fullOutputPath = Paths.get(directory.toString(), fileName + ".json");
+            fullOutputPath = Paths.get(directory.toString(), fileName + (gzip ? ".json.gz" : ".json"));
         } else {
             fullOutputPath = outputFiles.get(fileIndex);
         }
@@ -144,6 +158,22 @@ public class GenerateHeadless extends AbstractApplyCommand implements GatewayHel
         }
     }
 
+    /**
+     * Stream the configuration to the file, compressing it if required.
+     *
+     * @param outputPath     the file to write
+     * @param headlessConfig the configuration to write
+     * @throws IOException if the file cannot be written
+     */
+    private void writeToFile(Path outputPath, HeadlessConfigBean headlessConfig) throws IOException {
+        try (OutputStream fileStream = Files.newOutputStream(outputPath);
+             OutputStream outputStream = gzip ? new GZIPOutputStream(fileStream, GZIP_BUFFER_SIZE) : fileStream) {
+
+            headlessConfig.writeJson(outputStream);
+        }
+        LOGGER.debug("Wrote headless configuration to {}", outputPath);
+    }
+
     // Ignore unused as this is to provide a template for JSON marshalling.
     @SuppressWarnings("unused")
     static final class HeadlessConfigBean {
@@ -162,6 +192,40 @@ public class GenerateHeadless extends AbstractApplyCommand implements GatewayHel
         String toJson() {
             return MappingUtil.safeWriteValueAsJson(this);
         }
+
+        /**
+         * Write the same JSON as {@link #toJson()}, as UTF-8, serialising one API or client at a time
+         * rather than building the whole document in memory. The stream is flushed, but not closed.
+         *
+         * @param outputStream the stream to write to
+         * @throws IOException if the stream cannot be written
+         */
+        void writeJson(OutputStream outputStream) throws IOException {
+            try (JsonGenerator generator = MappingUtil.JSON_MAPPER.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+                // a single printer tracks indentation across the whole document
+                generator.setPrettyPrinter(new DefaultPrettyPrinter());
+
+                generator.writeStartObject();
+                writeArray(generator, "apis", apis);
+                writeArray(generator, "clients", clients);
+                generator.writeEndObject();
+            }
+        }
+
+        private static void writeArray(JsonGenerator generator, String fieldName, List<?> items) throws IOException {
+            generator.writeFieldName(fieldName);
+            if (null == items) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartArray();
+            for (Object item : items) {
+                MappingUtil.JSON_MAPPER.writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        }
     }
 
     interface JsonWriter {
@@ -16,24 +16,42 @@
 
 package io.apiman.cli.gatewayapi.declarative.command;
 
+import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.inject.Inject;
+import io.apiman.cli.command.declarative.ApplyState;
+import io.apiman.cli.command.declarative.PlanFile;
 import io.apiman.cli.command.declarative.command.AbstractApplyCommand;
 import io.apiman.cli.command.declarative.model.BaseDeclaration;
 import io.apiman.cli.command.declarative.model.DeclarativeGateway;
 import io.apiman.cli.command.gateway.model.GatewayConfig;
+import io.apiman.cli.exception.CommandException;
 import io.apiman.cli.gatewayapi.GatewayApi;
 import io.apiman.cli.gatewayapi.GatewayHelper;
+import io.apiman.cli.gatewayapi.GatewayPublisher;
 import io.apiman.cli.gatewayapi.command.factory.GatewayApiFactory;
 import io.apiman.cli.gatewayapi.model.GatewayApiDataModel;
+import io.apiman.cli.gatewayapi.model.GatewayPlan;
+import io.apiman.cli.util.ConcurrencyUtil;
 import io.apiman.cli.util.LogUtil;
 import io.apiman.cli.util.PolicyResolver;
+import io.apiman.cli.util.ReadinessUtil;
 import io.apiman.gateway.engine.beans.Api;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static java.util.Optional.ofNullable;
 
 /**
  * Apply a gateway declaration.
@@ -48,6 +66,21 @@ public class GatewayApplyCommand extends AbstractApplyCommand
     private final GatewayApiFactory apiFactory;
     private final PolicyResolver policyResolver;
 
+    /**
+     * Clients are reused for all requests to the same gateway. Declarations may use the same gateway
+     * name for different gateways, so clients are keyed by their configuration, not the name.
+     */
+    private final Map<ClientKey, GatewayApi> clients = new ConcurrentHashMap<>();
+
+    @Parameter(names = "--parallelism", description = "Maximum number of concurrent publish requests to each gateway")
+    private int parallelism = 1;
+
+    @Parameter(names = "--plan-out", description = "Write the APIs to publish to a plan file, instead of publishing them")
+    private Path planOut;
+
+    @Parameter(names = "--plan-in", description = "Publish the APIs in a plan file, instead of the declarations")
+    private Path planIn;
+
     @Inject
     public GatewayApplyCommand(GatewayApiFactory apiFactory,
                                PolicyResolver policyResolver) {
@@ -58,40 +91,152 @@ public class GatewayApplyCommand extends AbstractApplyCommand
 
     @Override
     protected void applyDeclarations(List<BaseDeclaration> declarations) {
+        final GatewayPlan plan = (null == planOut) ? null : GatewayPlan.create();
+
         declarations.forEach(declaration -> {
             GatewayApiDataModel dataModel = new GatewayApiDataModel(declaration, policyResolver);
+            final Map<DeclarativeGateway, List<Api>> gatewayToApis = ofNullable(dataModel.getGatewayToApisMap())
+                    .orElseGet(LinkedHashMap::new);
+
+            if (null != plan) {
+                // policies are resolved once, when the plan is made
+                gatewayToApis.forEach(plan::addApis);
+                return;
+            }
+
+            // Skip APIs unchanged on each gateway since the last run.
+            final Map<Api, String> hashes = new IdentityHashMap<>();
+            final Map<DeclarativeGateway, List<Api>> pending = filterUnchanged(gatewayToApis, hashes);
+
+            final Collection<DeclarativeGateway> gateways;
+            if (pending.equals(gatewayToApis)) {
+                gateways = dataModel.getGatewaysMap().values();
+            } else if (pending.isEmpty()) {
+                LOGGER.info("All APIs unchanged since the last run");
+                return;
+            } else {
+                gateways = pending.keySet();
+            }
+
             // Do gateway status checks: Tests whether gateways exist and advertise as up/available.
-            doGatewayStatusChecks(dataModel);
+            doGatewayStatusChecks(gateways);
             // Finally, publish.
-            publishAll(dataModel);
+            publishAll(pending, hashes);
         });
+
+        if (null != plan) {
+            plan.write(planOut);
+            LOGGER.info("Planned {} API publications to {} gateways", plan.getGatewayToApis().values().stream()
+                    .mapToInt(List::size).sum(), plan.getGatewayToApis().size());
+        }
+    }
+
+    /**
+     * Publish the APIs in a plan written by an earlier run, without loading any declarations or
+     * resolving policies. The APIs are published with as much parallelism as each gateway sustains.
+     *
+     * @param planFile the plan file
+     */
+    @Override
+    protected void applyPlanFile(Path planFile) {
+        final GatewayPlan plan = PlanFile.read(planFile, GatewayPlan.class, GatewayPlan.KIND);
+        final Map<DeclarativeGateway, List<Api>> gatewayToApis = plan.getGatewayToApis();
+
+        doGatewayStatusChecks(gatewayToApis.keySet());
+        new GatewayPublisher(this::getGatewayApiClient, Math.max(parallelism, PLAN_PARALLELISM))
+                .publish(gatewayToApis);
+        LOGGER.info("Applied plan file: {}", planFile);
+    }
+
+    /**
+     * @param gatewayToApis the APIs declared on each gateway
+     * @param hashes        populated with the content hash of each API
+     * @return the APIs that have changed on each gateway since the last run
+     */
+    private Map<DeclarativeGateway, List<Api>> filterUnchanged(Map<DeclarativeGateway, List<Api>> gatewayToApis,
+                                                               Map<Api, String> hashes) {
+        final ApplyState applyState = getApplyState();
+        if (!applyState.isEnabled()) {
+            return gatewayToApis;
+        }
+
+        final Map<DeclarativeGateway, List<Api>> pending = new LinkedHashMap<>();
+        int skipped = 0;
+
+        for (Map.Entry<DeclarativeGateway, List<Api>> entry : gatewayToApis.entrySet()) {
+            final String target = entry.getKey().getConfig().getEndpoint();
+            final List<Api> changed = entry.getValue().stream()
+                    .filter(api -> !applyState.isUnchanged(target, buildItem(api),
+                            hashes.computeIfAbsent(api, ApplyState::hash)))
+                    .collect(Collectors.toList());
+
+            skipped += entry.getValue().size() - changed.size();
+            if (!changed.isEmpty()) {
+                pending.put(entry.getKey(), changed);
+            }
+        }
+
+        if (skipped > 0) {
+            LOGGER.info("Skipping {} API publications unchanged since the last run", skipped);
+        }
+        return pending;
+    }
+
+    private static String buildItem(Api api) {
+        return api.getOrganizationId() + "/" + api.getApiId() + "/" + api.getVersion();
+    }
+
+    private void doGatewayStatusChecks(Collection<DeclarativeGateway> gateways) {
+        awaitGateways(gateways);
+
+        final Map<DeclarativeGateway, Exception> failures = ConcurrencyUtil.forEach(gateways, gateways.size(),
+                "status-check", this::isGatewayActive);
+
+        if (!failures.isEmpty()) {
+            failures.values().forEach(cause -> LOGGER.error(cause.getMessage()));
+            throw new CommandException(String.format("Status check failed on %d of %d gateways: %s",
+                    failures.size(), gateways.size(), failures.keySet().stream()
+                            .map(DeclarativeGateway::getName)
+                            .collect(Collectors.joining(", "))));
+        }
     }
 
-    private void doGatewayStatusChecks(GatewayApiDataModel dataModel) {
-        dataModel.getGatewaysMap().values().forEach(this::isGatewayActive);
+    /**
+     * Wait for all gateways to start, concurrently, up to the wait time.
+     *
+     * @param gateways the gateways
+     */
+    private void awaitGateways(Collection<DeclarativeGateway> gateways) {
+        if (getWaitTime() == 0) {
+            return;
+        }
+
+        final Map<String, BooleanSupplier> probes = new LinkedHashMap<>();
+        gateways.forEach(gateway -> {
+            final GatewayApi client = getGatewayApiClient(gateway);
+            probes.put(gateway.getConfig().getEndpoint(), () -> client.getSystemStatus().isUp());
+        });
+        ReadinessUtil.awaitReady(probes, getWaitTime());
     }
 
     private boolean isGatewayActive(DeclarativeGateway gateway) {
         LOGGER.debug("Checking Gateway {} status", gateway.getName());
-        GatewayApi client = buildGatewayApiClient(gateway.getConfig());
+        GatewayApi client = getGatewayApiClient(gateway);
         return statusCheck(client, gateway.getConfig().getEndpoint());
     }
 
-    private void publishAll(GatewayApiDataModel dataModel) {
-        for (Map.Entry<Api, List<DeclarativeGateway>> entry : dataModel.getApiToGatewaysMap().entrySet()) {
-            List<DeclarativeGateway> targetGateways = entry.getValue();
-            Api targetApi = entry.getKey();
-            targetGateways.forEach(gateway -> publishApi(targetApi, gateway));
-        }
+    private void publishAll(Map<DeclarativeGateway, List<Api>> gatewayToApis, Map<Api, String> hashes) {
+        // Remember, we're publishing to the gateways listed in the declaration, NOT from config.
+        final ApplyState applyState = getApplyState();
+        new GatewayPublisher(this::getGatewayApiClient, parallelism).publish(gatewayToApis, (gateway, api) ->
+                ofNullable(hashes.get(api)).ifPresent(hash ->
+                        applyState.record(gateway.getConfig().getEndpoint(), buildItem(api), hash)));
     }
 
-    private void publishApi(Api api, DeclarativeGateway gateway) {
-        GatewayConfig config = gateway.getConfig();
-        // Remember, we're publishing to the gateways listed in the declaration, NOT from config.
-        GatewayApi client = buildGatewayApiClient(config);
-        LOGGER.info("Publishing {} to {}", api, gateway.getConfig().getEndpoint());
-        // I don't like the way this conflates stateful and non-stateful
-        callAndCatch(() -> client.publishApi(api));
+    private GatewayApi getGatewayApiClient(DeclarativeGateway gateway) {
+        final GatewayConfig config = gateway.getConfig();
+        final ClientKey clientKey = new ClientKey(config.getEndpoint(), config.getUsername(), config.getPassword());
+        return clients.computeIfAbsent(clientKey, key -> buildGatewayApiClient(config));
     }
 
     private GatewayApi buildGatewayApiClient(GatewayConfig config) {
@@ -100,4 +245,60 @@ public class GatewayApplyCommand extends AbstractApplyCommand
                 config.getPassword(),
                 LogUtil.isLogDebug());
     }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    protected Path getPlanOut() {
+        return planOut;
+    }
+
+    public void setPlanOut(Path planOut) {
+        this.planOut = planOut;
+    }
+
+    @Override
+    protected Path getPlanIn() {
+        return planIn;
+    }
+
+    public void setPlanIn(Path planIn) {
+        this.planIn = planIn;
+    }
+
+    /**
+     * Identifies a client configuration.
+     */
+    private static final class ClientKey {
+        private final String endpoint;
+        private final String username;
+        private final String password;
+
+        private ClientKey(String endpoint, String username, String password) {
+            this.endpoint = endpoint;
+            this.username = username;
+            this.password = password;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final ClientKey that = (ClientKey) o;
+            return Objects.equals(endpoint, that.endpoint) &&
+                    Objects.equals(username, that.username) &&
+                    Objects.equals(password, that.password);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, username, password);
+        }
+    }
 }
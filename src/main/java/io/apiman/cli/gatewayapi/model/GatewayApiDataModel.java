@@ -26,8 +26,10 @@ import io.apiman.cli.command.declarative.model.DeclarativePolicy;
 import io.apiman.cli.command.gateway.model.Gateway;
 import io.apiman.cli.command.plugin.model.Plugin;
 import io.apiman.cli.exception.DeclarativeException;
+import io.apiman.cli.util.ConcurrencyUtil;
 import io.apiman.cli.util.MappingUtil;
 import io.apiman.cli.util.PolicyResolver;
+import io.apiman.common.plugin.PluginCoordinates;
 import io.apiman.gateway.engine.beans.Api;
 import io.apiman.gateway.engine.beans.Policy;
 import io.apiman.manager.api.beans.policies.PolicyDefinitionBean;
@@ -39,8 +41,12 @@ import java.util.AbstractMap;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -56,8 +62,12 @@ import static java.util.Optional.ofNullable;
  */
 public class GatewayApiDataModel {
     private static final Logger LOGGER = LogManager.getLogger(GatewayApiDataModel.class);
+    private static final int DEFAULT_RESOLVER_PARALLELISM = 4;
+
     private final PolicyResolver policyResolver;
     private final BaseDeclaration declaration;
+    private final int resolverParallelism;
+    private final Map<PluginPolicyRef, String> pluginPolicyImpls = new ConcurrentHashMap<>();
 
     private String orgId;
     private Map<String, DeclarativeGateway> gatewaysMap;
@@ -68,8 +78,20 @@ public class GatewayApiDataModel {
 
     public GatewayApiDataModel(BaseDeclaration declaration,
                                PolicyResolver policyResolver) {
+        this(declaration, policyResolver, DEFAULT_RESOLVER_PARALLELISM);
+    }
+
+    /**
+     * @param declaration         the declaration
+     * @param policyResolver      resolves policy implementations
+     * @param resolverParallelism the maximum number of plugin policies to resolve concurrently
+     */
+    public GatewayApiDataModel(BaseDeclaration declaration,
+                               PolicyResolver policyResolver,
+                               int resolverParallelism) {
         this.declaration = declaration;
         this.policyResolver = policyResolver;
+        this.resolverParallelism = resolverParallelism;
         buildDataModel();
     }
 
@@ -103,6 +125,8 @@ public class GatewayApiDataModel {
             orgId = org.getName();
             LOGGER.debug("Organization ID: {}", orgId);
 
+            resolvePluginPolicies(org.getApis());
+
             apiToGatewaysMap = buildApisToGatewayMap(declaration);
             LOGGER.debug("APIs to Gateway map: {}", apiToGatewaysMap);
 
@@ -144,6 +168,49 @@ public class GatewayApiDataModel {
         return pluginMap;
     }
 
+    /**
+     * Resolve each distinct plugin policy referenced by the APIs once, concurrently, so that building
+     * the policy chains is an in-memory lookup.
+     *
+     * @param apis the APIs
+     */
+    private void resolvePluginPolicies(List<DeclarativeApi> apis) {
+        final Set<PluginPolicyRef> refs = ofNullable(apis).orElse(emptyList()).stream()
+                .flatMap(api -> ofNullable(api.getPolicies()).orElse(emptyList()).stream())
+                .filter(DeclarativePolicy::isPlugin)
+                .map(this::buildPluginPolicyRef)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        LOGGER.debug("Resolving {} distinct plugin policies", refs.size());
+
+        final Map<PluginPolicyRef, Exception> failures = ConcurrencyUtil.forEach(refs, resolverParallelism,
+                "policy-resolver", ref -> {
+                    LOGGER.info("Resolving plugin: {}", ref.coordinates);
+                    try {
+                        final PolicyDefinitionBean policyDef = policyResolver.getPolicyDefinition(ref.coordinates, ref.policyId);
+                        pluginPolicyImpls.put(ref, policyDef.getPolicyImpl());
+                    } catch (InvalidPluginException e) {
+                        throw new DeclarativeException("Plugin could not be found: " + ref.coordinates, e);
+                    }
+                });
+
+        if (!failures.isEmpty()) {
+            failures.forEach((ref, cause) -> LOGGER.error("Unable to resolve policy from plugin {}: {}",
+                    ref.coordinates, cause.getMessage()));
+
+            final Exception cause = failures.values().iterator().next();
+            throw (cause instanceof DeclarativeException ? (DeclarativeException) cause :
+                    new DeclarativeException("Unable to resolve plugin policies", cause));
+        }
+    }
+
+    private PluginPolicyRef buildPluginPolicyRef(DeclarativePolicy declarativePolicy) {
+        final Plugin plugin = ofNullable(pluginMap.get(declarativePolicy.getPlugin()))
+                .orElseThrow(() -> new DeclarativeException("No such plugin exists: " + declarativePolicy.getPlugin()));
+
+        return new PluginPolicyRef(plugin.getCoordinates(), declarativePolicy.getName());
+    }
+
     // Build map of APIs to Gateway that they should be published on.
     private Map<Api, List<DeclarativeGateway>> buildApisToGatewayMap(BaseDeclaration declaration) {
         return ofNullable(declaration.getOrg().getApis())
@@ -193,29 +260,45 @@ public class GatewayApiDataModel {
                 .map(declarativePolicy -> {
                     Policy policy = new Policy();
                     policy.setPolicyImpl(determinePolicyImpl(declarativePolicy));
-                    policy.setPolicyJsonConfig(MappingUtil.safeWriteValueAsJson(declarativePolicy.getConfig()));
+                    policy.setPolicyJsonConfig(MappingUtil.safeWriteValueAsWireJson(declarativePolicy.getConfig()));
                     return policy;
                 })
                 .collect(Collectors.toList());
     }
 
     private String determinePolicyImpl(DeclarativePolicy declarativePolicy) {
-        PolicyDefinitionBean policyDef;
-
         if (declarativePolicy.isPlugin()) {
-            LOGGER.info("Resolving plugin: {}", declarativePolicy.getPlugin());
-            // Get plugin reference first
-            Plugin plugin = ofNullable(pluginMap.get(declarativePolicy.getPlugin()))
-                    .orElseThrow(() -> new DeclarativeException("No such plugin exists: " + declarativePolicy.getPlugin()));
-            try {
-                policyDef = policyResolver.getPolicyDefinition(plugin.getCoordinates(), declarativePolicy.getName());
-            } catch (InvalidPluginException e) {
-                throw new DeclarativeException("Plugin could not be found: " + plugin.getCoordinates(), e);
-            }
+            // resolved up front
+            return pluginPolicyImpls.get(buildPluginPolicyRef(declarativePolicy));
         } else {
-            policyDef = policyResolver.getInbuiltPolicy(declarativePolicy.getName());
             LOGGER.debug("Loading inbuilt policy: {}", declarativePolicy.getName());
+            return policyResolver.getInbuiltPolicy(declarativePolicy.getName()).getPolicyImpl();
+        }
+    }
+
+    /**
+     * A policy within a plugin.
+     */
+    private static final class PluginPolicyRef {
+        private final PluginCoordinates coordinates;
+        private final String policyId;
+
+        private PluginPolicyRef(PluginCoordinates coordinates, String policyId) {
+            this.coordinates = coordinates;
+            this.policyId = policyId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final PluginPolicyRef that = (PluginPolicyRef) o;
+            return Objects.equals(coordinates, that.coordinates) && Objects.equals(policyId, that.policyId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(coordinates, policyId);
         }
-        return policyDef.getPolicyImpl();
     }
 }
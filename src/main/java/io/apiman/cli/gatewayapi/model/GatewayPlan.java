@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.gatewayapi.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.apiman.cli.command.declarative.PlanFile;
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.gateway.engine.beans.Api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The APIs to publish to each gateway, with their policy implementations already resolved.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GatewayPlan extends PlanFile {
+    public static final String KIND = "gateway";
+
+    @JsonProperty
+    private List<Target> targets = new ArrayList<>();
+
+    private GatewayPlan() {
+    }
+
+    private GatewayPlan(String kind) {
+        super(kind);
+    }
+
+    /**
+     * @return a new, empty plan
+     */
+    public static GatewayPlan create() {
+        return new GatewayPlan(KIND);
+    }
+
+    /**
+     * @param gateway the gateway
+     * @param apis    the APIs to publish to the gateway, after any already planned for it
+     */
+    public void addApis(DeclarativeGateway gateway, List<Api> apis) {
+        final Target target = targets.stream()
+                .filter(existing -> existing.gateway.equals(gateway))
+                .findFirst()
+                .orElseGet(() -> {
+                    final Target created = new Target();
+                    created.gateway = gateway;
+                    targets.add(created);
+                    return created;
+                });
+
+        target.apis.addAll(apis);
+    }
+
+    /**
+     * @return the APIs to publish to each gateway, in the order they were planned
+     */
+    @JsonIgnore
+    public Map<DeclarativeGateway, List<Api>> getGatewayToApis() {
+        final Map<DeclarativeGateway, List<Api>> gatewayToApis = new LinkedHashMap<>();
+        targets.forEach(target -> gatewayToApis.put(target.gateway, target.apis));
+        return gatewayToApis;
+    }
+
+    /**
+     * A gateway, and the APIs to publish to it.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Target {
+        @JsonProperty
+        private DeclarativeGateway gateway;
+
+        @JsonProperty
+        private List<Api> apis = new ArrayList<>();
+    }
+}
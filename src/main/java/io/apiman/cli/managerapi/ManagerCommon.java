@@ -42,6 +42,14 @@ public class ManagerCommon {
 
     public ManagerCommon(ManagementApiService managementApiService) {
         this.managementApiService = managementApiService;
+        configureEndpoint();
+    }
+
+    /**
+     * Configure the management API service with the server options. Options are only known once the
+     * command line is parsed, so this must be called again before the service is used.
+     */
+    public void configureEndpoint() {
         managementApiService.configureEndpoint(serverAddress, serverUsername, serverPassword);
     }
 
@@ -84,5 +92,6 @@ public class ManagerCommon {
 
     public void setServerAddress(String serverAddress) {
         this.serverAddress = serverAddress;
+        configureEndpoint();
     }
 }
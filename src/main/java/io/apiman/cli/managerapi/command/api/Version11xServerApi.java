@@ -19,6 +19,7 @@ package io.apiman.cli.managerapi.command.api;
 import io.apiman.cli.command.api.model.Api;
 import io.apiman.cli.command.api.model.ApiPolicy;
 import io.apiman.cli.command.api.model.ApiVersion;
+import io.apiman.cli.command.api.model.ApiVersionState;
 import io.apiman.cli.command.api.model.ServiceConfig;
 import retrofit.client.Response;
 import retrofit.http.Body;
@@ -27,7 +28,8 @@ import retrofit.http.Header;
 import retrofit.http.POST;
 import retrofit.http.PUT;
 import retrofit.http.Path;
-import retrofit.mime.TypedString;
+import retrofit.http.Streaming;
+import retrofit.mime.TypedOutput;
 
 import java.util.List;
 
@@ -49,8 +51,11 @@ public interface Version11xServerApi {
     @GET("/organizations/{orgName}/services/{serviceName}")
     Api fetch(@Path("orgName") String orgName, @Path("serviceName") String serviceName);
 
+    @GET("/organizations/{orgName}/services/{serviceName}/versions")
+    List<Api> listVersions(@Path("orgName") String orgName, @Path("serviceName") String serviceName);
+
     @GET("/organizations/{orgName}/services/{serviceName}/versions/{version}")
-    Api fetchVersion(@Path("orgName") String orgName, @Path("serviceName") String serviceName, @Path("version") String version);
+    ApiVersionState fetchVersion(@Path("orgName") String orgName, @Path("serviceName") String serviceName, @Path("version") String version);
 
     @PUT("/organizations/{orgName}/services/{serviceName}/versions/{version}")
     Response configure(@Path("orgName") String orgName, @Path("serviceName") String serviceName,
@@ -58,7 +63,12 @@ public interface Version11xServerApi {
 
     @PUT("/organizations/{orgName}/services/{serviceName}/versions/{version}/definition")
     Response setDefinition(@Path("orgName") String orgName, @Path("serviceName") String serviceName,
-                           @Path("version") String version, @Header("Content-Type") String type, @Body TypedString content);
+                           @Path("version") String version, @Header("Content-Type") String type, @Body TypedOutput content);
+
+    @Streaming
+    @GET("/organizations/{orgName}/services/{serviceName}/versions/{version}/definition")
+    Response fetchDefinition(@Path("orgName") String orgName, @Path("serviceName") String serviceName,
+                             @Path("version") String version);
 
     @POST("/organizations/{orgName}/services/{serviceName}/versions/{version}/policies")
     Response addPolicy(@Path("orgName") String orgName, @Path("serviceName") String serviceName,
@@ -68,6 +78,10 @@ public interface Version11xServerApi {
     List<ApiPolicy> fetchPolicies(@Path("orgName") String orgName, @Path("serviceName") String serviceName,
                                   @Path("version") String version);
 
+    @GET("/organizations/{orgName}/services/{serviceName}/versions/{version}/policies/{policyId}")
+    ApiPolicy fetchPolicy(@Path("orgName") String orgName, @Path("serviceName") String serviceName,
+                          @Path("version") String version, @Path("policyId") Long policyId);
+
     @PUT("/organizations/{orgName}/services/{serviceName}/versions/{version}/policies/{policyId}")
     Response configurePolicy(@Path("orgName") String orgName, @Path("serviceName") String serviceName,
                              @Path("version") String version, @Path("policyId") Long policyId, @Body ApiPolicy policyConfig);
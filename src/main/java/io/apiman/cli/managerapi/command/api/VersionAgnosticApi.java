@@ -19,8 +19,9 @@ import io.apiman.cli.command.api.model.Api;
 import io.apiman.cli.command.api.model.ApiConfig;
 import io.apiman.cli.command.api.model.ApiPolicy;
 import io.apiman.cli.command.api.model.ApiVersion;
+import io.apiman.cli.command.api.model.ApiVersionState;
 import retrofit.client.Response;
-import retrofit.mime.TypedString;
+import retrofit.mime.TypedOutput;
 
 import java.util.List;
 
@@ -36,7 +37,9 @@ public interface VersionAgnosticApi {
 
     Api fetch(String orgName, String apiName);
 
-    Api fetchVersion(String orgName, String apiName, String version);
+    List<Api> listVersions(String orgName, String apiName);
+
+    ApiVersionState fetchVersion(String orgName, String apiName, String version);
 
     Response configure(String orgName, String apiName,
                        String version, ApiConfig config);
@@ -45,11 +48,16 @@ public interface VersionAgnosticApi {
                        String version, ApiPolicy policyConfig);
 
     Response setDefinition(String orgName, String apiName,
-                           String version, String definitionType,  TypedString definition);
+                           String version, String definitionType, TypedOutput definition);
+
+    Response fetchDefinition(String orgName, String apiName, String version);
 
     List<ApiPolicy> fetchPolicies(String orgName, String serviceName,
                                   String version);
 
+    ApiPolicy fetchPolicy(String orgName, String apiName,
+                          String apiVersion, Long policyId);
+
     Response configurePolicy(String orgName, String apiName,
                              String apiVersion, Long policyId, ApiPolicy policyConfig);
 }
@@ -20,17 +20,18 @@ import io.apiman.cli.command.api.model.Api;
 import io.apiman.cli.command.api.model.ApiConfig;
 import io.apiman.cli.command.api.model.ApiPolicy;
 import io.apiman.cli.command.api.model.ApiVersion;
+import io.apiman.cli.command.api.model.ApiVersionState;
 import io.apiman.cli.command.api.model.ServiceConfig;
 import io.apiman.cli.managerapi.command.api.Version11xServerApi;
 import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
 import io.apiman.cli.managerapi.management.factory.AbstractManagementApiFactory;
 import io.apiman.cli.managerapi.management.factory.ManagementApiFactory;
+import io.apiman.cli.util.MappingUtil;
 import retrofit.client.Response;
-import retrofit.mime.TypedString;
+import retrofit.mime.TypedOutput;
 
 import java.util.List;
 
-import static io.apiman.cli.util.MappingUtil.MODEL_MAPPER;
 
 /**
  * Provides legacy apiman 1.1.x support.
@@ -64,14 +65,19 @@ public class Version11XManagementApiFactoryImpl extends AbstractManagementApiFac
             }
 
             @Override
-            public Api fetchVersion(String orgName, String apiName, String version) {
+            public List<Api> listVersions(String orgName, String apiName) {
+                return delegate.listVersions(orgName, apiName);
+            }
+
+            @Override
+            public ApiVersionState fetchVersion(String orgName, String apiName, String version) {
                 return delegate.fetchVersion(orgName, apiName, version);
             }
 
             @Override
             public Response configure(String orgName, String apiName, String version, ApiConfig apiConfig) {
                 // convert to 1.1.x format
-                final ServiceConfig serviceConfig = MODEL_MAPPER.map(apiConfig, ServiceConfig.class);
+                final ServiceConfig serviceConfig = MappingUtil.map(apiConfig, ServiceConfig.class);
                 return delegate.configure(orgName, apiName, version, serviceConfig);
             }
 
@@ -81,15 +87,25 @@ public class Version11XManagementApiFactoryImpl extends AbstractManagementApiFac
             }
 
             @Override
-            public Response setDefinition(String orgName, String apiName, String version, String definitionType, TypedString definition) {
+            public Response setDefinition(String orgName, String apiName, String version, String definitionType, TypedOutput definition) {
                 return delegate.setDefinition(orgName, apiName, version, definitionType, definition);
             }
 
+            @Override
+            public Response fetchDefinition(String orgName, String apiName, String version) {
+                return delegate.fetchDefinition(orgName, apiName, version);
+            }
+
             @Override
             public List<ApiPolicy> fetchPolicies(String orgName, String serviceName, String version) {
                 return delegate.fetchPolicies(orgName, serviceName, version);
             }
 
+            @Override
+            public ApiPolicy fetchPolicy(String orgName, String apiName, String apiVersion, Long policyId) {
+                return delegate.fetchPolicy(orgName, apiName, apiVersion, policyId);
+            }
+
             @Override
             public Response configurePolicy(String orgName, String apiName, String apiVersion, Long policyId, ApiPolicy policyConfig) {
                 return delegate.configurePolicy(orgName, apiName, apiVersion, policyId, policyConfig);
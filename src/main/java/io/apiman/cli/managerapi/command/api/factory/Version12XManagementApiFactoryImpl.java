@@ -20,12 +20,13 @@ import io.apiman.cli.command.api.model.Api;
 import io.apiman.cli.command.api.model.ApiConfig;
 import io.apiman.cli.command.api.model.ApiPolicy;
 import io.apiman.cli.command.api.model.ApiVersion;
+import io.apiman.cli.command.api.model.ApiVersionState;
 import io.apiman.cli.managerapi.command.api.Version12xServerApi;
 import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
 import io.apiman.cli.managerapi.management.factory.AbstractManagementApiFactory;
 import io.apiman.cli.managerapi.management.factory.ManagementApiFactory;
 import retrofit.client.Response;
-import retrofit.mime.TypedString;
+import retrofit.mime.TypedOutput;
 
 import java.util.List;
 
@@ -61,7 +62,12 @@ public class Version12XManagementApiFactoryImpl extends AbstractManagementApiFac
             }
 
             @Override
-            public Api fetchVersion(String orgName, String apiName, String version) {
+            public List<Api> listVersions(String orgName, String apiName) {
+                return delegate.listVersions(orgName, apiName);
+            }
+
+            @Override
+            public ApiVersionState fetchVersion(String orgName, String apiName, String version) {
                 return delegate.fetchVersion(orgName, apiName, version);
             }
 
@@ -76,15 +82,25 @@ public class Version12XManagementApiFactoryImpl extends AbstractManagementApiFac
             }
 
             @Override
-            public Response setDefinition(String orgName, String apiName, String version, String definitionType, TypedString definition) {
+            public Response setDefinition(String orgName, String apiName, String version, String definitionType, TypedOutput definition) {
                 return  delegate.setDefinition(orgName, apiName, version, definitionType, definition);
             }
 
+            @Override
+            public Response fetchDefinition(String orgName, String apiName, String version) {
+                return delegate.fetchDefinition(orgName, apiName, version);
+            }
+
             @Override
             public List<ApiPolicy> fetchPolicies(String orgName, String serviceName, String version) {
                 return delegate.fetchPolicies(orgName, serviceName, version);
             }
 
+            @Override
+            public ApiPolicy fetchPolicy(String orgName, String apiName, String apiVersion, Long policyId) {
+                return delegate.fetchPolicy(orgName, apiName, apiVersion, policyId);
+            }
+
             @Override
             public Response configurePolicy(String orgName, String apiName, String apiVersion, Long policyId, ApiPolicy policyConfig) {
                 return delegate.configurePolicy(orgName, apiName, apiVersion, policyId, policyConfig);
@@ -44,4 +44,9 @@ public abstract class AbstractManagerModelCommand<M, A> extends AbstractFinalCom
         managerConfig = new ManagerCommon(managementApiService);
     }
 
+    @Override
+    protected void configureServices() {
+        managerConfig.configureEndpoint();
+    }
+
 }
@@ -59,7 +59,7 @@ public abstract class AbstractGatewayCreateCommand extends ModelCreateCommand<Ga
     protected Gateway buildModelInstance() throws CommandException {
         final String config;
         try {
-            config = MappingUtil.JSON_MAPPER.writeValueAsString(
+            config = MappingUtil.WIRE_MAPPER.writeValueAsString(
                     new GatewayConfig(endpoint,
                             username,
                             password));
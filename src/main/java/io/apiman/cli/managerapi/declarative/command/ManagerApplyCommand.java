@@ -19,19 +19,54 @@ package io.apiman.cli.managerapi.declarative.command;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.beust.jcommander.ParametersDelegate;
+import com.google.common.collect.Iterators;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import io.apiman.cli.command.declarative.ApplyState;
+import io.apiman.cli.command.declarative.DeclarationReader;
+import io.apiman.cli.command.declarative.PlanFile;
 import io.apiman.cli.command.declarative.command.AbstractApplyCommand;
 import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.command.gateway.model.GatewayConfig;
+import io.apiman.cli.command.plugin.model.Plugin;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.exception.DeclarativeException;
+import io.apiman.cli.gatewayapi.GatewayApi;
+import io.apiman.cli.gatewayapi.command.factory.GatewayApiFactory;
 import io.apiman.cli.managerapi.ManagerCommon;
 import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+import io.apiman.cli.managerapi.declarative.plan.ManagerPlan;
 import io.apiman.cli.managerapi.service.DeclarativeService;
+import io.apiman.cli.managerapi.service.ImportService;
 import io.apiman.cli.managerapi.service.ManagementApiService;
 import io.apiman.cli.managerapi.service.PluginService;
+import io.apiman.cli.util.LogUtil;
+import io.apiman.cli.util.ReadinessUtil;
+import io.apiman.cli.util.TaskGraph;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.inject.Inject;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
 
 import static java.util.Optional.ofNullable;
 
@@ -42,47 +77,346 @@ public class ManagerApplyCommand extends AbstractApplyCommand {
     @Parameter(names = {"--serverVersion", "-sv"}, description = "Management API server version")
     private ManagementApiVersion serverVersion = ManagementApiVersion.DEFAULT_VERSION;
 
+    @Parameter(names = "--parallelism", description = "Maximum number of APIs to apply concurrently")
+    private int parallelism = 1;
+
+    @Parameter(names = "--queueSize", description = "Maximum number of APIs read ahead of those being applied")
+    private int queueSize = 100;
+
+    @Parameter(names = "--bootstrap",
+            description = "Create all organisations and APIs using a single import (new environments only)")
+    private boolean bootstrap;
+
+    @Parameter(names = "--plan-out", description = "Write the changes required to a plan file, instead of applying them")
+    private Path planOut;
+
+    @Parameter(names = "--plan-in", description = "Apply the changes in a plan file, instead of the declarations")
+    private Path planIn;
+
     @ParametersDelegate
     private final ManagerCommon managerCommon;
+    private final ManagementApiService managementApiService;
     private final DeclarativeService declarativeService;
     private final PluginService pluginService;
+    private final ImportService importService;
+    private final GatewayApiFactory gatewayApiFactory;
 
     @Inject
     public ManagerApplyCommand(ManagementApiService managementApiService,
                         DeclarativeService declarativeService,
-                               PluginService pluginService) {
-        super(managementApiService);
+                               PluginService pluginService,
+                               ImportService importService,
+                               GatewayApiFactory gatewayApiFactory) {
+        this.managementApiService = managementApiService;
         this.declarativeService = declarativeService;
         this.pluginService = pluginService;
+        this.importService = importService;
+        this.gatewayApiFactory = gatewayApiFactory;
         this.managerCommon = new ManagerCommon(managementApiService);
     }
 
+    @Override
+    protected void configureServices() {
+        managerCommon.configureEndpoint();
+    }
+
+    /**
+     * Only the gateways, plugins and organisations of the declaration files are loaded up front. The APIs
+     * of each organisation are read from its declaration file as they are applied, so at most
+     * {@link #queueSize} APIs per organisation are held in memory.
+     *
+     * @param files the declaration files
+     */
+    @Override
+    protected void applyDeclarationFiles(List<Path> files) {
+        if (bootstrap) {
+            if (null != planOut) {
+                throw new CommandException("--bootstrap cannot be combined with --plan-out");
+            }
+            // the import document is written from the complete declarations
+            super.applyDeclarationFiles(files);
+            return;
+        }
+
+        // only declarations that can be streamed are opened again to read their APIs
+        final Map<Path, DeclarationReader> loadedReaders = new ConcurrentHashMap<>();
+        final List<BaseDeclaration> declarations = loadDeclarationHeaders(files, loadedReaders);
+        awaitServers(declarations);
+        applyDeclarations(declarations, i -> ofNullable(loadedReaders.remove(files.get(i)))
+                .orElseGet(() -> openDeclaration(files.get(i))));
+    }
+
     /**
-     * Apply the given Declaration.
+     * Apply the given Declarations.
      *
      * @param declarations the Declarations to apply.
      */
     @Override
     protected void applyDeclarations(List<BaseDeclaration> declarations) {
-        declarations.forEach(declaration -> {
-            LOGGER.debug("Applying declaration");
+        awaitServers(declarations);
+        if (bootstrap) {
+            bootstrapDeclarations(declarations);
+            return;
+        }
+        applyDeclarations(declarations, i -> DeclarationReader.of(declarations.get(i)));
+    }
 
-            // add gateways
-            ofNullable(declaration.getSystem().getGateways()).ifPresent(declarativeService::applyGateways);
+    /**
+     * The gateways, plugins, organisations and APIs of all the declarations form a graph of tasks,
+     * in which each task waits only for those it depends on, so independent tasks run concurrently.
+     * <p>
+     * If {@link #planOut} is set, the tasks add the changes required to a plan, which is written to
+     * the plan file, instead of applying them.
+     *
+     * @param declarations the Declarations to apply.
+     * @param apiReaders   opens a reader of the APIs of the Declaration with the given index
+     */
+    private void applyDeclarations(List<BaseDeclaration> declarations, IntFunction<DeclarationReader> apiReaders) {
+        final TaskGraph graph = new TaskGraph();
+        final ManagerPlan plan = (null == planOut) ? null
+                : new ManagerPlan(managerCommon.getManagementApiEndpoint(), serverVersion);
+
+        // declarations may repeat gateways and plugins, so each declaration's are applied after the last
+        TaskGraph.Task gateways = null;
+        TaskGraph.Task plugins = null;
+
+        // declarations for the same organisation are applied in order
+        final Map<String, TaskGraph.Task> lastOrgTasks = new HashMap<>();
+
+        for (int i = 0; i < declarations.size(); i++) {
+            final BaseDeclaration declaration = declarations.get(i);
+            final String label = "declaration " + (i + 1);
+
+            final List<DeclarativeGateway> declaredGateways = declaration.getSystem().getGateways();
+            if (null != declaredGateways) {
+                gateways = graph.add(label + " gateways", (null == plan)
+                        ? () -> declarativeService.applyGateways(declaredGateways)
+                        : () -> declarativeService.planGateways(declaredGateways, plan), gateways);
+            }
+
+            final List<Plugin> declaredPlugins = declaration.getSystem().getPlugins();
+            if (null != declaredPlugins) {
+                plugins = graph.add(label + " plugins", (null == plan)
+                        ? () -> pluginService.addPlugins(declaredPlugins)
+                        : () -> plan.addPlugins(pluginService.findMissingPlugins(declaredPlugins)), plugins);
+            }
+
+            final DeclarativeOrg org = declaration.getOrg();
+            if (null != org) {
+                TaskGraph.Task orgTask = graph.add(label + " org " + org.getName(), (null == plan)
+                        ? () -> declarativeService.applyOrg(org)
+                        : () -> declarativeService.planOrg(org, plan), lastOrgTasks.get(org.getName()));
+
+                // APIs refer to gateways and plugin policies
+                final int index = i;
+                orgTask = graph.add(label + " APIs", () -> {
+                    try (DeclarationReader apis = apiReaders.apply(index)) {
+                        if (null == plan) {
+                            applyApis(apis, org.getName());
+                        } else {
+                            declarativeService.planApis(serverVersion, apis, org.getName(), parallelism,
+                                    queueSize, plan);
+                        }
+                    }
+                }, orgTask, gateways, plugins);
+                lastOrgTasks.put(org.getName(), orgTask);
+            }
+        }
+
+        LOGGER.debug("Applying {} declarations as {} tasks", declarations.size(), graph.getTasks().size());
+        // tasks mostly wait on the server, so rather than the core count, the pool allows the tasks of
+        // every organisation, and of the gateways and plugins, to run at once
+        graph.execute(lastOrgTasks.size() + 2, "apply");
+
+        final List<TaskGraph.Task> criticalPath = graph.getCriticalPath();
+        LOGGER.info("Critical path ({}ms): {}", criticalPath.stream().mapToLong(TaskGraph.Task::getDuration).sum(),
+                criticalPath.stream()
+                        .map(task -> task.getName() + " (" + task.getDuration() + "ms)")
+                        .collect(Collectors.joining(" -> ")));
+
+        final List<TaskGraph.Task> failures = graph.getFailures();
+        if (!failures.isEmpty()) {
+            failures.forEach(task -> LOGGER.error("Failed to apply {}", task.getName(), task.getFailure()));
+            graph.getSkipped().forEach(task -> LOGGER.warn("Skipped {}, as a task it depends on failed", task.getName()));
+
+            throw new DeclarativeException(String.format("Failed to apply %d of %d tasks (%d skipped): %s",
+                    failures.size(), graph.getTasks().size(), graph.getSkipped().size(), failures.stream()
+                            .map(TaskGraph.Task::getName)
+                            .collect(Collectors.joining(", "))),
+                    failures.get(0).getFailure());
+        }
+
+        if (null == plan) {
+            LOGGER.info("Applied {} declarations", declarations.size());
+        } else {
+            plan.write(planOut);
+            LOGGER.info("Planned changes to {} gateways, {} plugins, {} orgs and {} APIs from {} declarations",
+                    plan.getGateways().size(), plan.getPlugins().size(), plan.getOrgs().size(),
+                    plan.getApis().size(), declarations.size());
+        }
+    }
+
+    /**
+     * Apply a plan written by an earlier run, without loading any declarations. As the plan holds
+     * only the changes required, they are applied with as much parallelism as the server sustains.
+     *
+     * @param planFile the plan file
+     */
+    @Override
+    protected void applyPlanFile(Path planFile) {
+        if (bootstrap) {
+            throw new CommandException("--bootstrap cannot be combined with --plan-in");
+        }
+
+        final ManagerPlan plan = PlanFile.read(planFile, ManagerPlan.class, ManagerPlan.KIND);
+        final String endpoint = managerCommon.getManagementApiEndpoint();
+        if (!endpoint.equals(plan.getEndpoint())) {
+            throw new CommandException(String.format("Plan file %s was made for server %s, not %s",
+                    planFile, plan.getEndpoint(), endpoint));
+        }
+
+        // the plan holds the gateway configurations to create, not the endpoints they must be reached at
+        awaitServers(Collections.emptyList());
+
+        declarativeService.applyPlan(plan, Math.max(parallelism, PLAN_PARALLELISM));
+        LOGGER.info("Applied plan file: {}", planFile);
+    }
+
+    /**
+     * Wait for the manager and, unless only planning, the gateways declared to start, concurrently,
+     * up to the wait time. The manager publishes APIs to the gateways, so both must be up to apply them.
+     * Gateways declared by name only, or already present on the manager, are not awaited.
+     *
+     * @param declarations the Declarations, whose gateways are awaited
+     */
+    private void awaitServers(List<BaseDeclaration> declarations) {
+        if (getWaitTime() == 0) {
+            return;
+        }
+
+        final Map<String, BooleanSupplier> probes = new LinkedHashMap<>();
+        managementApiService.addReadinessProbe(probes);
+
+        if (null == planOut) {
+            declarations.stream()
+                    .map(declaration -> declaration.getSystem().getGateways())
+                    .filter(gateways -> null != gateways)
+                    .flatMap(List::stream)
+                    .filter(gateway -> null != gateway.getConfig())
+                    .forEach(gateway -> {
+                        // a gateway already present on the manager need not be reachable from here
+                        final GatewayApi client = buildGatewayApiClient(gateway.getConfig());
+                        probes.merge(gateway.getConfig().getEndpoint(), () ->
+                                        declarativeService.isGatewayPresent(gateway.getName())
+                                                || client.getSystemStatus().isUp(),
+                                (first, second) -> () -> first.getAsBoolean() && second.getAsBoolean());
+                    });
+        }
+
+        ReadinessUtil.awaitReady(probes, getWaitTime());
+    }
+
+    private GatewayApi buildGatewayApiClient(GatewayConfig config) {
+        return gatewayApiFactory.build(config.getEndpoint(),
+                config.getUsername(),
+                config.getPassword(),
+                LogUtil.isLogDebug());
+    }
+
+    /**
+     * Apply the gateways and plugins of the given Declarations, then create their organisations and APIs
+     * using a single import, instead of planning and applying each API.
+     *
+     * @param declarations the Declarations to apply.
+     */
+    private void bootstrapDeclarations(List<BaseDeclaration> declarations) {
+        final List<DeclarativeOrg> orgs = new ArrayList<>();
 
-            // add plugins
+        declarations.forEach(declaration -> {
+            ofNullable(declaration.getSystem().getGateways()).ifPresent(declarativeService::applyGateways);
             ofNullable(declaration.getSystem().getPlugins()).ifPresent(pluginService::addPlugins);
+            ofNullable(declaration.getOrg()).ifPresent(orgs::add);
+        });
+
+        importService.importOrgs(serverVersion, orgs, managerCommon.getManagementApiUsername(), parallelism);
+
+        // subsequent runs with the same state file only apply changes
+        final ApplyState applyState = getApplyState();
+        if (applyState.isEnabled()) {
+            final String target = serverVersion + ":" + managerCommon.getManagementApiEndpoint();
+            orgs.stream()
+                    .filter(org -> null != org.getApis())
+                    .forEach(org -> org.getApis().forEach(api -> ofNullable(hashApi(api, org.getName()))
+                            .ifPresent(hash -> applyState.record(target, buildItem(api, org.getName()), hash))));
+        }
+
+        LOGGER.info("Bootstrapped {} declarations", declarations.size());
+    }
+
+    /**
+     * Apply the APIs that have changed since the last run, recording each one applied successfully.
+     *
+     * @param apis    the declared APIs, read as they are applied
+     * @param orgName the name of the organisation
+     */
+    private void applyApis(Iterator<DeclarativeApi> apis, String orgName) {
+        final ApplyState applyState = getApplyState();
+        if (!applyState.isEnabled()) {
+            declarativeService.applyApis(serverVersion, apis, orgName, parallelism, queueSize, api -> {});
+            return;
+        }
 
-            // add org and APIs
-            ofNullable(declaration.getOrg()).ifPresent(org -> {
-                declarativeService.applyOrg(org);
+        final String target = serverVersion + ":" + managerCommon.getManagementApiEndpoint();
 
-                ofNullable(org.getApis()).ifPresent(apis ->
-                        declarativeService.applyApis(serverVersion, apis, org.getName()));
-            });
+        // APIs are distinguished by identity, as equal declarations may be repeated
+        final Map<DeclarativeApi, String> hashes = Collections.synchronizedMap(new IdentityHashMap<>());
+        final AtomicInteger skipped = new AtomicInteger();
 
-            LOGGER.info("Applied declaration");
+        final Iterator<DeclarativeApi> changed = Iterators.filter(apis, api -> {
+            final String hash = hashApi(api, orgName);
+            if (null == hash) {
+                return true;
+            } else if (applyState.isUnchanged(target, buildItem(api, orgName), hash)) {
+                skipped.incrementAndGet();
+                return false;
+            }
+            hashes.put(api, hash);
+            return true;
         });
+
+        try {
+            declarativeService.applyApis(serverVersion, changed, orgName, parallelism, queueSize, api ->
+                    ofNullable(hashes.remove(api)).ifPresent(hash -> applyState.record(target, buildItem(api, orgName), hash)));
+        } finally {
+            if (skipped.get() > 0) {
+                LOGGER.info("Skipped {} APIs unchanged since the last run", skipped.get());
+            }
+        }
+    }
+
+    /**
+     * The definition file is streamed to hash it, rather than read into memory, as the APIs are hashed
+     * as they are read.
+     *
+     * @return the content hash of the API, including its definition file, or {@code null} if the
+     * definition file cannot be read, in which case the API is always applied
+     */
+    private static String hashApi(DeclarativeApi api, String orgName) {
+        final String definitionFile = ofNullable(api.getDefinition()).map(definition -> definition.getFile()).orElse(null);
+        if (null == definitionFile) {
+            return ApplyState.hash(orgName, api);
+        }
+        try {
+            return ApplyState.hash(orgName, api,
+                    Files.asByteSource(new File(definitionFile)).hash(Hashing.sha256()).asBytes());
+        } catch (IOException e) {
+            LOGGER.debug("Unable to hash definition file: {}", definitionFile, e);
+            return null;
+        }
+    }
+
+    private static String buildItem(DeclarativeApi api, String orgName) {
+        return orgName + "/" + api.getName() + "/" + ofNullable(api.getVersion()).orElse(api.getInitialVersion());
     }
 
     public void setServerAddress(String serverAddress) {
@@ -92,4 +426,34 @@ public class ManagerApplyCommand extends AbstractApplyCommand {
     public void setServerVersion(ManagementApiVersion serverVersion) {
         this.serverVersion = serverVersion;
     }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setBootstrap(boolean bootstrap) {
+        this.bootstrap = bootstrap;
+    }
+
+    @Override
+    protected Path getPlanOut() {
+        return planOut;
+    }
+
+    public void setPlanOut(Path planOut) {
+        this.planOut = planOut;
+    }
+
+    @Override
+    protected Path getPlanIn() {
+        return planIn;
+    }
+
+    public void setPlanIn(Path planIn) {
+        this.planIn = planIn;
+    }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.declarative.importer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.apiman.cli.command.api.model.ApiConfig;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.command.declarative.model.DeclarativePolicy;
+import io.apiman.cli.managerapi.service.PlanServiceImpl;
+import io.apiman.cli.util.MappingUtil;
+import org.apache.commons.lang3.StringUtils;
+import retrofit.mime.TypedOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * The organisations and APIs of a declaration, in the format accepted by the system import API of
+ * the Management Server. The document is written as it is sent, rather than built in memory.
+ * <p>
+ * Versions are imported in the 'Ready' state if their configuration is complete, so they can be
+ * published once their definitions are set.
+ */
+public class ImportDocument implements TypedOutput {
+    public static final String STATUS_CREATED = "Created";
+    public static final String STATUS_READY = "Ready";
+
+    private static final String APIMAN_VERSION = "1.3.1.Final";
+    private static final String ROLE_ORGANIZATION_OWNER = "OrganizationOwner";
+    private static final String POLICY_TYPE_API = "Api";
+    private static final String DEFINITION_TYPE_NONE = "None";
+
+    /**
+     * Declarations for the same organisation are combined.
+     */
+    private final Map<String, List<DeclarativeOrg>> orgs = new LinkedHashMap<>();
+    private final String username;
+    private final long timestamp;
+
+    /**
+     * IDs are unique within the document, and are reassigned by the server.
+     */
+    private long lastVersionId;
+    private long lastPolicyId;
+
+    /**
+     * @param orgs     the organisations to import, with their APIs
+     * @param username the user recorded as the creator, and owner, of the organisations
+     */
+    public ImportDocument(List<DeclarativeOrg> orgs, String username) {
+        orgs.forEach(org -> this.orgs.computeIfAbsent(org.getName(), name -> new ArrayList<>()).add(org));
+        this.username = username;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * @param apiConfig the configuration of the API
+     * @return <code>true</code> if an API with the configuration can be published, otherwise <code>false</code>
+     */
+    public static boolean isReady(ApiConfig apiConfig) {
+        return StringUtils.isNotEmpty(apiConfig.getEndpoint())
+                && StringUtils.isNotEmpty(apiConfig.getEndpointType())
+                && null != apiConfig.getGateways() && !apiConfig.getGateways().isEmpty()
+                // declarations do not include plans, so only public APIs can be published
+                && apiConfig.isPublicApi();
+    }
+
+    @Override
+    public String fileName() {
+        return null;
+    }
+
+    @Override
+    public String mimeType() {
+        return "application/json; charset=UTF-8";
+    }
+
+    /**
+     * @return -1, as the length is not known until the document is written
+     */
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        final JsonGenerator generator = MappingUtil.WIRE_MAPPER.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        generator.writeStartObject();
+
+        generator.writeObjectFieldStart("Metadata");
+        generator.writeNumberField("exportedOn", timestamp);
+        generator.writeStringField("apimanVersion", APIMAN_VERSION);
+        generator.writeEndObject();
+
+        // gateways and plugins are applied before the import
+        for (String section : new String[]{"Users", "Gateways", "Plugins", "Roles", "PolicyDefinitions"}) {
+            generator.writeArrayFieldStart(section);
+            generator.writeEndArray();
+        }
+
+        generator.writeArrayFieldStart("Orgs");
+        lastVersionId = 0;
+        lastPolicyId = 0;
+        for (Map.Entry<String, List<DeclarativeOrg>> org : orgs.entrySet()) {
+            writeOrg(generator, org.getKey(), org.getValue());
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private void writeOrg(JsonGenerator generator, String orgName, List<DeclarativeOrg> declarations)
+            throws IOException {
+
+        generator.writeStartObject();
+
+        generator.writeObjectFieldStart("OrganizationBean");
+        generator.writeStringField("id", orgName);
+        generator.writeStringField("name", orgName);
+        writeOptionalField(generator, "description", declarations.stream()
+                .map(DeclarativeOrg::getDescription)
+                .filter(StringUtils::isNotEmpty)
+                .findFirst()
+                .orElse(null));
+        writeAudit(generator);
+        generator.writeEndObject();
+
+        generator.writeArrayFieldStart("Memberships");
+        generator.writeStartObject();
+        generator.writeStringField("userId", username);
+        generator.writeStringField("roleId", ROLE_ORGANIZATION_OWNER);
+        generator.writeStringField("organizationId", orgName);
+        generator.writeNumberField("createdOn", timestamp);
+        generator.writeEndObject();
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("Plans");
+        generator.writeEndArray();
+
+        // versions of the same API are written together
+        final Map<String, List<DeclarativeApi>> apis = new LinkedHashMap<>();
+        declarations.stream()
+                .filter(declaration -> null != declaration.getApis())
+                .flatMap(declaration -> declaration.getApis().stream())
+                .forEach(api -> apis.computeIfAbsent(api.getName(), name -> new ArrayList<>()).add(api));
+
+        generator.writeArrayFieldStart("Apis");
+        for (List<DeclarativeApi> versions : apis.values()) {
+            writeApi(generator, orgName, versions);
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("Clients");
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+    }
+
+    private void writeApi(JsonGenerator generator, String orgName, List<DeclarativeApi> versions)
+            throws IOException {
+
+        final DeclarativeApi first = versions.get(0);
+
+        generator.writeStartObject();
+
+        generator.writeObjectFieldStart("ApiBean");
+        generator.writeStringField("id", first.getName());
+        generator.writeStringField("name", first.getName());
+        writeOptionalField(generator, "description", first.getDescription());
+        generator.writeStringField("createdBy", username);
+        generator.writeNumberField("createdOn", timestamp);
+        generator.writeEndObject();
+
+        generator.writeArrayFieldStart("Versions");
+        for (DeclarativeApi declarativeApi : versions) {
+            generator.writeStartObject();
+            writeVersion(generator, declarativeApi);
+            writePolicies(generator, orgName, declarativeApi);
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+    }
+
+    private void writeVersion(JsonGenerator generator, DeclarativeApi declarativeApi) throws IOException {
+        final ApiConfig apiConfig = PlanServiceImpl.buildApiConfig(declarativeApi);
+
+        // the endpoint, endpoint type and properties, visibility and gateways, as sent to configure an API
+        final ObjectNode version = MappingUtil.WIRE_MAPPER.valueToTree(apiConfig);
+        version.put("id", ++lastVersionId);
+        version.put("version", determineVersion(declarativeApi));
+        version.put("status", isReady(apiConfig) ? STATUS_READY : STATUS_CREATED);
+        version.put("definitionType", DEFINITION_TYPE_NONE);
+        version.putArray("plans");
+        version.put("createdBy", username);
+        version.put("createdOn", timestamp);
+        version.put("modifiedBy", username);
+        version.put("modifiedOn", timestamp);
+
+        generator.writeFieldName("ApiVersionBean");
+        generator.writeTree(version);
+    }
+
+    private void writePolicies(JsonGenerator generator, String orgName, DeclarativeApi declarativeApi)
+            throws IOException {
+
+        generator.writeArrayFieldStart("Policies");
+
+        final List<DeclarativePolicy> policies = ofNullable(declarativeApi.getPolicies()).orElseGet(ArrayList::new);
+        for (int i = 0; i < policies.size(); i++) {
+            final DeclarativePolicy policy = policies.get(i);
+
+            generator.writeStartObject();
+            generator.writeNumberField("id", ++lastPolicyId);
+            generator.writeStringField("type", POLICY_TYPE_API);
+            generator.writeStringField("organizationId", orgName);
+            generator.writeStringField("entityId", declarativeApi.getName());
+            generator.writeStringField("entityVersion", determineVersion(declarativeApi));
+            generator.writeStringField("name", policy.getName());
+            generator.writeStringField("configuration", MappingUtil.safeWriteValueAsWireJson(policy.getConfig()));
+            generator.writeNumberField("orderIndex", i);
+            writeAudit(generator);
+
+            generator.writeObjectFieldStart("definition");
+            generator.writeStringField("id", policy.getName());
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        }
+
+        generator.writeEndArray();
+    }
+
+    private void writeAudit(JsonGenerator generator) throws IOException {
+        generator.writeStringField("createdBy", username);
+        generator.writeNumberField("createdOn", timestamp);
+        generator.writeStringField("modifiedBy", username);
+        generator.writeNumberField("modifiedOn", timestamp);
+    }
+
+    private static void writeOptionalField(JsonGenerator generator, String name, String value) throws IOException {
+        if (null != value) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    /**
+     * @param declarativeApi the API
+     * @return the version of the API being imported
+     */
+    public static String determineVersion(DeclarativeApi declarativeApi) {
+        return ofNullable(declarativeApi.getVersion()).orElse(declarativeApi.getInitialVersion());
+    }
+}
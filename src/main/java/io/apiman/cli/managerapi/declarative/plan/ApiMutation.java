@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.declarative.plan;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import io.apiman.cli.command.api.model.Api;
+import io.apiman.cli.command.api.model.ApiConfig;
+import io.apiman.cli.command.api.model.ApiPolicy;
+import io.apiman.cli.exception.DeclarativeException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * A single change to be made to an API version on the server.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiMutation {
+    public enum Type {
+        CREATE_API,
+        CREATE_VERSION,
+        CONFIGURE,
+        SET_DEFINITION,
+        ADD_POLICY,
+        CONFIGURE_POLICY,
+        PUBLISH
+    }
+
+    @JsonProperty
+    private Type type;
+
+    @JsonProperty
+    private Api api;
+
+    @JsonProperty
+    private ApiConfig config;
+
+    @JsonProperty
+    private String definitionType;
+
+    @JsonProperty
+    private String definition;
+
+    @JsonProperty
+    private String definitionFile;
+
+    /**
+     * The SHA-256 hash of the definition file when the plan was made.
+     */
+    @JsonProperty
+    private String definitionHash;
+
+    @JsonProperty
+    private String policyName;
+
+    @JsonProperty
+    private Long policyId;
+
+    @JsonProperty
+    private ApiPolicy policy;
+
+    public ApiMutation() {
+    }
+
+    private ApiMutation(Type type) {
+        this.type = type;
+    }
+
+    public static ApiMutation createApi(Api api) {
+        final ApiMutation mutation = new ApiMutation(Type.CREATE_API);
+        mutation.api = api;
+        return mutation;
+    }
+
+    public static ApiMutation createVersion() {
+        return new ApiMutation(Type.CREATE_VERSION);
+    }
+
+    public static ApiMutation configure(ApiConfig config) {
+        final ApiMutation mutation = new ApiMutation(Type.CONFIGURE);
+        mutation.config = config;
+        return mutation;
+    }
+
+    public static ApiMutation setDefinition(String definitionType, String definition) {
+        final ApiMutation mutation = new ApiMutation(Type.SET_DEFINITION);
+        mutation.definitionType = definitionType;
+        mutation.definition = definition;
+        return mutation;
+    }
+
+    /**
+     * @param definitionType the content type of the definition
+     * @param definitionFile the path of the file containing the definition, which is streamed when applied
+     */
+    public static ApiMutation setDefinitionFile(String definitionType, String definitionFile) {
+        final ApiMutation mutation = new ApiMutation(Type.SET_DEFINITION);
+        mutation.definitionType = definitionType;
+        // a plan may be applied from another working directory
+        mutation.definitionFile = Paths.get(definitionFile).toAbsolutePath().toString();
+        return mutation;
+    }
+
+    public static ApiMutation addPolicy(String policyName, ApiPolicy policy) {
+        final ApiMutation mutation = new ApiMutation(Type.ADD_POLICY);
+        mutation.policyName = policyName;
+        mutation.policy = policy;
+        return mutation;
+    }
+
+    public static ApiMutation configurePolicy(String policyName, Long policyId, ApiPolicy policy) {
+        final ApiMutation mutation = new ApiMutation(Type.CONFIGURE_POLICY);
+        mutation.policyName = policyName;
+        mutation.policyId = policyId;
+        mutation.policy = policy;
+        return mutation;
+    }
+
+    public static ApiMutation publish() {
+        return new ApiMutation(Type.PUBLISH);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Api getApi() {
+        return api;
+    }
+
+    public ApiConfig getConfig() {
+        return config;
+    }
+
+    public String getDefinitionType() {
+        return definitionType;
+    }
+
+    public String getDefinition() {
+        return definition;
+    }
+
+    public String getDefinitionFile() {
+        return definitionFile;
+    }
+
+    public String getDefinitionHash() {
+        return definitionHash;
+    }
+
+    /**
+     * Record the hash of the definition file, if any, so a plan applied later can check that the
+     * file is the one planned.
+     */
+    public void hashDefinitionFile() {
+        if (null != definitionFile) {
+            definitionHash = hashFile(definitionFile);
+        }
+    }
+
+    /**
+     * @throws DeclarativeException if the definition file has changed since its hash was recorded
+     */
+    public void checkDefinitionFile() {
+        if (null != definitionFile && !hashFile(definitionFile).equals(definitionHash)) {
+            throw new DeclarativeException(String.format(
+                    "API definition file has changed since the plan was made: %s", definitionFile));
+        }
+    }
+
+    private static String hashFile(String definitionFile) {
+        try {
+            return Files.asByteSource(new File(definitionFile)).hash(Hashing.sha256()).toString();
+        } catch (IOException e) {
+            throw new DeclarativeException("Unable to read API definition file: " + definitionFile, e);
+        }
+    }
+
+    public String getPolicyName() {
+        return policyName;
+    }
+
+    public Long getPolicyId() {
+        return policyId;
+    }
+
+    public ApiPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public String toString() {
+        return null != policyName ? type + "(" + policyName + ")" : type.toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.declarative.plan;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * The changes required to bring an API version on the server into line with its declaration.
+ * An empty plan indicates that the API version is up to date.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiPlan {
+    @JsonProperty
+    private String orgName;
+
+    @JsonProperty
+    private String apiName;
+
+    @JsonProperty
+    private String apiVersion;
+
+    /**
+     * The state of the API version on the server when the plan was made, or <code>null</code> if
+     * the version did not exist.
+     */
+    @JsonProperty
+    private String status;
+
+    @JsonProperty
+    private List<ApiMutation> mutations = Lists.newArrayList();
+
+    public ApiPlan() {
+    }
+
+    public ApiPlan(String orgName, String apiName, String apiVersion) {
+        this.orgName = orgName;
+        this.apiName = apiName;
+        this.apiVersion = apiVersion;
+    }
+
+    public String getOrgName() {
+        return orgName;
+    }
+
+    public String getApiName() {
+        return apiName;
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public List<ApiMutation> getMutations() {
+        return mutations;
+    }
+
+    public void addMutation(ApiMutation mutation) {
+        mutations.add(mutation);
+    }
+
+    /**
+     * @param type the type of mutation
+     * @return <code>true</code> if the plan contains a mutation of the given type, otherwise <code>false</code>
+     */
+    public boolean hasMutation(ApiMutation.Type type) {
+        return mutations.stream().anyMatch(mutation -> type.equals(mutation.getType()));
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return mutations.isEmpty();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.managerapi.declarative.plan;
+
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the decision made for each API during an apply, so they can be reported together.
+ * Safe for concurrent use.
+ */
+public class ApplySummary {
+    static final String FAILED = "failed";
+
+    /**
+     * The APIs for which each decision was made.
+     */
+    private final Map<String, List<String>> decisions = new ConcurrentSkipListMap<>();
+
+    /**
+     * Describe the decisions made in the plan, such as <code>updated, republished</code>.
+     *
+     * @param plan      the plan for the API
+     * @param published whether the API is declared as published
+     * @return the decision
+     */
+    public static String describe(ApiPlan plan, boolean published) {
+        final boolean changed = plan.getMutations().stream()
+                .anyMatch(mutation -> ApiMutation.Type.PUBLISH != mutation.getType());
+
+        final String change;
+        if (plan.hasMutation(ApiMutation.Type.CREATE_VERSION)) {
+            change = "created";
+        } else {
+            change = changed ? "updated" : "up to date";
+        }
+
+        if (plan.hasMutation(ApiMutation.Type.PUBLISH)) {
+            return change + (null != plan.getStatus() && isPublished(plan) ? ", republished" : ", published");
+        } else if (published && isPublished(plan)) {
+            // the definition is not part of the published API
+            final boolean republishRequired = plan.getMutations().stream()
+                    .anyMatch(mutation -> ApiMutation.Type.SET_DEFINITION != mutation.getType());
+
+            return change + (republishRequired ? ", republish not supported" : ", republish not required");
+        }
+        return change;
+    }
+
+    private static boolean isPublished(ApiPlan plan) {
+        return "PUBLISHED".equalsIgnoreCase(plan.getStatus());
+    }
+
+    /**
+     * @param decision the decision
+     * @param api      describes the API, such as its name and version
+     */
+    public void record(String decision, String api) {
+        decisions.computeIfAbsent(decision, key -> new CopyOnWriteArrayList<>()).add(api);
+    }
+
+    /**
+     * @param api describes the API, such as its name and version
+     */
+    public void recordFailure(String api) {
+        record(FAILED, api);
+    }
+
+    /**
+     * @return the number of APIs for which each decision was made
+     */
+    public Map<String, Integer> getCounts() {
+        return decisions.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+                entry -> entry.getValue().size(), (a, b) -> a, ConcurrentSkipListMap::new));
+    }
+
+    /**
+     * Log the number of APIs for each decision, then the APIs themselves. APIs requiring no
+     * changes are only listed at debug level, as there are typically many of them.
+     *
+     * @param logger the logger
+     */
+    public void log(Logger logger) {
+        logger.info("Apply summary: {}", decisions.entrySet().stream()
+                .map(entry -> entry.getKey() + " (" + entry.getValue().size() + ")")
+                .collect(Collectors.joining("; ")));
+
+        decisions.forEach((decision, apis) -> {
+            final List<String> sorted = new ArrayList<>(apis);
+            sorted.sort(null);
+            if (decision.startsWith("up to date")) {
+                logger.debug("  {}: {}", decision, String.join(", ", sorted));
+            } else {
+                logger.info("  {}: {}", decision, String.join(", ", sorted));
+            }
+        });
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.declarative.plan;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.apiman.cli.command.declarative.PlanFile;
+import io.apiman.cli.command.gateway.model.Gateway;
+import io.apiman.cli.command.org.model.Org;
+import io.apiman.cli.command.plugin.model.Plugin;
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The changes required to bring a management server into line with a set of declarations: the gateways,
+ * plugins and organisations missing when the plan was made, and the plan for each API version that
+ * was not up to date. Safe for concurrent use while the plan is being made.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ManagerPlan extends PlanFile {
+    public static final String KIND = "manager";
+
+    @JsonProperty
+    private String endpoint;
+
+    @JsonProperty
+    private ManagementApiVersion serverVersion;
+
+    @JsonProperty
+    private List<Gateway> gateways = new ArrayList<>();
+
+    @JsonProperty
+    private List<Plugin> plugins = new ArrayList<>();
+
+    @JsonProperty
+    private List<Org> orgs = new ArrayList<>();
+
+    @JsonProperty
+    private List<ApiPlan> apis = new ArrayList<>();
+
+    public ManagerPlan() {
+    }
+
+    public ManagerPlan(String endpoint, ManagementApiVersion serverVersion) {
+        super(KIND);
+        this.endpoint = endpoint;
+        this.serverVersion = serverVersion;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public ManagementApiVersion getServerVersion() {
+        return serverVersion;
+    }
+
+    public synchronized List<Gateway> getGateways() {
+        return new ArrayList<>(gateways);
+    }
+
+    /**
+     * @param gateway a gateway to create, unless one with the same name is already planned
+     */
+    public synchronized void addGateway(Gateway gateway) {
+        if (!gateways.contains(gateway)) {
+            gateways.add(gateway);
+        }
+    }
+
+    public synchronized List<Plugin> getPlugins() {
+        return new ArrayList<>(plugins);
+    }
+
+    public synchronized void addPlugins(List<Plugin> plugins) {
+        this.plugins.addAll(plugins);
+    }
+
+    public synchronized List<Org> getOrgs() {
+        return new ArrayList<>(orgs);
+    }
+
+    /**
+     * @param org an organisation to create, unless one with the same name is already planned
+     */
+    public synchronized void addOrg(Org org) {
+        if (orgs.stream().noneMatch(planned -> planned.getName().equals(org.getName()))) {
+            orgs.add(org);
+        }
+    }
+
+    public synchronized List<ApiPlan> getApis() {
+        return new ArrayList<>(apis);
+    }
+
+    /**
+     * Plans for versions of the same API must be added in the order they are to be applied.
+     *
+     * @param plan the plan for an API version
+     */
+    public synchronized void addApi(ApiPlan plan) {
+        apis.add(plan);
+    }
+
+    /**
+     * @param orgName the organisation name
+     * @return <code>true</code> if changes to any API in the organisation are planned
+     */
+    public synchronized boolean hasApis(String orgName) {
+        return apis.stream().anyMatch(apiPlan -> orgName.equals(apiPlan.getOrgName()));
+    }
+}
@@ -27,6 +27,7 @@ import io.apiman.cli.managerapi.command.gateway.GatewayApi;
 import io.apiman.cli.managerapi.command.org.OrgApi;
 import io.apiman.cli.managerapi.command.plugin.PluginApi;
 import io.apiman.cli.managerapi.management.api.StatusApi;
+import io.apiman.cli.managerapi.management.api.SystemApi;
 import io.apiman.cli.managerapi.management.binding.ManagementApiBindings;
 import io.apiman.cli.managerapi.management.factory.ManagementApiFactory;
 import io.apiman.cli.managerapi.management.factory.SimpleManagementApiFactoryImpl;
@@ -43,6 +44,10 @@ public class ManagementApiFactoryModule extends AbstractModule {
                 .annotatedWith(ManagementApiBindings.boundTo(StatusApi.class))
                 .toInstance(new SimpleManagementApiFactoryImpl<>(StatusApi.class));
 
+        bind(ManagementApiFactory.class)
+                .annotatedWith(ManagementApiBindings.boundTo(SystemApi.class))
+                .toInstance(new SimpleManagementApiFactoryImpl<>(SystemApi.class));
+
         bind(ManagementApiFactory.class)
                 .annotatedWith(ManagementApiBindings.boundTo(GatewayApi.class))
                 .toInstance(new SimpleManagementApiFactoryImpl<>(GatewayApi.class));
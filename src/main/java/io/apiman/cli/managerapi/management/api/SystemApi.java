@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.management.api;
+
+import retrofit.client.Response;
+import retrofit.http.Body;
+import retrofit.http.POST;
+import retrofit.http.Streaming;
+import retrofit.mime.TypedOutput;
+
+/**
+ * Models the system import API.
+ */
+public interface SystemApi {
+    /**
+     * The server responds with a log of the import, which is streamed as it is written.
+     */
+    @POST("/system/import")
+    @Streaming
+    Response importData(@Body TypedOutput data);
+}
@@ -17,11 +17,12 @@
 package io.apiman.cli.managerapi.management.factory;
 
 import io.apiman.cli.util.AuthUtil;
+import io.apiman.cli.util.HttpUtil;
 import retrofit.RestAdapter;
 import retrofit.converter.JacksonConverter;
 
 import static io.apiman.cli.util.AuthUtil.HEADER_AUTHORIZATION;
-import static io.apiman.cli.util.MappingUtil.JSON_MAPPER;
+import static io.apiman.cli.util.MappingUtil.WIRE_MAPPER;
 
 /**
  * Builds a Management API client proxy for a given API interface.
@@ -40,7 +41,8 @@ public abstract class AbstractManagementApiFactory<T, A> implements ManagementAp
      */
     protected A buildClient(Class<A> apiClass, String endpoint, String username, String password, boolean debugLogging) {
         final RestAdapter.Builder builder = new RestAdapter.Builder() //
-                .setConverter(new JacksonConverter(JSON_MAPPER))
+                .setClient(HttpUtil.getClient())
+                .setConverter(new JacksonConverter(WIRE_MAPPER))
                 .setEndpoint(endpoint)
                 .setRequestInterceptor(request -> {
                     request.addHeader(HEADER_AUTHORIZATION, AuthUtil.buildAuthString(username, password));
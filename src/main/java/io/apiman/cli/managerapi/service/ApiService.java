@@ -48,4 +48,15 @@ public interface ApiService {
      * @param apiVersion    the API version
      */
     void publish(ManagementApiVersion serverVersion, String orgName, String apiName, String apiVersion);
+
+    /**
+     * Publish the API, if it is in the 'Ready' state, using a state already fetched from the server.
+     *
+     * @param serverVersion the management server API version
+     * @param orgName       the organisation name
+     * @param apiName       the API name
+     * @param apiVersion    the API version
+     * @param apiState      the current state of the API
+     */
+    void publish(ManagementApiVersion serverVersion, String orgName, String apiName, String apiVersion, String apiState);
 }
@@ -60,8 +60,17 @@ public class ApiServiceImpl implements ApiService {
      */
     @Override
     public void publish(ManagementApiVersion serverVersion, String orgName, String apiName, String apiVersion) {
+        publish(serverVersion, orgName, apiName, apiVersion, fetchCurrentState(serverVersion, orgName, apiName, apiVersion));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void publish(ManagementApiVersion serverVersion, String orgName, String apiName, String apiVersion,
+                        String apiState) {
+
         LOGGER.debug("Attempting to publish API: {}", apiName);
-        final String apiState = fetchCurrentState(serverVersion, orgName, apiName, apiVersion);
 
         switch (apiState.toUpperCase()) {
             case STATE_READY:
@@ -20,8 +20,11 @@ import io.apiman.cli.command.declarative.model.DeclarativeApi;
 import io.apiman.cli.command.declarative.model.DeclarativeGateway;
 import io.apiman.cli.command.declarative.model.DeclarativeOrg;
 import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+import io.apiman.cli.managerapi.declarative.plan.ManagerPlan;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Applies changes in a declarative fashion.
@@ -36,6 +39,12 @@ public interface DeclarativeService {
      */
     void applyGateways(List<DeclarativeGateway> gateways);
 
+    /**
+     * @param gatewayName the name of the gateway
+     * @return {@code true} if the gateway is present
+     */
+    boolean isGatewayPresent(String gatewayName);
+
     /**
      * Add the organisation if it is not present.
      *
@@ -45,10 +54,80 @@ public interface DeclarativeService {
 
     /**
      * Add APIs to the specified organisation, if they are not present, then configure them.
+     * <p>
+     * Up to {@code parallelism} APIs are applied concurrently. A failure to apply one API does
+     * not prevent the others being applied; all failures are reported once every API has been attempted.
      *
      * @param serverVersion the management server version.
      * @param apis          the APIs to add.
      * @param orgName       the name of the organisation.
+     * @param parallelism   the maximum number of APIs to apply concurrently.
+     */
+    void applyApis(ManagementApiVersion serverVersion, List<DeclarativeApi> apis, String orgName, int parallelism);
+
+    /**
+     * As {@link #applyApis(ManagementApiVersion, List, String, int)}, notifying the caller as each API
+     * is applied successfully.
+     *
+     * @param serverVersion the management server version.
+     * @param apis          the APIs to add.
+     * @param orgName       the name of the organisation.
+     * @param parallelism   the maximum number of APIs to apply concurrently.
+     * @param onApplied     called, possibly concurrently, with each API once it has been applied.
+     */
+    void applyApis(ManagementApiVersion serverVersion, List<DeclarativeApi> apis, String orgName, int parallelism,
+                   Consumer<DeclarativeApi> onApplied);
+
+    /**
+     * As {@link #applyApis(ManagementApiVersion, List, String, int, Consumer)}, reading the APIs as they are
+     * applied, so they need not all be held in memory.
+     *
+     * @param serverVersion the management server version.
+     * @param apis          the APIs to add, which are read by the calling thread.
+     * @param orgName       the name of the organisation.
+     * @param parallelism   the maximum number of APIs to apply concurrently.
+     * @param queueSize     the maximum number of APIs read ahead of those applied.
+     * @param onApplied     called, possibly concurrently, with each API once it has been applied.
+     */
+    void applyApis(ManagementApiVersion serverVersion, Iterator<DeclarativeApi> apis, String orgName, int parallelism,
+                   int queueSize, Consumer<DeclarativeApi> onApplied);
+
+    /**
+     * Add the gateways that are not present to the plan, instead of adding them.
+     *
+     * @param gateways the gateways to plan.
+     * @param plan     the plan.
+     */
+    void planGateways(List<DeclarativeGateway> gateways, ManagerPlan plan);
+
+    /**
+     * Add the organisation to the plan if it is not present, instead of adding it.
+     *
+     * @param org  the organisation to plan.
+     * @param plan the plan.
+     */
+    void planOrg(DeclarativeOrg org, ManagerPlan plan);
+
+    /**
+     * As {@link #applyApis(ManagementApiVersion, Iterator, String, int, int, Consumer)}, adding the changes
+     * required to each API to the plan, instead of applying them.
+     *
+     * @param serverVersion the management server version.
+     * @param apis          the APIs to plan, which are read by the calling thread.
+     * @param orgName       the name of the organisation.
+     * @param parallelism   the maximum number of APIs to plan concurrently.
+     * @param queueSize     the maximum number of APIs read ahead of those planned.
+     * @param plan          the plan.
+     */
+    void planApis(ManagementApiVersion serverVersion, Iterator<DeclarativeApi> apis, String orgName, int parallelism,
+                  int queueSize, ManagerPlan plan);
+
+    /**
+     * Apply a plan made by an earlier run. Gateways, plugins and organisations are created, then the
+     * API plans are applied concurrently, with versions of the same API applied in order.
+     *
+     * @param plan        the plan.
+     * @param parallelism the maximum number of APIs to apply concurrently.
      */
-    void applyApis(ManagementApiVersion serverVersion, List<DeclarativeApi> apis, String orgName);
+    void applyPlan(ManagerPlan plan, int parallelism);
 }
@@ -16,39 +16,41 @@
 
 package io.apiman.cli.managerapi.service;
 
-import com.google.common.io.CharStreams;
 import io.apiman.cli.command.api.model.Api;
-import io.apiman.cli.command.api.model.ApiConfig;
-import io.apiman.cli.command.api.model.ApiPolicy;
 import io.apiman.cli.command.api.model.ApiVersion;
-import io.apiman.cli.command.api.model.EndpointProperties;
 import io.apiman.cli.command.declarative.model.DeclarativeApi;
 import io.apiman.cli.command.declarative.model.DeclarativeGateway;
 import io.apiman.cli.command.declarative.model.DeclarativeOrg;
 import io.apiman.cli.command.gateway.model.Gateway;
 import io.apiman.cli.command.org.model.Org;
+import io.apiman.cli.exception.DeclarativeException;
 import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
 import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
 import io.apiman.cli.managerapi.command.gateway.GatewayApi;
 import io.apiman.cli.managerapi.command.org.OrgApi;
+import io.apiman.cli.managerapi.declarative.plan.ApiMutation;
+import io.apiman.cli.managerapi.declarative.plan.ApiPlan;
+import io.apiman.cli.managerapi.declarative.plan.ApplySummary;
+import io.apiman.cli.managerapi.declarative.plan.ManagerPlan;
 import io.apiman.cli.managerapi.management.ManagementApiUtil;
+import io.apiman.cli.util.ConcurrencyUtil;
 import io.apiman.cli.util.MappingUtil;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import retrofit.mime.TypedFile;
+import retrofit.mime.TypedOutput;
 import retrofit.mime.TypedString;
 
 import javax.inject.Inject;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.io.File;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import static io.apiman.cli.managerapi.command.common.model.ManagementApiVersion.v11x;
-import static io.apiman.cli.managerapi.command.common.model.ManagementApiVersion.v12x;
 import static io.apiman.cli.util.Functions.of;
 import static java.util.Optional.ofNullable;
 
@@ -63,14 +65,21 @@ public class DeclarativeServiceImpl implements DeclarativeService {
     private ManagementApiService managementApiService;
     private ApiService apiService;
     private PolicyService policyService;
+    private PlanService planService;
+    private InventoryService inventoryService;
+    private PluginService pluginService;
 
     @Inject
-    public DeclarativeServiceImpl(ManagementApiService managementApiService,
-                                  ApiService apiService, PolicyService policyService) {
+    public DeclarativeServiceImpl(ManagementApiService managementApiService, ApiService apiService,
+                                  PolicyService policyService, PlanService planService,
+                                  InventoryService inventoryService, PluginService pluginService) {
 
         this.managementApiService = managementApiService;
         this.apiService = apiService;
         this.policyService = policyService;
+        this.planService = planService;
+        this.inventoryService = inventoryService;
+        this.pluginService = pluginService;
     }
 
     /**
@@ -97,6 +106,15 @@ public class DeclarativeServiceImpl implements DeclarativeService {
         });
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isGatewayPresent(String gatewayName) {
+        final GatewayApi apiClient = managementApiService.buildServerApiClient(GatewayApi.class);
+        return ManagementApiUtil.checkExists(() -> apiClient.fetch(gatewayName)).isPresent();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -121,182 +139,363 @@ public class DeclarativeServiceImpl implements DeclarativeService {
      * {@inheritDoc}
      */
     @Override
-    public void applyApis(ManagementApiVersion serverVersion, List<DeclarativeApi> apis, String orgName) {
-        LOGGER.debug("Applying APIs");
+    public void planGateways(List<DeclarativeGateway> gateways, ManagerPlan plan) {
+        LOGGER.debug("Planning gateways");
 
-        apis.forEach(declarativeApi -> {
-            final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(VersionAgnosticApi.class, serverVersion);
-            final String apiName = declarativeApi.getName();
+        final GatewayApi apiClient = managementApiService.buildServerApiClient(GatewayApi.class);
+        gateways.forEach(declarativeGateway -> {
+            final String gatewayName = declarativeGateway.getName();
 
-            // determine the version of the API being configured
-            ofNullable(declarativeApi.getInitialVersion()).ifPresent(v ->
-                    LOGGER.warn("Use of 'initialVersion' is deprecated and will be removed in future - use 'version' instead."));
+            of(ManagementApiUtil.checkExists(() -> apiClient.fetch(gatewayName)))
+                    .ifPresent(existing -> {
+                        LOGGER.info("Gateway already exists: {}", gatewayName);
+                    })
+                    .ifNotPresent(() -> {
+                        LOGGER.info("Planning gateway: {}", gatewayName);
+                        plan.addGateway(MappingUtil.map(declarativeGateway, Gateway.class));
+                    });
+        });
+    }
 
-            final String apiVersion = ofNullable(declarativeApi.getVersion()).orElse(declarativeApi.getInitialVersion());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void planOrg(DeclarativeOrg org, ManagerPlan plan) {
+        LOGGER.debug("Planning org");
 
-            // create and configure API
-            applyApi(serverVersion, apiClient, declarativeApi, orgName, apiName, apiVersion);
+        final String orgName = org.getName();
+        final OrgApi orgApiClient = managementApiService.buildServerApiClient(OrgApi.class);
 
-            // add definition
-            applyDefinition(apiClient, declarativeApi, orgName, apiName, apiVersion);
+        of(ManagementApiUtil.checkExists(() -> orgApiClient.fetch(orgName)))
+                .ifPresent(existing -> {
+                    LOGGER.info("Org already exists: {}", orgName);
+                })
+                .ifNotPresent(() -> {
+                    LOGGER.info("Planning org: {}", orgName);
+                    plan.addOrg(MappingUtil.map(org, Org.class));
+                });
+    }
 
-            // add policies
-            applyPolicies(serverVersion, declarativeApi, orgName, apiName, apiVersion);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyApis(ManagementApiVersion serverVersion, List<DeclarativeApi> apis, String orgName,
+                          int parallelism) {
+
+        applyApis(serverVersion, apis, orgName, parallelism, declarativeApi -> {});
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyApis(ManagementApiVersion serverVersion, List<DeclarativeApi> apis, String orgName,
+                          int parallelism, Consumer<DeclarativeApi> onApplied) {
+
+        applyApis(serverVersion, apis.iterator(), orgName, parallelism, Math.max(1, apis.size()), onApplied);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyApis(ManagementApiVersion serverVersion, Iterator<DeclarativeApi> apis, String orgName,
+                          int parallelism, int queueSize, Consumer<DeclarativeApi> onApplied) {
+
+        forEachApi(serverVersion, apis, orgName, parallelism, queueSize, "apply", true, declarativeApi -> {
+            final String decision = applyApi(serverVersion, declarativeApi, orgName);
+            onApplied.accept(declarativeApi);
+            return decision;
+        });
+    }
 
-            // publish API
-            if (declarativeApi.isPublished()) {
-                apiService.publish(serverVersion, orgName, apiName, apiVersion);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void planApis(ManagementApiVersion serverVersion, Iterator<DeclarativeApi> apis, String orgName,
+                         int parallelism, int queueSize, ManagerPlan plan) {
+
+        // nothing planned has been created on the server, so reloading the inventory after an earlier
+        // declaration for the same organisation would lose the APIs and versions it recorded
+        final boolean loadInventory = !plan.hasApis(orgName);
+
+        forEachApi(serverVersion, apis, orgName, parallelism, queueSize, "plan", loadInventory, declarativeApi -> {
+            final ApiPlan apiPlan = planApi(serverVersion, declarativeApi, orgName);
+            if (!apiPlan.isEmpty()) {
+                // later versions of the API are planned as if this plan had been applied
+                if (apiPlan.hasMutation(ApiMutation.Type.CREATE_API)) {
+                    inventoryService.recordApi(orgName, apiPlan.getApiName());
+                }
+                if (apiPlan.hasMutation(ApiMutation.Type.CREATE_VERSION)) {
+                    inventoryService.recordVersion(orgName, apiPlan.getApiName(), apiPlan.getApiVersion());
+                }
+                // definition files are only read when the plan is applied
+                apiPlan.getMutations().forEach(ApiMutation::hashDefinitionFile);
+                plan.addApi(apiPlan);
             }
+            return ApplySummary.describe(apiPlan, declarativeApi.isPublished());
         });
     }
 
     /**
-     * Add the API, if it is not present, then configure it.
+     * Process the APIs concurrently, summarising the decision made for each, then report any failures.
      *
-     * @param apiClient
-     * @param declarativeApi
-     * @param orgName
-     * @param apiName
-     * @param apiVersion
-     * @return the state of the API
+     * @param serverVersion the management server version
+     * @param apis          the APIs, which are read by the calling thread
+     * @param orgName       the name of the organisation
+     * @param parallelism   the maximum number of APIs to process concurrently
+     * @param queueSize     the maximum number of APIs read ahead of those processed
+     * @param verb          describes the processing, such as <code>apply</code>
+     * @param loadInventory whether to load the organisation's inventory from the server first
+     * @param action        processes an API, returning the decision made for it
      */
-    private void applyApi(ManagementApiVersion serverVersion, VersionAgnosticApi apiClient,
-                          DeclarativeApi declarativeApi, String orgName, String apiName, String apiVersion) {
+    private void forEachApi(ManagementApiVersion serverVersion, Iterator<DeclarativeApi> apis, String orgName,
+                            int parallelism, int queueSize, String verb, boolean loadInventory,
+                            Function<DeclarativeApi, String> action) {
 
-        LOGGER.debug("Applying API: {}", apiName);
-
-        // base API
-        of(ManagementApiUtil.checkExists(() -> apiClient.fetch(orgName, apiName)))
-                .ifPresent(existing -> {
-                    LOGGER.info("API '{}' already exists", apiName);
-                })
-                .ifNotPresent(() -> {
-                    LOGGER.info("Adding '{}' API", apiName);
-                    final Api api = MappingUtil.map(declarativeApi, Api.class);
+        if (!apis.hasNext()) {
+            return;
+        }
+        LOGGER.debug("Processing APIs to {} with parallelism {}", verb, parallelism);
 
-                    // IMPORTANT: don't include version in the creation request
-                    api.setInitialVersion(null);
-                    api.setVersion(null);
+        // existence checks are answered from the inventory, rather than probing the server for each item
+        if (loadInventory) {
+            inventoryService.load(serverVersion, orgName);
+        }
 
-                    // create API *without* version
-                    apiClient.create(orgName, api);
+        // versions of the same API are processed in declaration order, as they share the base API
+        final ApplySummary summary = new ApplySummary();
+        final AtomicInteger attempted = new AtomicInteger();
+        final Map<DeclarativeApi, Exception> failures = ConcurrencyUtil.forEach(apis, Api::getName, parallelism,
+                queueSize, verb + "-api", declarativeApi -> {
+                    attempted.incrementAndGet();
+                    summary.record(action.apply(declarativeApi), describe(declarativeApi));
                 });
 
-        // API version
-        of(ManagementApiUtil.checkExists(() -> apiClient.fetchVersion(orgName, apiName, apiVersion)))
-                .ifPresent(existing -> {
-                    LOGGER.info("API '{}' version '{}' already exists", apiName, apiVersion);
-                })
-                .ifNotPresent(() -> {
-                    LOGGER.info("Adding API '{}' version '{}'", apiName, apiVersion);
+        failures.keySet().forEach(declarativeApi -> summary.recordFailure(describe(declarativeApi)));
+        summary.log(LOGGER);
 
-                    // create version
-                    final ApiVersion apiVersionWrapper = new ApiVersion(apiVersion);
-                    apiClient.createVersion(orgName, apiName, apiVersionWrapper);
+        if (!failures.isEmpty()) {
+            failures.forEach((declarativeApi, cause) -> LOGGER.error("Failed to {} API '{}' version '{}'",
+                    verb, declarativeApi.getName(), determineVersion(declarativeApi), cause));
 
-                    if (v11x.equals(serverVersion)) {
-                        // do this only on initial creation as v1.1.x API throws a 409 if this is called more than once
-                        configureApi(declarativeApi, apiClient, orgName, apiName, apiVersion);
-                    }
+            throw new DeclarativeException(String.format("Failed to %s %d of %d APIs: %s",
+                    verb, failures.size(), attempted.get(), failures.keySet().stream()
+                            .map(DeclarativeServiceImpl::describe)
+                            .collect(Collectors.joining(", "))));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyPlan(ManagerPlan plan, int parallelism) {
+        final ManagementApiVersion serverVersion = plan.getServerVersion();
+        final List<ApiPlan> apiPlans = plan.getApis();
+
+        // nothing is applied unless every definition file is the one planned
+        apiPlans.forEach(apiPlan -> apiPlan.getMutations().forEach(ApiMutation::checkDefinitionFile));
+
+        final GatewayApi gatewayApiClient = managementApiService.buildServerApiClient(GatewayApi.class);
+        plan.getGateways().forEach(gateway -> {
+            LOGGER.info("Adding gateway: {}", gateway.getName());
+            gatewayApiClient.create(gateway);
+        });
+
+        pluginService.installPlugins(plan.getPlugins());
+
+        final OrgApi orgApiClient = managementApiService.buildServerApiClient(OrgApi.class);
+        plan.getOrgs().forEach(org -> {
+            LOGGER.info("Adding org: {}", org.getName());
+            orgApiClient.create(org);
+        });
+
+        LOGGER.debug("Applying {} API plans with parallelism {}", apiPlans.size(), parallelism);
+
+        // versions of the same API are applied in the order they were planned
+        final ApplySummary summary = new ApplySummary();
+        final Map<ApiPlan, Exception> failures = ConcurrencyUtil.forEach(apiPlans,
+                apiPlan -> apiPlan.getOrgName() + "/" + apiPlan.getApiName(), parallelism, "apply-plan", apiPlan -> {
+                    applyPlan(serverVersion, apiPlan, true);
+                    summary.record(ApplySummary.describe(apiPlan, false), describe(apiPlan));
                 });
 
-        if (v12x.equals(serverVersion)) {
-            // The v1.2.x API supports configuration of the API even if published (but not retired)
-            final String apiState = apiService.fetchCurrentState(serverVersion, orgName, apiName, apiVersion);
-            if (ApiService.STATE_RETIRED.equals(apiState.toUpperCase())) {
-                LOGGER.warn("API '{}' is retired - skipping configuration", apiName);
+        failures.keySet().forEach(apiPlan -> summary.recordFailure(describe(apiPlan)));
+        summary.log(LOGGER);
 
-            } else {
-                configureApi(declarativeApi, apiClient, orgName, apiName, apiVersion);
-            }
+        if (!failures.isEmpty()) {
+            failures.forEach((apiPlan, cause) -> LOGGER.error("Failed to apply plan for API '{}' version '{}'",
+                    apiPlan.getApiName(), apiPlan.getApiVersion(), cause));
+
+            throw new DeclarativeException(String.format("Failed to apply %d of %d API plans: %s",
+                    failures.size(), apiPlans.size(), failures.keySet().stream()
+                            .map(DeclarativeServiceImpl::describe)
+                            .collect(Collectors.joining(", "))));
         }
     }
 
     /**
-     * Configures the API using the declarative API configuration.
+     * Plan the changes required to the API, then apply them.
      *
-     * @param declarativeApi
-     * @param apiClient
-     * @param orgName
-     * @param apiName
-     * @param apiVersion
+     * @param serverVersion  the management server version
+     * @param declarativeApi the API to apply
+     * @param orgName        the name of the organisation
+     * @return the decision made for the API, for the apply summary
      */
-    private void configureApi(DeclarativeApi declarativeApi, VersionAgnosticApi apiClient,
-                              String orgName, String apiName, String apiVersion) {
+    private String applyApi(ManagementApiVersion serverVersion, DeclarativeApi declarativeApi, String orgName) {
+        final ApiPlan plan = planApi(serverVersion, declarativeApi, orgName);
+
+        if (plan.isEmpty()) {
+            LOGGER.info("API '{}' version '{}' is up to date", plan.getApiName(), plan.getApiVersion());
+        } else {
+            LOGGER.debug("Plan for API '{}' version '{}': {}", plan.getApiName(), plan.getApiVersion(),
+                    plan.getMutations());
+            applyPlan(serverVersion, plan, false);
+        }
+        return ApplySummary.describe(plan, declarativeApi.isPublished());
+    }
 
-        LOGGER.info("Configuring API: {}", apiName);
+    /**
+     * Plan the changes required to the API.
+     *
+     * @param serverVersion  the management server version
+     * @param declarativeApi the API to plan
+     * @param orgName        the name of the organisation
+     * @return the plan
+     */
+    private ApiPlan planApi(ManagementApiVersion serverVersion, DeclarativeApi declarativeApi, String orgName) {
+        final String apiName = declarativeApi.getName();
 
-        final ApiConfig apiConfig = MappingUtil.map(declarativeApi.getConfig(), ApiConfig.class);
+        // determine the version of the API being configured
+        ofNullable(declarativeApi.getInitialVersion()).ifPresent(v ->
+                LOGGER.warn("Use of 'initialVersion' is deprecated and will be removed in future - use 'version' instead."));
 
-        // map security configuration to endpoint properties
-        ofNullable(declarativeApi.getConfig().getSecurity())
-                .ifPresent(securityConfig -> apiConfig.setEndpointProperties(
-                        MappingUtil.map(securityConfig, EndpointProperties.class)));
+        final String apiVersion = determineVersion(declarativeApi);
 
-        apiClient.configure(orgName, apiName, apiVersion, apiConfig);
+        LOGGER.debug("Planning API: {}", apiName);
+        return planService.planApi(serverVersion, declarativeApi, orgName, apiName, apiVersion);
     }
 
     /**
-     * Adds a definition to the API.
-     *
-     * @param apiClient
-     * @param declarativeApi
-     * @param orgName
-     * @param apiName
-     * @param apiVersion
+     * @param declarativeApi the API
+     * @return the version of the API being configured
      */
-    private void applyDefinition(VersionAgnosticApi apiClient, DeclarativeApi declarativeApi, String orgName,
-                                 String apiName, String apiVersion) {
-
-        ofNullable(declarativeApi.getDefinition()).ifPresent(declarativeApiDefinition -> {
-            if (StringUtils.isNotEmpty(declarativeApiDefinition.getFile())
-                    || StringUtils.isNotEmpty(declarativeApiDefinition.getBody())) {
-
-                LOGGER.debug("Applying definition to API: {}", apiName);
-                final String definition;
-                if (StringUtils.isNotEmpty(declarativeApiDefinition.getFile())) {
-                    try (InputStream is = Files.newInputStream(Paths.get(declarativeApiDefinition.getFile()), StandardOpenOption.READ)) {
-                        definition = CharStreams.toString(new InputStreamReader(is));
-                    } catch (IOException e) {
-                        LOGGER.error("Failed to apply API definition, invalid file: {}", declarativeApiDefinition.getFile(), e);
-                        return;
-                    }
-                } else {
-                    definition = declarativeApiDefinition.getBody();
-                }
+    private static String determineVersion(DeclarativeApi declarativeApi) {
+        return ofNullable(declarativeApi.getVersion()).orElse(declarativeApi.getInitialVersion());
+    }
 
-                apiClient.setDefinition(orgName, apiName, apiVersion, declarativeApiDefinition.getType(), new TypedString(definition));
+    /**
+     * @param declarativeApi the API
+     * @return the name and version of the API
+     */
+    private static String describe(DeclarativeApi declarativeApi) {
+        return declarativeApi.getName() + " " + determineVersion(declarativeApi);
+    }
 
-                LOGGER.info("Setting definition for API: {}", apiName);
-            }
-        });
+    /**
+     * @param plan the plan
+     * @return the name and version of the API
+     */
+    private static String describe(ApiPlan plan) {
+        return plan.getApiName() + " " + plan.getApiVersion();
     }
 
     /**
-     * Add policies to the API if they are not present.
+     * The status fetched when planning remains current unless the plan creates the version, or configures
+     * a version that is not yet published, either of which may change its status.
      *
-     * @param declarativeApi
-     * @param orgName
-     * @param apiName
-     * @param apiVersion
+     * @param plan the plan
+     * @return <code>true</code> if the status in the plan can be used to publish, otherwise <code>false</code>
      */
-    private void applyPolicies(ManagementApiVersion serverVersion, DeclarativeApi declarativeApi,
-                               String orgName, String apiName, String apiVersion) {
+    private static boolean isStatusCurrent(ApiPlan plan) {
+        if (null == plan.getStatus() || plan.hasMutation(ApiMutation.Type.CREATE_VERSION)) {
+            return false;
+        }
+        return ApiService.STATE_PUBLISHED.equalsIgnoreCase(plan.getStatus())
+                || !plan.hasMutation(ApiMutation.Type.CONFIGURE);
+    }
 
-        ofNullable(declarativeApi.getPolicies()).ifPresent(declarativePolicies -> {
-            LOGGER.debug("Applying policies to API: {}", apiName);
+    /**
+     * Definition files are streamed from disk, rather than read into memory.
+     *
+     * @param mutation the definition mutation
+     * @return the request body
+     */
+    private static TypedOutput buildDefinitionBody(ApiMutation mutation) {
+        return ofNullable(mutation.getDefinitionFile())
+                .<TypedOutput>map(definitionFile -> new TypedFile(mutation.getDefinitionType(), new File(definitionFile)))
+                .orElseGet(() -> new TypedString(mutation.getDefinition()));
+    }
 
-            // existing policies for the API
-            final List<ApiPolicy> apiPolicies = policyService.fetchPolicies(serverVersion, orgName, apiName, apiVersion);
+    /**
+     * Apply the mutations in the plan, in order.
+     * <p>
+     * A plan made by an earlier run is applied without an inventory, and the status it recorded may
+     * no longer be current, so the status is fetched again before publishing.
+     *
+     * @param serverVersion the management server version
+     * @param plan          the plan to apply
+     * @param deferred      whether the plan was made by an earlier run
+     */
+    private void applyPlan(ManagementApiVersion serverVersion, ApiPlan plan, boolean deferred) {
+        final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(VersionAgnosticApi.class, serverVersion);
 
-            declarativePolicies.forEach(declarativePolicy -> {
-                final String policyName = declarativePolicy.getName();
+        final String orgName = plan.getOrgName();
+        final String apiName = plan.getApiName();
+        final String apiVersion = plan.getApiVersion();
 
-                final ApiPolicy apiPolicy = new ApiPolicy(
-                        MappingUtil.safeWriteValueAsJson(declarativePolicy.getConfig()));
+        for (ApiMutation mutation : plan.getMutations()) {
+            switch (mutation.getType()) {
+                case CREATE_API:
+                    // create API *without* version
+                    LOGGER.info("Adding '{}' API", apiName);
+                    apiClient.create(orgName, mutation.getApi());
+                    if (!deferred) {
+                        inventoryService.recordApi(orgName, apiName);
+                    }
+                    break;
 
-                policyService.applyPolicies(serverVersion, orgName, apiName, apiVersion, apiPolicies, policyName, apiPolicy);
-            });
-        });
+                case CREATE_VERSION:
+                    LOGGER.info("Adding API '{}' version '{}'", apiName, apiVersion);
+                    apiClient.createVersion(orgName, apiName, new ApiVersion(apiVersion));
+                    if (!deferred) {
+                        inventoryService.recordVersion(orgName, apiName, apiVersion);
+                    }
+                    break;
+
+                case CONFIGURE:
+                    LOGGER.info("Configuring API: {}", apiName);
+                    apiClient.configure(orgName, apiName, apiVersion, mutation.getConfig());
+                    break;
+
+                case SET_DEFINITION:
+                    LOGGER.info("Setting definition for API: {}", apiName);
+                    apiClient.setDefinition(orgName, apiName, apiVersion, mutation.getDefinitionType(),
+                            buildDefinitionBody(mutation));
+                    break;
+
+                case ADD_POLICY:
+                    policyService.addPolicy(serverVersion, orgName, apiName, apiVersion,
+                            mutation.getPolicyName(), mutation.getPolicy());
+                    break;
+
+                case CONFIGURE_POLICY:
+                    policyService.configurePolicy(serverVersion, orgName, apiName, apiVersion,
+                            mutation.getPolicyName(), mutation.getPolicyId(), mutation.getPolicy());
+                    break;
+
+                case PUBLISH:
+                    if (!deferred && isStatusCurrent(plan)) {
+                        apiService.publish(serverVersion, orgName, apiName, apiVersion, plan.getStatus());
+                    } else {
+                        apiService.publish(serverVersion, orgName, apiName, apiVersion);
+                    }
+                    break;
+            }
+        }
     }
 }
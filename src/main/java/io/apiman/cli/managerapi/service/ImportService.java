@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+
+import java.util.List;
+
+/**
+ * Bootstraps organisations and APIs using the system import API.
+ */
+public interface ImportService {
+    /**
+     * Create the organisations and APIs using a single import request, then set the definitions of
+     * the APIs and publish them. None of the organisations may already exist.
+     *
+     * @param serverVersion the management server API version
+     * @param orgs          the organisations to create, with their APIs
+     * @param username      the user to own the organisations
+     * @param parallelism   the maximum number of APIs to set definitions for, or publish, concurrently
+     */
+    void importOrgs(ManagementApiVersion serverVersion, List<DeclarativeOrg> orgs, String username, int parallelism);
+}
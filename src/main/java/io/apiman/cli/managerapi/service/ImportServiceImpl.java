@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.command.declarative.model.DeclarativeApiDefinition;
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.exception.DeclarativeException;
+import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+import io.apiman.cli.managerapi.command.org.OrgApi;
+import io.apiman.cli.managerapi.declarative.importer.ImportDocument;
+import io.apiman.cli.managerapi.management.ManagementApiUtil;
+import io.apiman.cli.managerapi.management.api.SystemApi;
+import io.apiman.cli.util.ConcurrencyUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+import retrofit.mime.TypedFile;
+import retrofit.mime.TypedOutput;
+import retrofit.mime.TypedString;
+
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bootstraps organisations and APIs using the system import API, rather than creating and
+ * configuring each item with separate requests.
+ */
+public class ImportServiceImpl implements ImportService {
+    private static final Logger LOGGER = LogManager.getLogger(ImportServiceImpl.class);
+
+    private ManagementApiService managementApiService;
+    private ApiService apiService;
+
+    @Inject
+    public ImportServiceImpl(ManagementApiService managementApiService, ApiService apiService) {
+        this.managementApiService = managementApiService;
+        this.apiService = apiService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void importOrgs(ManagementApiVersion serverVersion, List<DeclarativeOrg> orgs, String username,
+                           int parallelism) {
+
+        if (ManagementApiVersion.v11x.equals(serverVersion)) {
+            throw new DeclarativeException("Bootstrapping requires a v1.2.x or later management server");
+        }
+        checkOrgsAbsent(orgs);
+
+        // the APIs of each organisation, in declaration order
+        final List<ImportedApi> apis = orgs.stream()
+                .filter(org -> null != org.getApis())
+                .flatMap(org -> org.getApis().stream().map(api -> new ImportedApi(org.getName(), api)))
+                .collect(Collectors.toList());
+
+        LOGGER.info("Importing {} APIs in {} organisations", apis.size(),
+                orgs.stream().map(DeclarativeOrg::getName).distinct().count());
+        importDocument(new ImportDocument(orgs, username));
+
+        final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(VersionAgnosticApi.class,
+                serverVersion);
+
+        final List<ImportedApi> withDefinitions = apis.stream()
+                .filter(imported -> null != imported.api.getDefinition())
+                .filter(imported -> StringUtils.isNotEmpty(imported.api.getDefinition().getFile())
+                        || StringUtils.isNotEmpty(imported.api.getDefinition().getBody()))
+                .collect(Collectors.toList());
+
+        forEachApi(withDefinitions, parallelism, "set-definition", "set definitions for", imported -> {
+            LOGGER.info("Setting definition for API: {}", imported.api.getName());
+            apiClient.setDefinition(imported.orgName, imported.api.getName(),
+                    ImportDocument.determineVersion(imported.api), imported.api.getDefinition().getType(),
+                    buildDefinitionBody(imported.api.getDefinition()));
+        });
+
+        // versions of the same API are published in declaration order
+        final List<ImportedApi> published = apis.stream()
+                .filter(imported -> imported.api.isPublished())
+                .filter(imported -> ImportDocument.isReady(PlanServiceImpl.buildApiConfig(imported.api)))
+                .collect(Collectors.toList());
+
+        forEachApi(published, parallelism, "publish", "publish", imported ->
+                apiService.publish(serverVersion, imported.orgName, imported.api.getName(),
+                        ImportDocument.determineVersion(imported.api), ApiService.STATE_READY));
+
+        LOGGER.info("Imported {} APIs, {} published", apis.size(), published.size());
+    }
+
+    /**
+     * The import API does not merge with existing items, so bootstrapping is only possible in a new environment.
+     *
+     * @param orgs the organisations to be imported
+     */
+    private void checkOrgsAbsent(List<DeclarativeOrg> orgs) {
+        final OrgApi orgApiClient = managementApiService.buildServerApiClient(OrgApi.class);
+
+        final List<String> existing = orgs.stream()
+                .map(DeclarativeOrg::getName)
+                .distinct()
+                .filter(orgName -> ManagementApiUtil.checkExists(() -> orgApiClient.fetch(orgName)).isPresent())
+                .collect(Collectors.toList());
+
+        if (!existing.isEmpty()) {
+            throw new DeclarativeException(String.format(
+                    "Unable to bootstrap, as organisations already exist: %s - apply without bootstrapping instead",
+                    String.join(", ", existing)));
+        }
+    }
+
+    /**
+     * Send the document to the import API, and check the log of the import for errors.
+     *
+     * @param document the document to import
+     */
+    private void importDocument(ImportDocument document) {
+        final SystemApi systemApi = managementApiService.buildServerApiClient(SystemApi.class);
+
+        final Response response;
+        try {
+            response = systemApi.importData(document);
+        } catch (RetrofitError e) {
+            throw new DeclarativeException("Import request failed", e);
+        }
+
+        final List<String> errors = new ArrayList<>();
+        if (null != response.getBody()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    response.getBody().in(), StandardCharsets.UTF_8))) {
+
+                reader.lines().forEach(line -> {
+                    LOGGER.debug("Import: {}", line);
+                    if (StringUtils.startsWithIgnoreCase(line.trim(), "ERROR")) {
+                        errors.add(line.trim());
+                    }
+                });
+            } catch (IOException e) {
+                throw new DeclarativeException("Failed to read import response", e);
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            errors.forEach(LOGGER::error);
+            throw new DeclarativeException(String.format("Import failed with %d errors", errors.size()));
+        }
+    }
+
+    /**
+     * Apply the action to each API concurrently, failing with a summary if it fails for any of them.
+     * Versions of the same API are processed in the order given.
+     */
+    private static void forEachApi(List<ImportedApi> apis, int parallelism, String threadName,
+                                   String description, Consumer<ImportedApi> action) {
+
+        final Map<ImportedApi, Exception> failures = ConcurrencyUtil.forEach(apis,
+                imported -> imported.orgName + "/" + imported.api.getName(), parallelism, threadName, action);
+
+        if (!failures.isEmpty()) {
+            failures.forEach((imported, cause) -> LOGGER.error("Failed to {} API '{}' version '{}'", description,
+                    imported.api.getName(), ImportDocument.determineVersion(imported.api), cause));
+
+            throw new DeclarativeException(String.format("Failed to %s %d of %d APIs: %s",
+                    description, failures.size(), apis.size(), failures.keySet().stream()
+                            .map(imported -> imported.api.getName() + " "
+                                    + ImportDocument.determineVersion(imported.api))
+                            .collect(Collectors.joining(", "))));
+        }
+    }
+
+    /**
+     * Definition files are streamed from disk, rather than read into memory.
+     *
+     * @param definition the declared definition
+     * @return the request body
+     */
+    private static TypedOutput buildDefinitionBody(DeclarativeApiDefinition definition) {
+        if (StringUtils.isNotEmpty(definition.getFile())) {
+            return new TypedFile(definition.getType(), new File(definition.getFile()));
+        }
+        return new TypedString(definition.getBody());
+    }
+
+    /**
+     * An API and the name of its organisation.
+     */
+    private static final class ImportedApi {
+        private final String orgName;
+        private final DeclarativeApi api;
+
+        private ImportedApi(String orgName, DeclarativeApi api) {
+            this.orgName = orgName;
+            this.api = api;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+
+import java.util.Optional;
+
+/**
+ * An in-memory index of the APIs and API versions in an organisation, used to answer existence
+ * checks without probing the server for each item.
+ */
+public interface InventoryService {
+    /**
+     * Load, or reload, the names of the APIs in the organisation. Versions are loaded on demand,
+     * once per API.
+     *
+     * @param serverVersion the management server API version
+     * @param orgName       the organisation name
+     */
+    void load(ManagementApiVersion serverVersion, String orgName);
+
+    /**
+     * @param orgName the organisation name
+     * @param apiName the API name
+     * @return <code>true</code> if the API exists, otherwise <code>false</code>
+     */
+    boolean apiExists(String orgName, String apiName);
+
+    /**
+     * @param orgName    the organisation name
+     * @param apiName    the API name
+     * @param apiVersion the API version
+     * @return the status of the API version, or empty if the version does not exist
+     */
+    Optional<String> fetchVersionStatus(String orgName, String apiName, String apiVersion);
+
+    /**
+     * Record that the API has been created.
+     *
+     * @param orgName the organisation name
+     * @param apiName the API name
+     */
+    void recordApi(String orgName, String apiName);
+
+    /**
+     * Record that the API version has been created.
+     *
+     * @param orgName    the organisation name
+     * @param apiName    the API name
+     * @param apiVersion the API version
+     */
+    void recordVersion(String orgName, String apiName, String apiVersion);
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import io.apiman.cli.command.api.model.Api;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+import io.apiman.cli.managerapi.management.ManagementApiUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * An in-memory index of the APIs and API versions in an organisation.
+ */
+public class InventoryServiceImpl implements InventoryService {
+    private static final Logger LOGGER = LogManager.getLogger(InventoryServiceImpl.class);
+
+    /**
+     * Status of an API version created during this run.
+     */
+    private static final String STATUS_CREATED = "Created";
+
+    private ManagementApiService managementApiService;
+
+    /**
+     * The server version used to load each organisation.
+     */
+    private final Map<String, ManagementApiVersion> serverVersions = new ConcurrentHashMap<>();
+
+    /**
+     * API names, keyed by organisation.
+     */
+    private final Map<String, Set<String>> apis = new ConcurrentHashMap<>();
+
+    /**
+     * API version statuses, keyed by version, keyed by organisation and API.
+     */
+    private final Map<String, Map<String, String>> versions = new ConcurrentHashMap<>();
+
+    @Inject
+    public InventoryServiceImpl(ManagementApiService managementApiService) {
+        this.managementApiService = managementApiService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void load(ManagementApiVersion serverVersion, String orgName) {
+        final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(VersionAgnosticApi.class, serverVersion);
+
+        // a missing organisation has no APIs
+        final List<Api> orgApis = ManagementApiUtil.checkExists(() -> apiClient.list(orgName))
+                .orElse(Collections.emptyList());
+
+        final Set<String> apiNames = ConcurrentHashMap.newKeySet();
+        orgApis.forEach(api -> apiNames.add(idOf(api)));
+
+        serverVersions.put(orgName, serverVersion);
+        apis.put(orgName, apiNames);
+        versions.keySet().removeIf(key -> key.startsWith(orgName + "/"));
+
+        LOGGER.debug("Loaded {} APIs for org: {}", apiNames.size(), orgName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean apiExists(String orgName, String apiName) {
+        return getApis(orgName).contains(apiName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> fetchVersionStatus(String orgName, String apiName, String apiVersion) {
+        if (!apiExists(orgName, apiName)) {
+            return Optional.empty();
+        }
+        return ofNullable(getVersions(orgName, apiName).get(apiVersion));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordApi(String orgName, String apiName) {
+        getApis(orgName).add(apiName);
+
+        // a new API has no versions
+        versions.putIfAbsent(buildKey(orgName, apiName), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordVersion(String orgName, String apiName, String apiVersion) {
+        getVersions(orgName, apiName).put(apiVersion, STATUS_CREATED);
+    }
+
+    private Set<String> getApis(String orgName) {
+        return ofNullable(apis.get(orgName)).orElseThrow(() -> new CommandException(
+                String.format("Inventory for org '%s' has not been loaded", orgName)));
+    }
+
+    /**
+     * Return the versions of the API, loading them from the server on first use.
+     */
+    private Map<String, String> getVersions(String orgName, String apiName) {
+        final String key = buildKey(orgName, apiName);
+        final Map<String, String> cached = versions.get(key);
+        if (null != cached) {
+            return cached;
+        }
+
+        // loaded outside the map, to avoid blocking other APIs whilst the request is in progress
+        final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(
+                VersionAgnosticApi.class, serverVersions.get(orgName));
+
+        final Map<String, String> apiVersions = new ConcurrentHashMap<>();
+        ManagementApiUtil.checkExists(() -> apiClient.listVersions(orgName, apiName))
+                .ifPresent(summaries -> summaries.forEach(summary ->
+                        apiVersions.put(summary.getVersion(), ofNullable(summary.getStatus()).orElse(""))));
+
+        LOGGER.debug("Loaded {} versions for API: {}", apiVersions.size(), apiName);
+
+        final Map<String, String> existing = versions.putIfAbsent(key, apiVersions);
+        return null != existing ? existing : apiVersions;
+    }
+
+    private static String buildKey(String orgName, String apiName) {
+        return orgName + "/" + apiName;
+    }
+
+    /**
+     * The server identifies APIs by ID, which the CLI assumes is the same as the API name.
+     */
+    private static String idOf(Api api) {
+        return ofNullable(api.getId()).orElse(api.getName());
+    }
+}
@@ -20,6 +20,9 @@ package io.apiman.cli.managerapi.service;
 import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
 import io.apiman.cli.services.WaitService;
 
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
 /**
  * Constructs management API clients.
  *
@@ -35,6 +38,14 @@ public interface ManagementApiService extends WaitService {
      */
     void configureEndpoint(String serverAddress, String serverUsername, String serverPassword);
 
+    /**
+     * Adds a probe of whether the management API has started, keyed by its address, so that it can be
+     * awaited together with other servers.
+     *
+     * @param probes the probes to add to
+     */
+    void addReadinessProbe(Map<String, BooleanSupplier> probes);
+
     /**
      * @param clazz the Class for which to build a client
      * @param <T>   the API interface
@@ -24,11 +24,16 @@ import io.apiman.cli.managerapi.management.binding.ManagementApiBindings;
 import io.apiman.cli.managerapi.management.factory.ManagementApiFactory;
 import io.apiman.cli.util.InjectionUtil;
 import io.apiman.cli.util.LogUtil;
+import io.apiman.cli.util.ReadinessUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import retrofit.client.Response;
 
 import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 
 /**
  * Constructs management API clients.
@@ -38,18 +43,15 @@ import java.net.HttpURLConnection;
 public class ManagementApiServiceImpl implements ManagementApiService {
     private static final Logger LOGGER = LogManager.getLogger(ManagementApiServiceImpl.class);
 
-    /**
-     * Interval, in milliseconds, that the management API's status will be polled, whilst waiting
-     * for the server to be ready.
-     *
-     * @see #waitForServer(int)
-     */
-    private static final long STATUS_CHECK_INTERVAL = 1000;
-
     private String serverAddress;
     private String serverUsername;
     private String serverPassword;
 
+    /**
+     * Clients are thread safe and stateless, so are reused for identical client configurations.
+     */
+    private final Map<ClientKey, Object> clientCache = new ConcurrentHashMap<>();
+
     /**
      * {@inheritDoc}
      */
@@ -90,6 +92,17 @@ public class ManagementApiServiceImpl implements ManagementApiService {
     public <T> T buildServerApiClient(Class<T> clazz, ManagementApiVersion serverVersion,
                                       String endpoint, String username, String password, boolean debugLogging) {
 
+        final ClientKey clientKey = new ClientKey(clazz, serverVersion, endpoint, username, password, debugLogging);
+        return (T) clientCache.computeIfAbsent(clientKey, key ->
+                createServerApiClient(clazz, serverVersion, endpoint, username, password, debugLogging));
+    }
+
+    /**
+     * Construct a new Management API client.
+     */
+    private <T> Object createServerApiClient(Class<T> clazz, ManagementApiVersion serverVersion,
+                                             String endpoint, String username, String password, boolean debugLogging) {
+
         // locate the Management API factory
         final ManagementApiFactory managementApiFactory;
         try {
@@ -105,7 +118,7 @@ public class ManagementApiServiceImpl implements ManagementApiService {
                 managementApiFactory.getClass(), clazz, serverVersion);
 
         // use the factory to construct the Management API client
-        return (T) managementApiFactory.build(endpoint, username, password, debugLogging);
+        return managementApiFactory.build(endpoint, username, password, debugLogging);
     }
 
     /**
@@ -117,25 +130,62 @@ public class ManagementApiServiceImpl implements ManagementApiService {
             return;
         }
 
-        LOGGER.info("Waiting {} seconds for server to start...", waitTime);
-        final StatusApi apiClient = buildServerApiClient(StatusApi.class);
+        final Map<String, BooleanSupplier> probes = new LinkedHashMap<>();
+        addReadinessProbe(probes);
+        ReadinessUtil.awaitReady(probes, waitTime);
+    }
 
-        final long start = System.currentTimeMillis();
-        while (true) {
-            if (System.currentTimeMillis() - start > waitTime * 1000) {
-                throw new CommandException("Timed out after " + waitTime + " seconds waiting for server to start");
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addReadinessProbe(Map<String, BooleanSupplier> probes) {
+        final StatusApi apiClient = buildServerApiClient(StatusApi.class);
+        probes.put(serverAddress, () -> HttpURLConnection.HTTP_OK == apiClient.checkStatus().getStatus());
+    }
 
-            try {
-                final Response response = apiClient.checkStatus();
-                if (HttpURLConnection.HTTP_OK == response.getStatus()) {
-                    LOGGER.info("Server started");
-                    break;
-                }
+    /**
+     * Identifies a client configuration.
+     */
+    private static final class ClientKey {
+        private final Class<?> clazz;
+        private final ManagementApiVersion serverVersion;
+        private final String endpoint;
+        private final String username;
+        private final String password;
+        private final boolean debugLogging;
+
+        private ClientKey(Class<?> clazz, ManagementApiVersion serverVersion, String endpoint,
+                          String username, String password, boolean debugLogging) {
+
+            this.clazz = clazz;
+            this.serverVersion = serverVersion;
+            this.endpoint = endpoint;
+            this.username = username;
+            this.password = password;
+            this.debugLogging = debugLogging;
+        }
 
-                Thread.sleep(STATUS_CHECK_INTERVAL);
-            } catch (Exception ignored) {
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
             }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final ClientKey that = (ClientKey) o;
+            return debugLogging == that.debugLogging &&
+                    Objects.equals(clazz, that.clazz) &&
+                    serverVersion == that.serverVersion &&
+                    Objects.equals(endpoint, that.endpoint) &&
+                    Objects.equals(username, that.username) &&
+                    Objects.equals(password, that.password);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(clazz, serverVersion, endpoint, username, password, debugLogging);
         }
     }
 }
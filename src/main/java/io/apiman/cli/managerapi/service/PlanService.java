@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+import io.apiman.cli.managerapi.declarative.plan.ApiPlan;
+
+/**
+ * Determines the changes required to bring an API on the server into line with its declaration.
+ */
+public interface PlanService {
+    /**
+     * Compare the declared API with the state of the API version on the server, and return the
+     * mutations required to reconcile them. The server is not modified.
+     * <p>
+     * The {@link InventoryService} must have been loaded for the organisation.
+     *
+     * @param serverVersion  the management server API version
+     * @param declarativeApi the declared API
+     * @param orgName        the organisation name
+     * @param apiName        the API name
+     * @param apiVersion     the API version
+     * @return the plan for the API version
+     */
+    ApiPlan planApi(ManagementApiVersion serverVersion, DeclarativeApi declarativeApi,
+                    String orgName, String apiName, String apiVersion);
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import io.apiman.cli.command.api.model.Api;
+import io.apiman.cli.command.api.model.ApiConfig;
+import io.apiman.cli.command.api.model.ApiPolicy;
+import io.apiman.cli.command.api.model.ApiVersionState;
+import io.apiman.cli.command.api.model.EndpointProperties;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+import io.apiman.cli.managerapi.declarative.plan.ApiMutation;
+import io.apiman.cli.managerapi.declarative.plan.ApiPlan;
+import io.apiman.cli.util.MappingUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+import retrofit.mime.TypedInput;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static io.apiman.cli.managerapi.command.common.model.ManagementApiVersion.v12x;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Determines the changes required to bring an API on the server into line with its declaration.
+ */
+public class PlanServiceImpl implements PlanService {
+    private static final Logger LOGGER = LogManager.getLogger(PlanServiceImpl.class);
+
+    /**
+     * Endpoint properties equal to these are not sent by the server, so are treated as absent.
+     */
+    private static final JsonNode DEFAULT_ENDPOINT_PROPERTIES = MappingUtil.JSON_MAPPER.valueToTree(new EndpointProperties());
+
+    private ManagementApiService managementApiService;
+    private PolicyService policyService;
+    private InventoryService inventoryService;
+
+    @Inject
+    public PlanServiceImpl(ManagementApiService managementApiService, PolicyService policyService,
+                           InventoryService inventoryService) {
+
+        this.managementApiService = managementApiService;
+        this.policyService = policyService;
+        this.inventoryService = inventoryService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ApiPlan planApi(ManagementApiVersion serverVersion, DeclarativeApi declarativeApi,
+                           String orgName, String apiName, String apiVersion) {
+
+        LOGGER.debug("Planning API '{}' version '{}'", apiName, apiVersion);
+
+        final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(VersionAgnosticApi.class, serverVersion);
+        final ApiPlan plan = new ApiPlan(orgName, apiName, apiVersion);
+
+        final boolean versionExists = planApiAndVersion(serverVersion, apiClient, declarativeApi, plan);
+        planDefinition(apiClient, declarativeApi, versionExists, plan);
+        planPolicies(serverVersion, declarativeApi, versionExists, plan);
+        planPublish(serverVersion, declarativeApi, versionExists, plan);
+
+        return plan;
+    }
+
+    /**
+     * Plan the creation of the API and its version, if they are not present, and its configuration.
+     *
+     * @return <code>true</code> if the API version already exists, otherwise <code>false</code>
+     */
+    private boolean planApiAndVersion(ManagementApiVersion serverVersion, VersionAgnosticApi apiClient,
+                                      DeclarativeApi declarativeApi, ApiPlan plan) {
+
+        final String orgName = plan.getOrgName();
+        final String apiName = plan.getApiName();
+        final String apiVersion = plan.getApiVersion();
+
+        if (inventoryService.apiExists(orgName, apiName)) {
+            LOGGER.debug("API '{}' already exists", apiName);
+        } else {
+            final Api api = MappingUtil.map(declarativeApi, Api.class);
+
+            // IMPORTANT: don't include version in the creation request
+            api.setInitialVersion(null);
+            api.setVersion(null);
+
+            plan.addMutation(ApiMutation.createApi(api));
+        }
+
+        final ApiConfig apiConfig = buildApiConfig(declarativeApi);
+        final Optional<String> existingStatus = inventoryService.fetchVersionStatus(orgName, apiName, apiVersion);
+
+        if (!existingStatus.isPresent()) {
+            plan.addMutation(ApiMutation.createVersion());
+            plan.addMutation(ApiMutation.configure(apiConfig));
+            return false;
+        }
+
+        LOGGER.debug("API '{}' version '{}' already exists", apiName, apiVersion);
+        plan.setStatus(existingStatus.get());
+
+        // the v1.1.x API throws a 409 if configuration is attempted more than once
+        if (v12x.equals(serverVersion)) {
+            // The v1.2.x API supports configuration of the API even if published (but not retired)
+            if (ApiService.STATE_RETIRED.equals(plan.getStatus().toUpperCase())) {
+                LOGGER.warn("API '{}' is retired - skipping configuration", apiName);
+                return true;
+            }
+
+            final ApiVersionState existingVersion = apiClient.fetchVersion(orgName, apiName, apiVersion);
+            plan.setStatus(ofNullable(existingVersion.getStatus()).orElse(""));
+
+            if (configTree(apiConfig).equals(configTree(existingVersion))) {
+                LOGGER.debug("API '{}' configuration is unchanged", apiName);
+            } else {
+                plan.addMutation(ApiMutation.configure(apiConfig));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Map the declarative API configuration to that understood by the server.
+     *
+     * @param declarativeApi the API
+     * @return the configuration of the API
+     */
+    public static ApiConfig buildApiConfig(DeclarativeApi declarativeApi) {
+        final ApiConfig apiConfig = MappingUtil.map(declarativeApi.getConfig(), ApiConfig.class);
+
+        // map security configuration to endpoint properties
+        ofNullable(declarativeApi.getConfig().getSecurity())
+                .ifPresent(securityConfig -> apiConfig.setEndpointProperties(
+                        MappingUtil.map(securityConfig, EndpointProperties.class)));
+
+        return apiConfig;
+    }
+
+    /**
+     * Build a canonical JSON representation of the configuration, suitable for comparison.
+     *
+     * @param apiConfig the configuration
+     * @return the canonical representation
+     */
+    private static JsonNode configTree(ApiConfig apiConfig) {
+        final ObjectNode tree = MappingUtil.JSON_MAPPER.valueToTree(apiConfig);
+
+        // only consider the fields of the configuration itself
+        tree.retain("endpoint", "endpointType", "endpointProperties", "publicAPI", "gateways");
+
+        if (DEFAULT_ENDPOINT_PROPERTIES.equals(tree.get("endpointProperties"))) {
+            tree.remove("endpointProperties");
+        }
+
+        // gateway order is not significant
+        ofNullable(tree.get("gateways")).filter(JsonNode::isArray).ifPresent(gateways -> {
+            final List<JsonNode> sorted = Lists.newArrayList(gateways);
+            sorted.sort(Comparator.comparing(JsonNode::toString));
+            ((ArrayNode) gateways).removeAll().addAll(sorted);
+        });
+
+        return tree;
+    }
+
+    /**
+     * Plan setting the definition of the API, if one is declared and it differs from that on the server.
+     */
+    private void planDefinition(VersionAgnosticApi apiClient, DeclarativeApi declarativeApi, boolean versionExists,
+                                ApiPlan plan) {
+
+        ofNullable(declarativeApi.getDefinition()).ifPresent(declarativeApiDefinition -> {
+            final ApiMutation mutation;
+            final ByteSource definition;
+
+            if (StringUtils.isNotEmpty(declarativeApiDefinition.getFile())) {
+                final File definitionFile = new File(declarativeApiDefinition.getFile());
+                if (!definitionFile.isFile() || !definitionFile.canRead()) {
+                    LOGGER.error("Failed to apply API definition, invalid file: {}", declarativeApiDefinition.getFile());
+                    return;
+                }
+                mutation = ApiMutation.setDefinitionFile(declarativeApiDefinition.getType(), declarativeApiDefinition.getFile());
+                definition = Files.asByteSource(definitionFile);
+
+            } else if (StringUtils.isNotEmpty(declarativeApiDefinition.getBody())) {
+                mutation = ApiMutation.setDefinition(declarativeApiDefinition.getType(), declarativeApiDefinition.getBody());
+                definition = ByteSource.wrap(declarativeApiDefinition.getBody().getBytes(StandardCharsets.UTF_8));
+
+            } else {
+                return;
+            }
+
+            if (versionExists && isDefinitionUnchanged(apiClient, plan, definition)) {
+                LOGGER.debug("API '{}' definition is unchanged", plan.getApiName());
+            } else {
+                plan.addMutation(mutation);
+            }
+        });
+    }
+
+    /**
+     * Compare the hash of the definition with that of the definition on the server. Both are streamed,
+     * so neither is held in memory.
+     *
+     * @return <code>true</code> if the server has an identical definition, otherwise <code>false</code>
+     */
+    private boolean isDefinitionUnchanged(VersionAgnosticApi apiClient, ApiPlan plan, ByteSource definition) {
+        final Response existing;
+        try {
+            existing = apiClient.fetchDefinition(plan.getOrgName(), plan.getApiName(), plan.getApiVersion());
+        } catch (RetrofitError e) {
+            LOGGER.debug("Unable to fetch definition for API '{}' - assuming it has changed", plan.getApiName(), e);
+            return false;
+        }
+
+        final TypedInput existingBody = ofNullable(existing).map(Response::getBody).orElse(null);
+        if (null == existingBody) {
+            return false;
+        }
+
+        try (InputStream existingIn = existingBody.in()) {
+            // a different length means a different definition, without reading either
+            final long existingLength = existingBody.length();
+            if (existingLength >= 0 && existingLength != definition.size()) {
+                return false;
+            }
+
+            final Hasher existingHasher = Hashing.sha256().newHasher();
+            ByteStreams.copy(existingIn, Funnels.asOutputStream(existingHasher));
+            return definition.hash(Hashing.sha256()).equals(existingHasher.hash());
+
+        } catch (IOException e) {
+            LOGGER.debug("Unable to compare definition for API '{}' - assuming it has changed", plan.getApiName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Plan adding policies that are not present, and updating the configuration of those that differ.
+     */
+    private void planPolicies(ManagementApiVersion serverVersion, DeclarativeApi declarativeApi,
+                              boolean versionExists, ApiPlan plan) {
+
+        ofNullable(declarativeApi.getPolicies()).ifPresent(declarativePolicies -> {
+            final String orgName = plan.getOrgName();
+            final String apiName = plan.getApiName();
+            final String apiVersion = plan.getApiVersion();
+
+            // a newly created version has no policies
+            final List<ApiPolicy> apiPolicies = versionExists ?
+                    policyService.fetchPolicies(serverVersion, orgName, apiName, apiVersion) :
+                    Lists.newArrayList();
+
+            declarativePolicies.forEach(declarativePolicy -> {
+                final String policyName = declarativePolicy.getName();
+
+                final ApiPolicy apiPolicy = new ApiPolicy(
+                        MappingUtil.safeWriteValueAsWireJson(declarativePolicy.getConfig()));
+
+                // determine if the policy already exists for this API
+                final Optional<ApiPolicy> existingPolicy = apiPolicies.stream()
+                        .filter(p -> policyName.equals(p.getPolicyDefinitionId()))
+                        .findFirst();
+
+                if (!existingPolicy.isPresent()) {
+                    plan.addMutation(ApiMutation.addPolicy(policyName, apiPolicy));
+
+                } else if (v12x.equals(serverVersion)) {
+                    // the policy summary does not include its configuration
+                    final Long policyId = existingPolicy.get().getId();
+                    final ApiPolicy remotePolicy = policyService.fetchPolicy(
+                            serverVersion, orgName, apiName, apiVersion, policyId);
+
+                    if (MappingUtil.jsonEquals(apiPolicy.getConfiguration(), remotePolicy.getConfiguration())) {
+                        LOGGER.debug("Policy '{}' configuration for API '{}' is unchanged", policyName, apiName);
+                    } else {
+                        plan.addMutation(ApiMutation.configurePolicy(policyName, policyId, apiPolicy));
+                    }
+
+                } else {
+                    LOGGER.info("Policy '{}' already exists for API '{}' - skipping configuration update", policyName, apiName);
+                }
+            });
+        });
+    }
+
+    /**
+     * Plan publication of the API, if it is declared as published and is not already published
+     * with its current configuration.
+     */
+    private void planPublish(ManagementApiVersion serverVersion, DeclarativeApi declarativeApi,
+                             boolean versionExists, ApiPlan plan) {
+
+        if (!declarativeApi.isPublished()) {
+            return;
+        }
+
+        if (versionExists && ApiService.STATE_PUBLISHED.equals(plan.getStatus().toUpperCase())) {
+            // the definition is not part of the published API, so changes to it do not require republishing
+            final boolean changed = plan.getMutations().stream()
+                    .anyMatch(mutation -> ApiMutation.Type.SET_DEFINITION != mutation.getType());
+
+            if (!v12x.equals(serverVersion) || !changed) {
+                LOGGER.info("API '{}' already published - skipping republish", plan.getApiName());
+                return;
+            }
+        }
+
+        plan.addMutation(ApiMutation.publish());
+    }
+}
@@ -32,4 +32,17 @@ public interface PluginService {
      * @param plugins the plugins to add.
      */
     void addPlugins(List<Plugin> plugins);
+
+    /**
+     * @param plugins the plugins to check.
+     * @return those of the plugins that are not installed.
+     */
+    List<Plugin> findMissingPlugins(List<Plugin> plugins);
+
+    /**
+     * Install plugins, without checking whether they are present. Repeated plugins are installed once.
+     *
+     * @param plugins the plugins to install.
+     */
+    void installPlugins(List<Plugin> plugins);
 }
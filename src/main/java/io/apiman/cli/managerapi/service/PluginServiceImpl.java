@@ -17,14 +17,22 @@
 package io.apiman.cli.managerapi.service;
 
 import io.apiman.cli.command.plugin.model.Plugin;
+import io.apiman.cli.exception.DeclarativeException;
 import io.apiman.cli.managerapi.command.plugin.PluginApi;
 import io.apiman.cli.managerapi.management.ManagementApiUtil;
-import io.apiman.cli.util.BeanUtil;
+import io.apiman.cli.util.ConcurrencyUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 /**
  * Manages plugins.
  *
@@ -33,6 +41,12 @@ import java.util.List;
 public class PluginServiceImpl implements PluginService {
     private static final Logger LOGGER = LogManager.getLogger(PluginServiceImpl.class);
 
+    /**
+     * The maximum number of plugins installed concurrently. Each installation causes the server to
+     * download the plugin, so this is kept low.
+     */
+    private static final int INSTALL_PARALLELISM = 4;
+
     private ManagementApiService managementApiService;
 
     @Inject
@@ -46,35 +60,72 @@ public class PluginServiceImpl implements PluginService {
     @Override
     public void addPlugins(List<Plugin> plugins) {
         LOGGER.debug("Adding plugins");
+        installPlugins(findMissingPlugins(plugins));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Plugin> findMissingPlugins(List<Plugin> plugins) {
+        final PluginApi apiClient = managementApiService.buildServerApiClient(PluginApi.class);
 
-        plugins.forEach(plugin -> {
-            final PluginApi apiClient = managementApiService.buildServerApiClient(PluginApi.class);
+        // list the installed plugins once, rather than once per declared plugin
+        final Set<List<String>> installed = ManagementApiUtil.checkExists(apiClient::list)
+                .map(installedPlugins -> installedPlugins.stream()
+                        .map(PluginServiceImpl::buildKey)
+                        .collect(Collectors.toSet()))
+                .orElse(Collections.emptySet());
+
+        return plugins.stream()
+                .filter(plugin -> {
+                    if (installed.contains(buildKey(plugin))) {
+                        LOGGER.info("Plugin already installed: {}", plugin.getName());
+                        return false;
+                    }
+                    return true;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void installPlugins(List<Plugin> plugins) {
+        final Map<List<String>, Plugin> missing = new LinkedHashMap<>();
+        plugins.forEach(plugin -> missing.putIfAbsent(buildKey(plugin), plugin));
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        final PluginApi apiClient = managementApiService.buildServerApiClient(PluginApi.class);
+        final Map<Plugin, Exception> failures = ConcurrencyUtil.forEach(missing.values(),
+                Math.min(missing.size(), INSTALL_PARALLELISM), "install-plugin", plugin -> {
+                    LOGGER.info("Installing plugin: {}", plugin.getName());
+                    apiClient.create(plugin);
+                });
+
+        if (!failures.isEmpty()) {
+            failures.forEach((plugin, cause) -> LOGGER.error("Failed to install plugin: {}", describe(plugin), cause));
+            throw new DeclarativeException(String.format("Failed to install %d of %d plugins: %s",
+                    failures.size(), missing.size(), failures.keySet().stream()
+                            .map(PluginServiceImpl::describe)
+                            .collect(Collectors.joining(", "))));
+        }
+    }
 
-            if (checkPluginExists(plugin, apiClient)) {
-                LOGGER.info("Plugin already installed: {}", plugin.getName());
-            } else {
-                LOGGER.info("Installing plugin: {}", plugin.getName());
-                apiClient.create(plugin);
-            }
-        });
+    private static String describe(Plugin plugin) {
+        return plugin.getGroupId() + ":" + plugin.getArtifactId() + ":" + plugin.getVersion();
     }
 
     /**
-     * Determine if the plugin is installed.
+     * Plugins are identified by their coordinates.
      *
-     * @param plugin
-     * @param apiClient
-     * @return <code>true</code> if the plugin is installed, otherwise <code>false</code>
+     * @param plugin the plugin
+     * @return the key identifying the plugin
      */
-    private boolean checkPluginExists(Plugin plugin, PluginApi apiClient) {
-        return ManagementApiUtil.checkExists(apiClient::list)
-                .map(apiPolicies -> apiPolicies.stream()
-                        .anyMatch(installedPlugin ->
-                                plugin.getArtifactId().equals(installedPlugin.getArtifactId()) &&
-                                        plugin.getGroupId().equals(installedPlugin.getGroupId()) &&
-                                        plugin.getVersion().equals(installedPlugin.getVersion()) &&
-                                        BeanUtil.safeEquals(plugin.getClassifier(), installedPlugin.getClassifier())
-                        ))
-                .orElse(false);
+    private static List<String> buildKey(Plugin plugin) {
+        return Arrays.asList(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion(), plugin.getClassifier());
     }
 }
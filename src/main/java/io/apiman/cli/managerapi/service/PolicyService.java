@@ -40,17 +40,42 @@ public interface PolicyService {
                                   String apiName, String apiVersion);
 
     /**
-     * Apply the policies to the specified API.
+     * Fetch a single policy attached to the specified API, including its configuration.
+     *
+     * @param serverVersion the management server API version
+     * @param orgName       the organisation name
+     * @param apiName       the API name
+     * @param apiVersion    the API version
+     * @param policyId      the ID of the policy
+     * @return the policy
+     */
+    ApiPolicy fetchPolicy(ManagementApiVersion serverVersion, String orgName,
+                          String apiName, String apiVersion, Long policyId);
+
+    /**
+     * Add a new policy to the specified API.
+     *
+     * @param serverVersion the management server API version
+     * @param orgName       the organisation name
+     * @param apiName       the API name
+     * @param apiVersion    the API version
+     * @param policyName    the policy name
+     * @param apiPolicy     the policy to add
+     */
+    void addPolicy(ManagementApiVersion serverVersion, String orgName, String apiName, String apiVersion,
+                   String policyName, ApiPolicy apiPolicy);
+
+    /**
+     * Update the configuration of a policy already attached to the specified API.
      *
      * @param serverVersion the management server API version
      * @param orgName       the organisation name
      * @param apiName       the API name
      * @param apiVersion    the API version
-     * @param apiPolicies   the policies to apply.
      * @param policyName    the policy name
-     * @param apiPolicy     the policy to apply
+     * @param policyId      the ID of the existing policy
+     * @param apiPolicy     the policy configuration to apply
      */
-    void applyPolicies(ManagementApiVersion serverVersion, String orgName,
-                       String apiName, String apiVersion, List<ApiPolicy> apiPolicies,
-                       String policyName, ApiPolicy apiPolicy);
+    void configurePolicy(ManagementApiVersion serverVersion, String orgName, String apiName, String apiVersion,
+                         String policyName, Long policyId, ApiPolicy apiPolicy);
 }
@@ -24,9 +24,6 @@ import org.apache.logging.log4j.Logger;
 
 import javax.inject.Inject;
 import java.util.List;
-import java.util.Optional;
-
-import static io.apiman.cli.managerapi.command.common.model.ManagementApiVersion.v12x;
 
 /**
  * Manages policies.
@@ -58,35 +55,37 @@ public class PolicyServiceImpl implements PolicyService {
      * {@inheritDoc}
      */
     @Override
-    public void applyPolicies(ManagementApiVersion serverVersion, String orgName,
-                              String apiName, String apiVersion, List<ApiPolicy> apiPolicies,
-                              String policyName, ApiPolicy apiPolicy) {
+    public ApiPolicy fetchPolicy(ManagementApiVersion serverVersion, String orgName,
+                                 String apiName, String apiVersion, Long policyId) {
 
         final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(VersionAgnosticApi.class, serverVersion);
+        return apiClient.fetchPolicy(orgName, apiName, apiVersion, policyId);
+    }
 
-        // determine if the policy already exists for this API
-        final Optional<ApiPolicy> existingPolicy = apiPolicies.stream()
-                .filter(p -> policyName.equals(p.getPolicyDefinitionId()))
-                .findFirst();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addPolicy(ManagementApiVersion serverVersion, String orgName, String apiName, String apiVersion,
+                          String policyName, ApiPolicy apiPolicy) {
 
-        if (existingPolicy.isPresent()) {
-            if (v12x.equals(serverVersion)) {
-                // update the existing policy config
-                LOGGER.info("Updating existing policy '{}' configuration for API: {}", policyName, apiName);
+        LOGGER.info("Adding policy '{}' to API: {}", policyName, apiName);
 
-                final Long policyId = existingPolicy.get().getId();
-                apiClient.configurePolicy(orgName, apiName, apiVersion, policyId, apiPolicy);
+        final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(VersionAgnosticApi.class, serverVersion);
+        apiPolicy.setDefinitionId(policyName);
+        apiClient.addPolicy(orgName, apiName, apiVersion, apiPolicy);
+    }
 
-            } else {
-                LOGGER.info("Policy '{}' already exists for API '{}' - skipping configuration update", policyName, apiName);
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void configurePolicy(ManagementApiVersion serverVersion, String orgName, String apiName, String apiVersion,
+                                String policyName, Long policyId, ApiPolicy apiPolicy) {
 
-        } else {
-            // add new policy
-            LOGGER.info("Adding policy '{}' to API: {}", policyName, apiName);
+        LOGGER.info("Updating existing policy '{}' configuration for API: {}", policyName, apiName);
 
-            apiPolicy.setDefinitionId(policyName);
-            apiClient.addPolicy(orgName, apiName, apiVersion, apiPolicy);
-        }
+        final VersionAgnosticApi apiClient = managementApiService.buildServerApiClient(VersionAgnosticApi.class, serverVersion);
+        apiClient.configurePolicy(orgName, apiName, apiVersion, policyId, apiPolicy);
     }
 }
@@ -31,6 +31,9 @@ public class ServiceModule extends AbstractModule {
         bind(ApiService.class).to(ApiServiceImpl.class).in(Singleton.class);
         bind(PluginService.class).to(PluginServiceImpl.class).in(Singleton.class);
         bind(PolicyService.class).to(PolicyServiceImpl.class).in(Singleton.class);
+        bind(InventoryService.class).to(InventoryServiceImpl.class).in(Singleton.class);
+        bind(PlanService.class).to(PlanServiceImpl.class).in(Singleton.class);
         bind(DeclarativeService.class).to(DeclarativeServiceImpl.class).in(Singleton.class);
+        bind(ImportService.class).to(ImportServiceImpl.class).in(Singleton.class);
     }
 }
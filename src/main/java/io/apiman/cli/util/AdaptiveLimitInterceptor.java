@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.util;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Limits the requests in flight to each server using an {@link AdaptiveLimiter}, and retries requests
+ * the server did not process.
+ * <p>
+ * Throttled requests (429 or 503) are retried after the delay given by the server's {@code Retry-After}
+ * header. GET requests, which are idempotent, are also retried after network errors and gateway errors,
+ * with exponential backoff and jitter.
+ * <p>
+ * Status requests, which probe whether a server is up, are neither limited nor retried. A server that
+ * is still starting says nothing about its capacity, and readiness checks retry the probes themselves.
+ */
+class AdaptiveLimitInterceptor implements Interceptor {
+    private static final Logger LOGGER = LogManager.getLogger(AdaptiveLimitInterceptor.class);
+
+    static final int MAX_RETRIES = 3;
+
+    /**
+     * Delay, in milliseconds, before the first retry, when the server does not specify one.
+     */
+    static final long INITIAL_BACKOFF = 200;
+
+    /**
+     * Maximum delay, in milliseconds, before a retry, including those specified by the server.
+     */
+    static final long MAX_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final String STATUS_PATH = "/system/status";
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final Function<String, AdaptiveLimiter> limiters;
+    private final long initialBackoff;
+
+    /**
+     * @param limiters       provides the limiter for a server, given its host and port
+     * @param initialBackoff delay, in milliseconds, before the first retry
+     */
+    AdaptiveLimitInterceptor(Function<String, AdaptiveLimiter> limiters, long initialBackoff) {
+        this.limiters = limiters;
+        this.initialBackoff = initialBackoff;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (request.url().getPath().endsWith(STATUS_PATH)) {
+            return chain.proceed(request);
+        }
+
+        final AdaptiveLimiter limiter = limiters.apply(request.url().getHost() + ":" + request.url().getPort());
+        final boolean idempotent = "GET".equals(request.method());
+
+        for (int attempt = 0; ; attempt++) {
+            final long sent = acquire(limiter);
+            final long start = System.nanoTime();
+
+            final Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (ConnectException e) {
+                // the server is not running, which says nothing about its capacity
+                limiter.cancel();
+                throw e;
+
+            } catch (IOException e) {
+                limiter.release(sent, System.nanoTime() - start, false);
+                if (!idempotent || attempt >= MAX_RETRIES) {
+                    throw e;
+                }
+                LOGGER.debug("Retrying {} {} after error: {}", request.method(), request.urlString(), e.getMessage());
+                retryAfter(limiter, backoff(attempt));
+                continue;
+            }
+
+            final int status = response.code();
+            final boolean throttled = HTTP_TOO_MANY_REQUESTS == status || HttpURLConnection.HTTP_UNAVAILABLE == status;
+            limiter.release(sent, System.nanoTime() - start,
+                    !throttled && status < HttpURLConnection.HTTP_INTERNAL_ERROR);
+
+            final Long retryAfter = throttled ? parseRetryAfter(response.header(HEADER_RETRY_AFTER)) : null;
+            final boolean retryable = null != retryAfter
+                    || (idempotent && (throttled || HttpURLConnection.HTTP_BAD_GATEWAY == status
+                    || HttpURLConnection.HTTP_GATEWAY_TIMEOUT == status));
+
+            if (!retryable || attempt >= MAX_RETRIES) {
+                return response;
+            }
+
+            LOGGER.debug("Retrying {} {} after HTTP {}", request.method(), request.urlString(), status);
+            response.body().close();
+            retryAfter(limiter, null != retryAfter ? retryAfter : backoff(attempt));
+        }
+    }
+
+    private static long acquire(AdaptiveLimiter limiter) throws InterruptedIOException {
+        try {
+            return limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst waiting to send request");
+        }
+    }
+
+    private static void retryAfter(AdaptiveLimiter limiter, long delay) throws InterruptedIOException {
+        limiter.recordRetry();
+        try {
+            Thread.sleep(Math.min(delay, MAX_BACKOFF));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst waiting to retry request");
+        }
+    }
+
+    /**
+     * Equal jitter spreads out retries from concurrent requests.
+     *
+     * @return the delay, in milliseconds, before the given retry
+     */
+    private long backoff(int attempt) {
+        final long delay = initialBackoff << attempt;
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * @param retryAfter the value of the header, which may be a number of seconds or an HTTP date
+     * @return the delay, in milliseconds, or {@code null} if absent or not understood
+     */
+    static Long parseRetryAfter(String retryAfter) {
+        if (null == retryAfter) {
+            return null;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                final ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of requests in flight to a server, adapting the limit to what the server sustains.
+ * <p>
+ * The limit doubles each round trip until the server shows signs of congestion, then grows by one each
+ * round trip (additive increase). It is halved when the server throttles or fails a request, and reduced
+ * slightly when latency rises well above the lowest observed (multiplicative decrease).
+ * <p>
+ * Requests in flight when the limit is decreased were sent at the old limit, so their failures are part of
+ * the same congestion event, and do not decrease it again. The limit is decreased at most once per round trip.
+ */
+public class AdaptiveLimiter {
+    /**
+     * A request slower than this multiple of the lowest observed latency indicates congestion.
+     */
+    static final double LATENCY_TOLERANCE = 4.0;
+
+    /**
+     * Latency below this is never treated as congestion, in nanoseconds.
+     */
+    static final long MIN_CONGESTED_LATENCY = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final String server;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition belowLimit = lock.newCondition();
+
+    private double limit;
+    private boolean slowStart = true;
+    private int inFlight;
+    private long minLatency = Long.MAX_VALUE;
+
+    /**
+     * The number of requests sent before the limit was last decreased.
+     */
+    private long lastDecrease;
+
+    // statistics
+    private int peakInFlight;
+    private int peakLimit;
+    private long requests;
+    private long throttled;
+    private long retries;
+
+    /**
+     * @param server       the server whose requests are limited
+     * @param initialLimit the initial limit
+     * @param minLimit     the lowest the limit may fall to
+     * @param maxLimit     the highest the limit may rise to
+     */
+    public AdaptiveLimiter(String server, int initialLimit, int minLimit, int maxLimit) {
+        this.server = server;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.peakLimit = initialLimit;
+    }
+
+    /**
+     * Wait until a request may be sent.
+     *
+     * @return identifies the request when it is released
+     * @throws InterruptedException if interrupted whilst waiting
+     */
+    public long acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= getLimit()) {
+                belowLimit.await();
+            }
+            inFlight++;
+            requests++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+            return requests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record the outcome of a request sent after {@link #acquire()}.
+     *
+     * @param request   the request, as returned by {@link #acquire()}
+     * @param latency   the time taken by the request, in nanoseconds
+     * @param succeeded {@code false} if the server throttled or failed the request
+     */
+    public void release(long request, long latency, boolean succeeded) {
+        lock.lock();
+        try {
+            // only grow the limit if it is mostly used, otherwise it says nothing about the server
+            final boolean limited = inFlight * 2 >= getLimit();
+            inFlight--;
+
+            if (!succeeded) {
+                throttled++;
+                decrease(request, 0.5);
+
+            } else {
+                minLatency = Math.min(minLatency, latency);
+                if (latency > Math.max(MIN_CONGESTED_LATENCY, minLatency * LATENCY_TOLERANCE)) {
+                    decrease(request, 0.9);
+                } else if (limited) {
+                    // doubles, or grows by one, per round trip of the whole limit
+                    limit = Math.min(maxLimit, limit + (slowStart ? 1 : 1 / limit));
+                    peakLimit = Math.max(peakLimit, getLimit());
+                }
+            }
+            belowLimit.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release a request sent after {@link #acquire()}, without recording its outcome.
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            inFlight--;
+            belowLimit.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(long request, double factor) {
+        if (request <= lastDecrease) {
+            // sent before the last decrease
+            return;
+        }
+        slowStart = false;
+        limit = Math.max(minLimit, limit * factor);
+        lastDecrease = requests;
+    }
+
+    /**
+     * Record that a request is being retried.
+     */
+    public void recordRetry() {
+        lock.lock();
+        try {
+            retries++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the current limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the highest number of requests in flight at once
+     */
+    public int getPeakInFlight() {
+        lock.lock();
+        try {
+            return peakInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("%s: %d requests, peak %d concurrent, limit %d (peak %d), %d throttled or failed, %d retried",
+                    server, requests, peakInFlight, (int) limit, peakLimit, throttled, retries);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.apiman.cli.exception.CommandException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.Collections.synchronizedMap;
+
+/**
+ * Shared concurrency utility methods.
+ */
+public final class ConcurrencyUtil {
+    private ConcurrencyUtil() {
+    }
+
+    /**
+     * Apply the {@code action} to each of the {@code items}, using up to {@code parallelism} threads.
+     * <p>
+     * A failure to process one item does not prevent the remaining items being processed.
+     *
+     * @param items       the items to process
+     * @param parallelism the maximum number of items to process concurrently
+     * @param threadName  the prefix for worker thread names
+     * @param action      the action to apply to each item
+     * @param <T>         the item type
+     * @return the items that failed, mapped to the cause of their failure, in the order of {@code items}
+     */
+    public static <T> Map<T, Exception> forEach(Collection<T> items, int parallelism, String threadName,
+                                                Consumer<T> action) {
+
+        return forEach(items, Function.identity(), parallelism, threadName, action);
+    }
+
+    /**
+     * Apply the {@code action} to each of the {@code items}, using up to {@code parallelism} threads.
+     * <p>
+     * Items sharing the same key, as determined by {@code serialiseBy}, are processed one after another,
+     * in the order they appear in {@code items}. Items with different keys may be processed concurrently.
+     * A failure to process one item does not prevent the remaining items being processed.
+     *
+     * @param items       the items to process
+     * @param serialiseBy determines the key of an item; items with the same key are not processed concurrently
+     * @param parallelism the maximum number of items to process concurrently
+     * @param threadName  the prefix for worker thread names
+     * @param action      the action to apply to each item
+     * @param <T>         the item type
+     * @return the items that failed, mapped to the cause of their failure, in the order of {@code items}
+     */
+    public static <T> Map<T, Exception> forEach(Collection<T> items, Function<T, ?> serialiseBy, int parallelism,
+                                                String threadName, Consumer<T> action) {
+
+        final Map<T, Exception> failures = synchronizedMap(new IdentityHashMap<>());
+
+        // group items that must be processed serially
+        final Map<Object, List<T>> groups = new LinkedHashMap<>();
+        items.forEach(item -> groups.computeIfAbsent(serialiseBy.apply(item), key -> new ArrayList<>()).add(item));
+
+        final Consumer<List<T>> groupAction = group -> group.forEach(item -> accept(action, item, failures));
+
+        if (parallelism <= 1 || groups.size() <= 1) {
+            groups.values().forEach(groupAction);
+
+        } else {
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, groups.size()),
+                    new ThreadFactoryBuilder().setNameFormat(threadName + "-%d").setDaemon(true).build());
+
+            try {
+                final List<Future<?>> futures = new ArrayList<>();
+                groups.values().forEach(group -> futures.add(executor.submit(() -> groupAction.accept(group))));
+
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommandException("Interrupted whilst waiting for " + threadName + " tasks", e);
+
+            } catch (ExecutionException e) {
+                throw new CommandException("Unexpected error in " + threadName + " task", e.getCause());
+
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // report failures in a predictable order
+        final Map<T, Exception> orderedFailures = new LinkedHashMap<>();
+        items.stream()
+                .filter(failures::containsKey)
+                .forEach(item -> orderedFailures.put(item, failures.get(item)));
+
+        return orderedFailures;
+    }
+
+    /**
+     * Apply the {@code action} to each of the {@code items}, using up to {@code parallelism} threads, as the
+     * items are read from the Iterator.
+     * <p>
+     * No more than {@code capacity} items are read ahead of those that have been processed, so the items
+     * need never be held in memory at once. Items sharing the same key, as determined by {@code serialiseBy},
+     * are processed one after another, in the order they are read. A failure to process one item, even an
+     * {@link Error}, does not prevent the remaining items being processed. If reading an item fails, the items already read are
+     * processed before the failure is thrown.
+     *
+     * @param items       the items to process
+     * @param serialiseBy determines the key of an item; items with the same key are not processed concurrently
+     * @param parallelism the maximum number of items to process concurrently
+     * @param capacity    the maximum number of items read, but not yet processed
+     * @param threadName  the prefix for worker thread names
+     * @param action      the action to apply to each item
+     * @param <T>         the item type
+     * @return the items that failed, mapped to the cause of their failure, in the order they failed
+     */
+    public static <T> Map<T, Exception> forEach(Iterator<T> items, Function<T, ?> serialiseBy, int parallelism,
+                                                int capacity, String threadName, Consumer<T> action) {
+
+        final Map<T, Exception> failures = synchronizedMap(new LinkedHashMap<>());
+
+        if (parallelism <= 1) {
+            items.forEachRemaining(item -> accept(action, item, failures));
+            return new LinkedHashMap<>(failures);
+        }
+
+        // each permit allows one item to be read
+        final Semaphore permits = new Semaphore(Math.max(1, capacity));
+
+        // the keys being processed, mapped to the items waiting for them
+        final Map<Object, Queue<T>> active = new HashMap<>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat(threadName + "-%d").setDaemon(true).build());
+
+        try {
+            while (items.hasNext()) {
+                permits.acquire();
+                final T item = items.next();
+                final Object key = serialiseBy.apply(item);
+
+                synchronized (active) {
+                    final Queue<T> waiting = active.get(key);
+                    if (null != waiting) {
+                        waiting.add(item);
+                        continue;
+                    }
+                    active.put(key, new ArrayDeque<>());
+                }
+
+                executor.execute(() -> {
+                    T next = item;
+                    while (null != next) {
+                        try {
+                            accept(action, next, failures);
+                        } finally {
+                            permits.release();
+                        }
+
+                        synchronized (active) {
+                            next = active.get(key).poll();
+                            if (null == next) {
+                                active.remove(key);
+                            }
+                        }
+                    }
+                });
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandException("Interrupted whilst waiting for " + threadName + " tasks", e);
+
+        } finally {
+            // items already read are processed, even if reading the next one failed
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return new LinkedHashMap<>(failures);
+    }
+
+    /**
+     * Apply the {@code action} to the {@code item}, recording any failure, including an {@link Error},
+     * rather than letting it escape and stop the items that follow from being processed.
+     */
+    private static <T> void accept(Consumer<T> action, T item, Map<T, Exception> failures) {
+        try {
+            action.accept(item);
+        } catch (Exception e) {
+            failures.put(item, e);
+        } catch (Throwable t) {
+            failures.put(item, new CommandException("Unexpected error processing item", t));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import retrofit.client.Client;
+import retrofit.client.OkClient;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the HTTP transport shared by all management and gateway API clients.
+ */
+public final class HttpUtil {
+    private static final Logger LOGGER = LogManager.getLogger(HttpUtil.class);
+
+    /**
+     * Default connection timeout, in seconds.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10;
+
+    /**
+     * Default read timeout, in seconds.
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 60;
+
+    /**
+     * Maximum number of idle connections held in the pool.
+     */
+    private static final int MAX_IDLE_CONNECTIONS = 20;
+
+    /**
+     * Duration, in minutes, an idle connection is kept alive in the pool.
+     */
+    private static final long KEEP_ALIVE_DURATION = 5;
+
+    /**
+     * Request bodies smaller than this, in bytes, are not worth compressing.
+     */
+    static final long COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Initial number of concurrent requests to each server, before adapting to the server.
+     */
+    static final int INITIAL_CONCURRENCY_LIMIT = 4;
+
+    /**
+     * Maximum number of concurrent requests to each server.
+     */
+    public static final int MAX_CONCURRENCY_LIMIT = 64;
+
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String ENCODING_GZIP = "gzip";
+
+    private static int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private static int readTimeout = DEFAULT_READ_TIMEOUT;
+    private static boolean compressRequests;
+
+    /**
+     * Lazily initialised shared client.
+     */
+    private static Client client;
+
+    /**
+     * Concurrency limiters for each server, keyed by host and port. These outlive the client, so what
+     * is learned about a server is kept if the transport is reconfigured.
+     */
+    private static final Map<String, AdaptiveLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private HttpUtil() {
+    }
+
+    /**
+     * Configure the shared transport. Clients built after this call use the new configuration.
+     *
+     * @param connectTimeout   the connection timeout, in seconds
+     * @param readTimeout      the read timeout, in seconds
+     * @param compressRequests whether large request bodies should be gzip compressed
+     */
+    public static synchronized void configureTransport(int connectTimeout, int readTimeout, boolean compressRequests) {
+        if (connectTimeout != HttpUtil.connectTimeout || readTimeout != HttpUtil.readTimeout
+                || compressRequests != HttpUtil.compressRequests) {
+
+            HttpUtil.connectTimeout = connectTimeout;
+            HttpUtil.readTimeout = readTimeout;
+            HttpUtil.compressRequests = compressRequests;
+            client = null;
+        }
+    }
+
+    /**
+     * Responses are transparently decompressed if the server supports gzip encoding.
+     *
+     * @return the shared HTTP client, which pools and keeps alive connections
+     */
+    public static synchronized Client getClient() {
+        if (null == client) {
+            client = new OkClient(buildHttpClient());
+        }
+        return client;
+    }
+
+    /**
+     * Log the concurrency sustained by each server contacted, and the limit reached. This is only of
+     * interest if requests were sent concurrently.
+     */
+    public static void logConcurrencyLimits() {
+        LIMITERS.values().forEach(limiter -> {
+            if (limiter.getPeakInFlight() > 1) {
+                LOGGER.info("Concurrency for {}", limiter);
+            } else {
+                LOGGER.debug("Concurrency for {}", limiter);
+            }
+        });
+    }
+
+    private static OkHttpClient buildHttpClient() {
+        final OkHttpClient httpClient = new OkHttpClient();
+        httpClient.setConnectTimeout(connectTimeout, TimeUnit.SECONDS);
+        httpClient.setReadTimeout(readTimeout, TimeUnit.SECONDS);
+        httpClient.setWriteTimeout(readTimeout, TimeUnit.SECONDS);
+
+        final ConnectionPool connectionPool = new ConnectionPool(
+                MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION, TimeUnit.MINUTES);
+        httpClient.setConnectionPool(connectionPool);
+
+        // limit concurrency first, so retried requests pass through the remaining interceptors
+        httpClient.interceptors().add(new AdaptiveLimitInterceptor(server -> LIMITERS.computeIfAbsent(server,
+                key -> new AdaptiveLimiter(key, INITIAL_CONCURRENCY_LIMIT, 1, MAX_CONCURRENCY_LIMIT)),
+                AdaptiveLimitInterceptor.INITIAL_BACKOFF));
+
+        if (compressRequests) {
+            httpClient.interceptors().add(new GzipRequestInterceptor());
+        }
+
+        httpClient.interceptors().add(chain -> {
+            final Response response = chain.proceed(chain.request());
+            LOGGER.debug("Connection pool: {} connections, {} idle",
+                    connectionPool.getConnectionCount(), connectionPool.getIdleConnectionCount());
+            return response;
+        });
+
+        LOGGER.debug("Built HTTP transport with connect timeout {}s, read timeout {}s, request compression {}",
+                connectTimeout, readTimeout, compressRequests ? "enabled" : "disabled");
+
+        return httpClient;
+    }
+
+    /**
+     * Compresses request bodies larger than {@link #COMPRESSION_THRESHOLD}.
+     */
+    static class GzipRequestInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            final Request request = chain.request();
+            final RequestBody body = request.body();
+
+            if (null == body || null != request.header(HEADER_CONTENT_ENCODING)
+                    || body.contentLength() < COMPRESSION_THRESHOLD) {
+                return chain.proceed(request);
+            }
+
+            final Request compressed = request.newBuilder()
+                    .header(HEADER_CONTENT_ENCODING, ENCODING_GZIP)
+                    .method(request.method(), gzip(body))
+                    .build();
+
+            return chain.proceed(compressed);
+        }
+
+        private static RequestBody gzip(RequestBody body) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return body.contentType();
+                }
+
+                @Override
+                public long contentLength() {
+                    // not known in advance
+                    return -1;
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    final BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+                    body.writeTo(gzipSink);
+                    gzipSink.close();
+                }
+            };
+        }
+    }
+}
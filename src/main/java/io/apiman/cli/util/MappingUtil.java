@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import com.google.common.collect.Lists;
 import io.apiman.cli.command.api.model.ApiConfig;
 import io.apiman.cli.command.api.model.ApiGateway;
@@ -38,6 +39,7 @@ import org.modelmapper.config.Configuration;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Collection;
+import java.util.function.Function;
 
 /**
  * Shared POJO/JSON/YAML mapping utility methods.
@@ -48,10 +50,15 @@ public final class MappingUtil {
     private static final Logger LOGGER = LogManager.getLogger(MappingUtil.class);
 
     /**
-     * JSON -> POJO
+     * JSON -> POJO, and POJO -> JSON for display
      */
     public static final ObjectMapper JSON_MAPPER;
 
+    /**
+     * POJO -> JSON, and JSON -> POJO, for server requests and responses. Output is compact.
+     */
+    public static final ObjectMapper WIRE_MAPPER;
+
     /**
      * YAML -> POJO
      */
@@ -66,6 +73,9 @@ public final class MappingUtil {
         JSON_MAPPER = new ObjectMapper();
         JSON_MAPPER.enable(SerializationFeature.INDENT_OUTPUT);
 
+        WIRE_MAPPER = new ObjectMapper();
+        WIRE_MAPPER.registerModule(new AfterburnerModule());
+
         YAML_MAPPER = new ObjectMapper(new YAMLFactory());
         YAML_MAPPER.enable(SerializationFeature.INDENT_OUTPUT);
 
@@ -76,12 +86,24 @@ public final class MappingUtil {
     }
 
     /**
-     * @param obj the Object to write as a JSON String
+     * @param obj the Object to write as an indented JSON String, for display
      * @return the {@code obj} as JSON, or {@code null} if an error occurs
      */
     public static String safeWriteValueAsJson(Object obj) {
+        return safeWriteValueAsJson(JSON_MAPPER, obj);
+    }
+
+    /**
+     * @param obj the Object to write as a compact JSON String, to be sent to a server
+     * @return the {@code obj} as JSON, or {@code null} if an error occurs
+     */
+    public static String safeWriteValueAsWireJson(Object obj) {
+        return safeWriteValueAsJson(WIRE_MAPPER, obj);
+    }
+
+    private static String safeWriteValueAsJson(ObjectMapper mapper, Object obj) {
         try {
-            return JSON_MAPPER.writeValueAsString(obj);
+            return mapper.writeValueAsString(obj);
 
         } catch (NullPointerException | JsonProcessingException e) {
             LOGGER.trace(String.format("Error writing value as JSON string: %s", obj), e);
@@ -89,6 +111,26 @@ public final class MappingUtil {
         }
     }
 
+    /**
+     * Whether two JSON documents are equivalent, disregarding formatting and the order of object fields.
+     *
+     * @param json1 a nullable JSON document
+     * @param json2 a nullable JSON document
+     * @return <code>true</code> if the documents are equivalent, otherwise <code>false</code>
+     */
+    public static boolean jsonEquals(String json1, String json2) {
+        if (null == json1 || null == json2) {
+            return BeanUtil.safeEquals(json1, json2);
+        }
+        try {
+            return JSON_MAPPER.readTree(json1).equals(JSON_MAPPER.readTree(json2));
+
+        } catch (IOException e) {
+            LOGGER.trace("Unable to compare values as JSON - falling back to string comparison", e);
+            return json1.equals(json2);
+        }
+    }
+
     /**
      * Unmarshall the contents of given string into instance of klazz
      *
@@ -139,6 +181,9 @@ public final class MappingUtil {
     /**
      * Return an instance of {@code destinationClass} with a copy of identical fields to those found
      * in {@code source}.
+     * <p>
+     * The mappings made for each declared item are specialised, so avoid reflection. Other mappings
+     * are made reflectively, using the {@link #MODEL_MAPPER}.
      *
      * @param source           the source object
      * @param destinationClass the return type Class definition
@@ -147,6 +192,17 @@ public final class MappingUtil {
      * @return an instance of {@code destinationClass} containing the copied fields
      */
     public static <S, D> D map(S source, Class<D> destinationClass) {
+        final Function<Object, Object> mapper = ModelMappers.find(source.getClass(), destinationClass);
+        if (null != mapper) {
+            return destinationClass.cast(mapper.apply(source));
+        }
+        return mapReflectively(source, destinationClass);
+    }
+
+    /**
+     * As {@link #map(Object, Class)}, always using the {@link #MODEL_MAPPER}.
+     */
+    static <S, D> D mapReflectively(S source, Class<D> destinationClass) {
         try {
             /*
              * Explicitly instantiate the destination to avoid ModelMapper returning the source object
@@ -185,7 +241,7 @@ public final class MappingUtil {
         // PostConverter for DeclarativeGateway -> Gateway
         mapper.createTypeMap(DeclarativeGateway.class, Gateway.class).setPostConverter(context -> {
             final Gateway gateway = context.getDestination();
-            gateway.setConfiguration(safeWriteValueAsJson(context.getSource().getConfig()));
+            gateway.setConfiguration(safeWriteValueAsWireJson(context.getSource().getConfig()));
             return gateway;
         });
 
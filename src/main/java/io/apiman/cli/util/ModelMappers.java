@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Lists;
+import io.apiman.cli.command.api.model.Api;
+import io.apiman.cli.command.api.model.ApiConfig;
+import io.apiman.cli.command.api.model.ApiGateway;
+import io.apiman.cli.command.api.model.EndpointProperties;
+import io.apiman.cli.command.api.model.ServiceConfig;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.command.declarative.model.DeclarativeApiConfig;
+import io.apiman.cli.command.declarative.model.DeclarativeEndpointSecurity;
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.command.gateway.model.Gateway;
+import io.apiman.cli.command.org.model.Org;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Mappers specialised for the POJO -> POJO mappings made for each declared item, which copy fields
+ * directly, rather than matching and copying them reflectively. Each produces the same result as the
+ * reflective mapping, including its post-conversion steps. Mappers are stateless, so are safe for
+ * concurrent use.
+ */
+final class ModelMappers {
+    /**
+     * Mappers, keyed by exact source class, then destination class.
+     */
+    private static final ImmutableTable<Class<?>, Class<?>, Function<Object, Object>> MAPPERS =
+            ImmutableTable.<Class<?>, Class<?>, Function<Object, Object>>builder()
+                    .put(DeclarativeGateway.class, Gateway.class, source -> toGateway((DeclarativeGateway) source))
+                    .put(DeclarativeOrg.class, Org.class, source -> toOrg((Org) source))
+                    .put(DeclarativeApi.class, Api.class, source -> new Api((Api) source))
+                    .put(DeclarativeApiConfig.class, ApiConfig.class, source -> toApiConfig((DeclarativeApiConfig) source))
+                    .put(DeclarativeEndpointSecurity.class, EndpointProperties.class,
+                            source -> toEndpointProperties((DeclarativeEndpointSecurity) source))
+                    .put(ApiConfig.class, ServiceConfig.class, source -> toServiceConfig((ApiConfig) source))
+                    .build();
+
+    private ModelMappers() {
+    }
+
+    /**
+     * @param sourceClass      the class of the source object
+     * @param destinationClass the destination class
+     * @return the mapper, or {@code null} if there is no mapper specialised for the classes
+     */
+    static Function<Object, Object> find(Class<?> sourceClass, Class<?> destinationClass) {
+        return MAPPERS.get(sourceClass, destinationClass);
+    }
+
+    /**
+     * The gateway configuration is written as JSON.
+     */
+    static Gateway toGateway(DeclarativeGateway source) {
+        return new Gateway(source.getName(), source.getDescription(), source.getType(),
+                MappingUtil.safeWriteValueAsWireJson(source.getConfig()));
+    }
+
+    static Org toOrg(Org source) {
+        return new Org(source.getName(), source.getDescription());
+    }
+
+    /**
+     * The API is made public if the declaration says so, on the single declared gateway.
+     */
+    static ApiConfig toApiConfig(DeclarativeApiConfig source) {
+        final ApiConfig apiConfig = new ApiConfig(source.getEndpoint(), source.getEndpointType(),
+                source.isMakePublic(), Lists.newArrayList(new ApiGateway(source.getGateway())));
+
+        apiConfig.setEndpointProperties(ofNullable(source.getEndpointProperties())
+                .map(ModelMappers::copyEndpointProperties)
+                .orElse(null));
+
+        return apiConfig;
+    }
+
+    static EndpointProperties toEndpointProperties(DeclarativeEndpointSecurity source) {
+        final EndpointProperties endpointProperties = new EndpointProperties();
+        endpointProperties.setAuthorizationType(source.getAuthorizationType());
+        endpointProperties.setPassword(source.getPassword());
+        endpointProperties.setUsername(source.getUsername());
+        endpointProperties.setRequireSsl(source.getRequireSsl());
+        return endpointProperties;
+    }
+
+    static ServiceConfig toServiceConfig(ApiConfig source) {
+        return new ServiceConfig(source.getEndpoint(), source.getEndpointType(), source.isPublicApi(),
+                copyGateways(source.getGateways()));
+    }
+
+    private static EndpointProperties copyEndpointProperties(EndpointProperties source) {
+        final EndpointProperties endpointProperties = new EndpointProperties();
+        endpointProperties.setAuthorizationType(source.getAuthorizationType());
+        endpointProperties.setPassword(source.getPassword());
+        endpointProperties.setUsername(source.getUsername());
+        endpointProperties.setRequireSsl(source.isRequireSsl());
+        return endpointProperties;
+    }
+
+    private static List<ApiGateway> copyGateways(List<ApiGateway> source) {
+        if (null == source) {
+            return null;
+        }
+        final List<ApiGateway> gateways = new ArrayList<>(source.size());
+        source.forEach(gateway -> gateways.add(new ApiGateway(gateway.getGatewayId())));
+        return gateways;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.common.plugin.PluginCoordinates;
+import io.apiman.common.plugin.PluginUtils;
+import io.apiman.manager.api.beans.policies.PolicyDefinitionBean;
+import io.apiman.manager.api.core.exceptions.InvalidPluginException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * A persistent cache of plugin artifacts, and an index of the policy definitions they contain,
+ * shared between runs and safe for concurrent use by multiple CLI processes.
+ * <p>
+ * Plugin artifacts are stored beneath the cache directory by the plugin registry. The index holds
+ * the parsed policy definitions for each plugin, so repeat resolutions need no archive I/O.
+ * Snapshot plugins are never indexed, as their contents may change.
+ */
+public class PluginCache {
+    private static final Logger LOGGER = LogManager.getLogger(PluginCache.class);
+
+    public static final File DEFAULT_CACHE_DIR = new File(System.getProperty("user.home"), ".apiman-cli/plugins");
+    public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+    public static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+    private static final String INDEX_DIR = ".index";
+    private static final String LOCK_DIR = ".locks";
+    private static final String EVICTION_LOCK = "eviction";
+
+    /**
+     * File locks are held by the JVM, so threads in this process must also be excluded from one another.
+     */
+    private static final Map<String, Object> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final File cacheDir;
+    private final long maxSize;
+    private final long maxAge;
+
+    public PluginCache() {
+        this(DEFAULT_CACHE_DIR, DEFAULT_MAX_SIZE, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * @param cacheDir the cache directory
+     * @param maxSize  the size, in bytes, above which least recently used plugins are evicted
+     * @param maxAge   the time, in milliseconds, after which unused plugins are evicted
+     */
+    public PluginCache(File cacheDir, long maxSize, long maxAge) {
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+
+        new File(cacheDir, INDEX_DIR).mkdirs();
+        new File(cacheDir, LOCK_DIR).mkdirs();
+    }
+
+    /**
+     * @return the directory in which plugin artifacts are stored
+     */
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * Read the policy definitions for the plugin from the index, marking the plugin as recently used.
+     *
+     * @param coordinates the plugin coordinates
+     * @return the policy definitions, or empty if the plugin is not indexed
+     */
+    public Optional<List<PolicyDefinitionBean>> readIndex(PluginCoordinates coordinates) {
+        if (PluginUtils.isSnapshot(coordinates)) {
+            return Optional.empty();
+        }
+
+        final File indexFile = getIndexFile(buildKey(coordinates));
+        if (!indexFile.isFile()) {
+            return Optional.empty();
+        }
+
+        try {
+            final IndexEntry entry = MappingUtil.WIRE_MAPPER.readValue(indexFile, IndexEntry.class);
+            indexFile.setLastModified(System.currentTimeMillis());
+            return ofNullable(entry.policyDefinitions);
+
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable plugin index entry: {}", indexFile, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Record the policy definitions contained in the plugin. The index file is replaced atomically,
+     * so concurrent readers see either the old or the new entry.
+     *
+     * @param coordinates       the plugin coordinates
+     * @param policyDefinitions the policy definitions in the plugin
+     */
+    public void writeIndex(PluginCoordinates coordinates, List<PolicyDefinitionBean> policyDefinitions) {
+        if (PluginUtils.isSnapshot(coordinates)) {
+            return;
+        }
+
+        final IndexEntry entry = new IndexEntry();
+        entry.coordinates = coordinates.toString();
+        entry.pluginPath = PluginUtils.getPluginRelativePath(coordinates);
+        entry.policyDefinitions = policyDefinitions;
+
+        final File indexFile = getIndexFile(buildKey(coordinates));
+        try {
+            final Path tempFile = Files.createTempFile(indexFile.getParentFile().toPath(), indexFile.getName(), ".tmp");
+            MappingUtil.WIRE_MAPPER.writeValue(tempFile.toFile(), entry);
+            Files.move(tempFile, indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write plugin index entry: {}", indexFile, e);
+        }
+    }
+
+    /**
+     * Perform the action whilst holding an exclusive lock on the plugin, across all threads and processes.
+     *
+     * @param coordinates the plugin coordinates
+     * @param action      the action to perform
+     * @param <T>         the result type
+     * @return the result of the action
+     * @throws InvalidPluginException if the action fails
+     */
+    public <T> T withLock(PluginCoordinates coordinates, LockedAction<T> action) throws InvalidPluginException {
+        return withLock(buildKey(coordinates), action);
+    }
+
+    private <T> T withLock(String key, LockedAction<T> action) throws InvalidPluginException {
+        synchronized (PROCESS_LOCKS.computeIfAbsent(key, k -> new Object())) {
+            try (FileChannel channel = openLockFile(key);
+                 FileLock ignored = channel.lock()) {
+
+                return action.call();
+
+            } catch (IOException e) {
+                throw new CommandException("Unable to lock plugin cache entry: " + key, e);
+            }
+        }
+    }
+
+    /**
+     * Evict plugins that have not been used within the maximum age, then evict the least recently
+     * used plugins until the cache is within the maximum size. Eviction is skipped if another
+     * process is already evicting.
+     */
+    public void evict() {
+        synchronized (PROCESS_LOCKS.computeIfAbsent(EVICTION_LOCK, k -> new Object())) {
+            try (FileChannel channel = openLockFile(EVICTION_LOCK);
+                 FileLock lock = channel.tryLock()) {
+
+                if (null == lock) {
+                    LOGGER.debug("Plugin cache eviction already in progress");
+                    return;
+                }
+                evictEntries();
+
+            } catch (IOException e) {
+                LOGGER.warn("Unable to evict plugins from cache: {}", cacheDir, e);
+            }
+        }
+    }
+
+    private void evictEntries() {
+        final File[] indexFiles = ofNullable(new File(cacheDir, INDEX_DIR).listFiles(
+                (dir, name) -> name.endsWith(".json"))).orElse(new File[0]);
+
+        // least recently used first
+        final List<File> entries = Arrays.stream(indexFiles)
+                .sorted(Comparator.comparingLong(File::lastModified))
+                .collect(Collectors.toList());
+
+        final long now = System.currentTimeMillis();
+        long totalSize = entries.stream().mapToLong(this::sizeOf).sum();
+
+        for (File indexFile : entries) {
+            final boolean expired = now - indexFile.lastModified() > maxAge;
+            if (!expired && totalSize <= maxSize) {
+                break;
+            }
+            totalSize -= sizeOf(indexFile);
+            evictEntry(indexFile);
+        }
+    }
+
+    private void evictEntry(File indexFile) {
+        final String key = indexFile.getName().substring(0, indexFile.getName().length() - ".json".length());
+        try {
+            withLock(key, () -> {
+                readPluginDir(indexFile).ifPresent(PluginCache::deleteRecursively);
+                indexFile.delete();
+                LOGGER.debug("Evicted plugin from cache: {}", key);
+                return null;
+            });
+        } catch (Exception e) {
+            LOGGER.warn("Unable to evict plugin from cache: {}", indexFile, e);
+        }
+    }
+
+    /**
+     * @return the size of the indexed plugin, and its index entry, in bytes
+     */
+    private long sizeOf(File indexFile) {
+        return indexFile.length() + readPluginDir(indexFile).map(PluginCache::sizeOfDirectory).orElse(0L);
+    }
+
+    private Optional<File> readPluginDir(File indexFile) {
+        try {
+            final IndexEntry entry = MappingUtil.WIRE_MAPPER.readValue(indexFile, IndexEntry.class);
+            return ofNullable(entry.pluginPath).map(pluginPath -> new File(cacheDir, pluginPath));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private FileChannel openLockFile(String key) throws IOException {
+        return FileChannel.open(new File(new File(cacheDir, LOCK_DIR), key + ".lock").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private File getIndexFile(String key) {
+        return new File(new File(cacheDir, INDEX_DIR), key + ".json");
+    }
+
+    /**
+     * @return a file name safe key, unique to the full coordinates of the plugin
+     */
+    private static String buildKey(PluginCoordinates coordinates) {
+        final String gav = String.join(":", coordinates.getGroupId(), coordinates.getArtifactId(),
+                coordinates.getVersion(), String.valueOf(coordinates.getClassifier()), String.valueOf(coordinates.getType()));
+
+        return Hashing.sha1().hashString(gav, Charsets.UTF_8).toString();
+    }
+
+    private static long sizeOfDirectory(File dir) {
+        if (!dir.exists()) {
+            return 0;
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            return paths.map(Path::toFile).filter(File::isFile).mapToLong(File::length).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteRecursively(File dir) {
+        if (!dir.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete plugin directory: {}", dir, e);
+        }
+    }
+
+    /**
+     * An action performed whilst holding a plugin lock.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface LockedAction<T> {
+        T call() throws InvalidPluginException;
+    }
+
+    /**
+     * The index entry for a plugin.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class IndexEntry {
+        @JsonProperty
+        private String coordinates;
+
+        @JsonProperty
+        private String pluginPath;
+
+        @JsonProperty
+        private List<PolicyDefinitionBean> policyDefinitions;
+    }
+}
@@ -17,7 +17,6 @@
 package io.apiman.cli.util;
 
 import com.google.common.collect.Lists;
-import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import io.apiman.cli.exception.CommandException;
 import io.apiman.common.plugin.Plugin;
@@ -33,6 +32,7 @@ import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static java.util.Optional.ofNullable;
@@ -46,8 +46,16 @@ public final class PolicyResolver extends AbstractPluginRegistry {
     private static final Logger LOGGER = LogManager.getLogger(PolicyResolver.class);
     private static final Map<String, PolicyDefinitionBean> inbuiltPolicyMap = new LinkedHashMap<>();
 
+    private final PluginCache pluginCache;
+
     public PolicyResolver() {
-        super(Files.createTempDir());
+        this(new PluginCache());
+    }
+
+    public PolicyResolver(PluginCache pluginCache) {
+        super(pluginCache.getCacheDir());
+        this.pluginCache = pluginCache;
+        pluginCache.evict();
         buildInbuiltPolicyMap();
         LOGGER.debug("Inbuilt policy map: {}", inbuiltPolicyMap);
     }
@@ -81,12 +89,9 @@ public final class PolicyResolver extends AbstractPluginRegistry {
      * @throws InvalidPluginException if the plugin is invalid
      */
     public PolicyDefinitionBean getPolicyDefinition(PluginCoordinates coordinates, String policyId) throws InvalidPluginException {
-        Plugin plugin = super.loadPlugin(coordinates);
-        List<PolicyDefinitionBean> policyDefs = plugin.getPolicyDefinitions().stream()
-                .map(url -> MappingUtil.readJsonValue(url, PolicyDefinitionBean.class))
-                .collect(Collectors.toList()); // TODO Consider PluginResourceImpl L189 extract common validation aspects
+        List<PolicyDefinitionBean> policyDefs = loadPolicyDefinitions(coordinates);
 
-        LOGGER.debug("Plugin {} contains {} policy definitions", plugin.getCoordinates(), policyDefs.size());
+        LOGGER.debug("Plugin {} contains {} policy definitions", coordinates, policyDefs.size());
         PolicyDefinitionBean selected = null;
 
         if (policyDefs.isEmpty()) {
@@ -110,6 +115,38 @@ public final class PolicyResolver extends AbstractPluginRegistry {
         return selected;
     }
 
+    /**
+     * Read the policy definitions from the plugin cache index, falling back to loading the plugin
+     * if it has not been indexed.
+     *
+     * @param coordinates apiman plugin coordinates GAV(C)
+     * @return the policy definitions contained in the plugin
+     * @throws InvalidPluginException if the plugin is invalid
+     */
+    private List<PolicyDefinitionBean> loadPolicyDefinitions(PluginCoordinates coordinates) throws InvalidPluginException {
+        final Optional<List<PolicyDefinitionBean>> indexed = pluginCache.readIndex(coordinates);
+        if (indexed.isPresent()) {
+            LOGGER.debug("Using cached policy definitions for plugin {}", coordinates);
+            return indexed.get();
+        }
+
+        return pluginCache.withLock(coordinates, () -> {
+            // another process may have indexed the plugin whilst we waited for the lock
+            final Optional<List<PolicyDefinitionBean>> indexedByOther = pluginCache.readIndex(coordinates);
+            if (indexedByOther.isPresent()) {
+                return indexedByOther.get();
+            }
+
+            Plugin plugin = super.loadPlugin(coordinates);
+            List<PolicyDefinitionBean> policyDefs = plugin.getPolicyDefinitions().stream()
+                    .map(url -> MappingUtil.readJsonValue(url, PolicyDefinitionBean.class))
+                    .collect(Collectors.toList()); // TODO Consider PluginResourceImpl L189 extract common validation aspects
+
+            pluginCache.writeIndex(coordinates, policyDefs);
+            return policyDefs;
+        });
+    }
+
     public PolicyDefinitionBean getInbuiltPolicy(String shortName) {
         return ofNullable(inbuiltPolicyMap.get(shortName.toLowerCase()))
                 .orElseThrow(() -> new NoSuchBuiltInPolicyException(shortName));
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.apiman.cli.exception.CommandException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Waits for servers to be ready, probing each concurrently with exponential backoff and jitter,
+ * until all are ready or a single overall deadline passes.
+ */
+public final class ReadinessUtil {
+    private static final Logger LOGGER = LogManager.getLogger(ReadinessUtil.class);
+
+    /**
+     * Delay, in milliseconds, before the second probe of an endpoint.
+     */
+    static final long INITIAL_DELAY = 250;
+
+    /**
+     * Maximum delay, in milliseconds, between probes of an endpoint.
+     */
+    static final long MAX_DELAY = 5000;
+
+    private ReadinessUtil() {
+    }
+
+    /**
+     * Wait for all endpoints to be ready.
+     *
+     * @param probes  the readiness probe for each endpoint; a probe that throws is treated as not ready
+     * @param timeout the time, in seconds, to wait for all endpoints
+     * @return the time, in milliseconds, each endpoint took to become ready, in the order of {@code probes}
+     * @throws CommandException if any endpoint is not ready before the deadline
+     */
+    public static Map<String, Long> awaitReady(Map<String, BooleanSupplier> probes, int timeout) {
+        return awaitReady(probes, TimeUnit.SECONDS.toMillis(timeout), INITIAL_DELAY, MAX_DELAY);
+    }
+
+    static Map<String, Long> awaitReady(Map<String, BooleanSupplier> probes, long timeoutMillis,
+                                        long initialDelay, long maxDelay) {
+
+        LOGGER.info("Waiting {} seconds for {} server(s) to start...",
+                TimeUnit.MILLISECONDS.toSeconds(timeoutMillis), probes.size());
+
+        final long start = System.currentTimeMillis();
+        final long deadline = start + timeoutMillis;
+        final Map<String, Long> timesToReady = new ConcurrentHashMap<>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, probes.size()),
+                new ThreadFactoryBuilder().setNameFormat("readiness-%d").setDaemon(true).build());
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            probes.forEach((endpoint, probe) -> futures.add(executor.submit(() -> {
+                if (probeUntilReady(endpoint, probe, deadline, initialDelay, maxDelay)) {
+                    final long timeToReady = System.currentTimeMillis() - start;
+                    LOGGER.info("Server {} ready after {}ms", endpoint, timeToReady);
+                    timesToReady.put(endpoint, timeToReady);
+                }
+                return null;
+            })));
+
+            for (Future<?> future : futures) {
+                try {
+                    // a probe blocked past the deadline is treated as not ready
+                    future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ignored) {
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandException("Interrupted whilst waiting for servers to start", e);
+
+        } catch (ExecutionException e) {
+            throw new CommandException("Unexpected error waiting for servers to start", e.getCause());
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final List<String> notReady = probes.keySet().stream()
+                .filter(endpoint -> !timesToReady.containsKey(endpoint))
+                .collect(Collectors.toList());
+
+        if (!notReady.isEmpty()) {
+            throw new CommandException(String.format("Timed out after %d seconds waiting for server(s) to start: %s",
+                    TimeUnit.MILLISECONDS.toSeconds(timeoutMillis), String.join(", ", notReady)));
+        }
+
+        // report in a predictable order
+        final Map<String, Long> orderedTimes = new LinkedHashMap<>();
+        probes.keySet().forEach(endpoint -> orderedTimes.put(endpoint, timesToReady.get(endpoint)));
+        return orderedTimes;
+    }
+
+    /**
+     * @return {@code true} if the endpoint became ready before the deadline, otherwise {@code false}
+     */
+    private static boolean probeUntilReady(String endpoint, BooleanSupplier probe, long deadline,
+                                           long initialDelay, long maxDelay) throws InterruptedException {
+        long delay = initialDelay;
+        while (true) {
+            try {
+                if (probe.getAsBoolean()) {
+                    return true;
+                }
+            } catch (Exception e) {
+                LOGGER.trace("Server {} not ready", endpoint, e);
+            }
+
+            final long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+
+            // equal jitter spreads out probes from many CLI instances
+            final long jitteredDelay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+            Thread.sleep(Math.min(jitteredDelay, remaining));
+            delay = Math.min(delay * 2, maxDelay);
+        }
+    }
+}
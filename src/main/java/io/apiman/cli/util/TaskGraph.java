@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.util;
+
+import io.apiman.cli.exception.CommandException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * A graph of tasks and the tasks they depend on. Each task is started as soon as all of its dependencies
+ * have succeeded, on a work-stealing pool, so independent branches of the graph run concurrently.
+ * <p>
+ * A failed task does not prevent independent tasks running, but the tasks that depend on it are skipped.
+ * A task fails if its action throws anything, including an {@link Error}, which is recorded as its failure.
+ */
+public class TaskGraph {
+    public enum Status {
+        PENDING,
+        SUCCEEDED,
+        FAILED,
+        SKIPPED
+    }
+
+    /**
+     * A task in the graph.
+     */
+    public static class Task {
+        private final String name;
+        private final Runnable action;
+        private final List<Task> dependencies;
+        private final List<Task> dependents = new ArrayList<>();
+        private final AtomicInteger remainingDependencies = new AtomicInteger();
+        private volatile Status status = Status.PENDING;
+        private volatile Exception failure;
+        private volatile long startTime;
+        private volatile long endTime;
+
+        private Task(String name, Runnable action, List<Task> dependencies) {
+            this.name = name;
+            this.action = action;
+            this.dependencies = dependencies;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Exception getFailure() {
+            return failure;
+        }
+
+        /**
+         * @return the time the task took to run, in milliseconds, or zero if it did not run
+         */
+        public long getDuration() {
+            return hasRun() ? TimeUnit.NANOSECONDS.toMillis(endTime - startTime) : 0;
+        }
+
+        private boolean hasRun() {
+            return Status.SUCCEEDED == status || Status.FAILED == status;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+
+    /**
+     * Add a task to the graph. Tasks must be added after the tasks they depend on, so the graph cannot
+     * contain cycles.
+     *
+     * @param name         the name of the task
+     * @param action       the action to run
+     * @param dependencies the tasks that must succeed before this task runs; {@code null} values are ignored
+     * @return the task
+     */
+    public Task add(String name, Runnable action, Task... dependencies) {
+        final List<Task> distinctDependencies = Arrays.stream(dependencies)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+
+        final Task task = new Task(name, action, distinctDependencies);
+        distinctDependencies.forEach(dependency -> dependency.dependents.add(task));
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * @return the tasks, in the order they were added
+     */
+    public List<Task> getTasks() {
+        return Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * Run every task in the graph, returning once every task has either run or been skipped.
+     *
+     * @param parallelism the maximum number of tasks to run concurrently
+     * @param threadName  the prefix for worker thread names
+     */
+    public void execute(int parallelism, String threadName) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, tasks.size())), forkJoinPool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(threadName + "-" + thread.getPoolIndex());
+            return thread;
+        }, null, true);
+
+        final CountDownLatch remainingTasks = new CountDownLatch(tasks.size());
+        tasks.forEach(task -> task.remainingDependencies.set(task.dependencies.size()));
+
+        try {
+            tasks.stream()
+                    .filter(task -> task.dependencies.isEmpty())
+                    .forEach(task -> schedule(task, pool, remainingTasks));
+
+            remainingTasks.await();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandException("Interrupted whilst waiting for " + threadName + " tasks", e);
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void schedule(Task task, ForkJoinPool pool, CountDownLatch remainingTasks) {
+        if (task.dependencies.stream().allMatch(dependency -> Status.SUCCEEDED == dependency.status)) {
+            pool.execute(() -> run(task, pool, remainingTasks));
+        } else {
+            task.status = Status.SKIPPED;
+            complete(task, pool, remainingTasks);
+        }
+    }
+
+    private void run(Task task, ForkJoinPool pool, CountDownLatch remainingTasks) {
+        task.startTime = System.nanoTime();
+        Status status = Status.FAILED;
+        try {
+            task.action.run();
+            status = Status.SUCCEEDED;
+
+        } catch (Exception e) {
+            task.failure = e;
+
+        } catch (Throwable t) {
+            task.failure = new CommandException("Unexpected error in task: " + task.getName(), t);
+
+        } finally {
+            task.endTime = System.nanoTime();
+            task.status = status;
+            complete(task, pool, remainingTasks);
+        }
+    }
+
+    /**
+     * Schedule each dependent whose dependencies are now complete.
+     */
+    private void complete(Task task, ForkJoinPool pool, CountDownLatch remainingTasks) {
+        task.dependents.forEach(dependent -> {
+            if (0 == dependent.remainingDependencies.decrementAndGet()) {
+                schedule(dependent, pool, remainingTasks);
+            }
+        });
+        remainingTasks.countDown();
+    }
+
+    /**
+     * Determine the critical path: the chain of dependencies that finished last, which bounded the
+     * total time taken.
+     *
+     * @return the tasks on the critical path, in the order they ran
+     */
+    public List<Task> getCriticalPath() {
+        final Comparator<Task> byEndTime = Comparator.comparingLong(task -> task.endTime);
+
+        Task current = tasks.stream().filter(Task::hasRun).max(byEndTime).orElse(null);
+
+        final List<Task> path = new ArrayList<>();
+        while (null != current) {
+            path.add(current);
+            current = current.dependencies.stream().filter(Task::hasRun).max(byEndTime).orElse(null);
+        }
+
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * @return the tasks that failed, in the order they were added
+     */
+    public List<Task> getFailures() {
+        return tasks.stream().filter(task -> Status.FAILED == task.status).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the tasks that were skipped because a dependency did not succeed, in the order they were added
+     */
+    public List<Task> getSkipped() {
+        return tasks.stream().filter(task -> Status.SKIPPED == task.status).collect(Collectors.toList());
+    }
+}
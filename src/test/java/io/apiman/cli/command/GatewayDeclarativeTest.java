@@ -22,17 +22,25 @@ import io.apiman.cli.gatewayapi.GatewayApi;
 import io.apiman.cli.gatewayapi.command.factory.GatewayApiFactory;
 import io.apiman.cli.gatewayapi.declarative.command.GatewayApplyCommand;
 import io.apiman.cli.util.LogUtil;
+import io.apiman.cli.util.PluginCache;
 import io.apiman.cli.util.PolicyResolver;
 import io.apiman.gateway.engine.beans.Api;
 import io.apiman.gateway.engine.beans.SystemStatus;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 
+import java.nio.file.Path;
+import java.util.List;
+
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,9 +54,14 @@ public class GatewayDeclarativeTest extends BaseTest {
     @Mock
     GatewayApi mGatewayApi = mock(GatewayApi.class);
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
-    public void setUp() {
-        command = new GatewayApplyCommand(mGatewayApiFactory, new PolicyResolver());
+    public void setUp() throws Exception {
+        final PluginCache pluginCache = new PluginCache(temporaryFolder.newFolder(),
+                PluginCache.DEFAULT_MAX_SIZE, PluginCache.DEFAULT_MAX_AGE);
+        command = new GatewayApplyCommand(mGatewayApiFactory, new PolicyResolver(pluginCache));
         // Configure logging level
         command.setLogDebug(LOG_DEBUG);
         LogUtil.configureLogging(LOG_DEBUG);
@@ -108,4 +121,31 @@ public class GatewayDeclarativeTest extends BaseTest {
         verify(mGatewayApi).publishApi(Mockito.argThat(api -> EqualsBuilder.reflectionEquals(api, expected1)));
         verify(mGatewayApi).publishApi(Mockito.argThat(api -> EqualsBuilder.reflectionEquals(api, expected2)));
     }
+
+    /**
+     * Declarations may use the same gateway name for different gateways, so APIs must be published
+     * to the gateway configured in their own declaration.
+     *
+     * @throws Exception any exception
+     */
+    @Test
+    public void testApplyDeclaration_SameGatewayNameDifferentEndpoints() throws Exception {
+        final GatewayApi otherGatewayApi = mock(GatewayApi.class);
+        when(mGatewayApiFactory.build("http://localhost:8081/apiman-gateway-api", "apimanager", "apiman123!", true))
+                .thenReturn(otherGatewayApi);
+        SystemStatus okStatus = new SystemStatus();
+        okStatus.setUp(true);
+        when(otherGatewayApi.getSystemStatus()).thenReturn(okStatus);
+
+        final List<Path> declarationFiles = getResourceAsPathList("/multiple-versions.yml");
+        declarationFiles.add(getResourceAsPath("/gateway/same-name-other-node.yml"));
+        command.setDeclarationFiles(declarationFiles);
+        // Run
+        command.applyDeclarations();
+        // Verify
+        verify(mGatewayApi, times(2))
+                .publishApi(Mockito.argThat(api -> "multi-version-example".equals(api.getApiId())));
+        verify(mGatewayApi, never()).publishApi(Mockito.argThat(api -> "other-example".equals(api.getApiId())));
+        verify(otherGatewayApi).publishApi(Mockito.argThat(api -> "other-example".equals(api.getApiId())));
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.command.declarative;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ApplyState}.
+ */
+public class ApplyStateTest {
+    private static final String TARGET = "http://localhost:8080/apiman";
+    private static final String ITEM = "test/example/1.0";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path stateFile;
+
+    @Before
+    public void setUp() throws Exception {
+        stateFile = temporaryFolder.getRoot().toPath().resolve("state").resolve("state.json");
+    }
+
+    @Test
+    public void testIsUnchanged_RoundTrip() {
+        // test data
+        final ApplyState firstRun = ApplyState.load(stateFile, false);
+
+        // test
+        final boolean unchangedBefore = firstRun.isUnchanged(TARGET, ITEM, "abc");
+        firstRun.record(TARGET, ITEM, "abc");
+        firstRun.save();
+
+        final ApplyState secondRun = ApplyState.load(stateFile, false);
+
+        // assertions
+        assertFalse(unchangedBefore);
+        assertTrue(secondRun.isUnchanged(TARGET, ITEM, "abc"));
+        assertFalse(secondRun.isUnchanged(TARGET, ITEM, "def"));
+        assertFalse(secondRun.isUnchanged("http://other:8080/apiman", ITEM, "abc"));
+    }
+
+    @Test
+    public void testIsUnchanged_FullIgnoresState() {
+        // test data
+        final ApplyState firstRun = ApplyState.load(stateFile, false);
+        firstRun.record(TARGET, ITEM, "abc");
+        firstRun.save();
+
+        // test
+        final ApplyState fullRun = ApplyState.load(stateFile, true);
+
+        // assertions
+        assertFalse(fullRun.isUnchanged(TARGET, ITEM, "abc"));
+    }
+
+    @Test
+    public void testSave_FullRetainsOtherEntries() {
+        // test data
+        final String otherItem = "test/example/2.0";
+
+        final ApplyState firstRun = ApplyState.load(stateFile, false);
+        firstRun.record(TARGET, ITEM, "abc");
+        firstRun.record(TARGET, otherItem, "def");
+        firstRun.save();
+
+        // test
+        final ApplyState fullRun = ApplyState.load(stateFile, true);
+        fullRun.record(TARGET, ITEM, "ghi");
+        fullRun.save();
+
+        final ApplyState nextRun = ApplyState.load(stateFile, false);
+
+        // assertions
+        assertTrue(nextRun.isUnchanged(TARGET, ITEM, "ghi"));
+        assertTrue(nextRun.isUnchanged(TARGET, otherItem, "def"));
+    }
+
+    @Test
+    public void testHash_IndependentOfMapOrder() {
+        // test data
+        final Map<String, Object> first = new LinkedHashMap<>();
+        first.put("ttl", 60);
+        first.put("endpoint", "http://example.com");
+
+        final Map<String, Object> second = new LinkedHashMap<>();
+        second.put("endpoint", "http://example.com");
+        second.put("ttl", 60);
+
+        // test
+        final String firstHash = ApplyState.hash("test", first);
+        final String secondHash = ApplyState.hash("test", second);
+        final String otherHash = ApplyState.hash("other", first);
+
+        // assertions
+        assertEquals(firstHash, secondHash);
+        assertNotEquals(firstHash, otherHash);
+    }
+}
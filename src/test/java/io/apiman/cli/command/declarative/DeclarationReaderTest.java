@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.command.declarative;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.util.MappingUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link DeclarationReader}.
+ */
+public class DeclarationReaderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRead_SharedPolicies() throws Exception {
+        assertReadsAsLoaded(resource("/shared-policies.yml"), MappingUtil.YAML_MAPPER, Collections.emptyMap(), 2);
+        assertReadsAsLoaded(resource("/shared-policies.json"), MappingUtil.JSON_MAPPER, Collections.emptyMap(), 2);
+    }
+
+    @Test
+    public void testRead_Placeholders() throws Exception {
+        // test data
+        final Path declarationFile = temporaryFolder.newFile("placeholders.yml").toPath();
+        Files.write(declarationFile, Lists.newArrayList(
+                "org:",
+                "  name: \"${orgName}\"",
+                "  apis:",
+                "    - name: \"example\"",
+                "      version: \"1.0\"",
+                "      config:",
+                "        endpoint: \"${endpoint}\"",
+                "shared:",
+                "  properties:",
+                "    endpoint: \"http://example.com\""
+        ), StandardCharsets.UTF_8);
+
+        // shared properties following the organisation require the declaration to be loaded in full
+        assertReadsAsLoaded(declarationFile, MappingUtil.YAML_MAPPER, Collections.singletonMap("orgName", "test"), 1);
+        assertLoadedInFull(declarationFile, MappingUtil.YAML_MAPPER, Collections.singletonMap("orgName", "test"));
+    }
+
+    @Test
+    public void testRead_UnquotedPlaceholders() throws Exception {
+        // test data
+        final Path declarationFile = temporaryFolder.newFile("unquoted.yml").toPath();
+        Files.write(declarationFile, Lists.newArrayList(
+                "org:",
+                "  name: \"test\"",
+                "  apis:",
+                "    - name: \"example\"",
+                "      version: \"1.0\"",
+                "      policies:",
+                "        - name: \"CachingPolicy\"",
+                "          config:",
+                "            ttl: ${ttl}"
+        ), StandardCharsets.UTF_8);
+
+        // test
+        final List<DeclarativeApi> apis = assertReadsAsLoaded(declarationFile, MappingUtil.YAML_MAPPER,
+                Collections.singletonMap("ttl", "60"), 1);
+        assertLoadedInFull(declarationFile, MappingUtil.YAML_MAPPER, Collections.singletonMap("ttl", "60"));
+
+        // assertions
+        assertEquals(60, apis.get(0).getPolicies().get(0).getConfig().get("ttl"));
+    }
+
+    /**
+     * Asserts that the reader returns the same items as loading the declaration in full.
+     *
+     * @return the APIs read
+     */
+    private static List<DeclarativeApi> assertReadsAsLoaded(Path declarationFile, ObjectMapper mapper,
+                                                            Map<String, String> properties,
+                                                            int expectedApiCount) throws Exception {
+        // test
+        final List<DeclarativeApi> apis;
+        final BaseDeclaration header;
+        try (DeclarationReader reader = DeclarationReader.open(declarationFile, mapper, properties)) {
+            header = reader.getDeclaration();
+            apis = Lists.newArrayList(reader);
+        }
+
+        // assertions
+        final BaseDeclaration loaded = DeclarativeUtil.loadDeclaration(declarationFile, mapper, properties);
+        assertEquals(expectedApiCount, apis.size());
+        assertNull(header.getOrg().getApis());
+        assertEquals(loaded.getOrg().getName(), header.getOrg().getName());
+        assertEquals(MappingUtil.JSON_MAPPER.valueToTree(loaded.getSystem()),
+                MappingUtil.JSON_MAPPER.valueToTree(header.getSystem()));
+
+        for (int i = 0; i < apis.size(); i++) {
+            assertEquals(MappingUtil.JSON_MAPPER.valueToTree(loaded.getOrg().getApis().get(i)),
+                    MappingUtil.JSON_MAPPER.valueToTree(apis.get(i)));
+        }
+        return apis;
+    }
+
+    private static void assertLoadedInFull(Path declarationFile, ObjectMapper mapper,
+                                           Map<String, String> properties) {
+        try (DeclarationReader reader = DeclarationReader.open(declarationFile, mapper, properties)) {
+            assertFalse(reader.isStreaming());
+        }
+    }
+
+    private static Path resource(String name) throws Exception {
+        return Paths.get(DeclarationReaderTest.class.getResource(name).toURI());
+    }
+}
@@ -21,14 +21,22 @@ import io.apiman.cli.command.declarative.model.BaseDeclaration;
 import io.apiman.cli.command.declarative.model.DeclarativeGateway;
 import io.apiman.cli.managerapi.command.declarative.command.ManagerDeclarativeTest;
 import io.apiman.cli.util.MappingUtil;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for {@link DeclarativeUtil}.
@@ -36,6 +44,8 @@ import static org.junit.Assert.assertNotNull;
  * @author Pete Cornish {@literal <outofcoffee@gmail.com>}
  */
 public class DeclarativeUtilTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     /**
      * Expect that the declarative model can be loaded from a JSON file.
@@ -119,6 +129,61 @@ public class DeclarativeUtilTest {
         assertEquals("value3", gateway.getConfig().getPassword());
     }
 
+    /**
+     * Expect that shared properties take precedence over properties provided by the caller.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLoadDeclarationSharedPropertiesPrecedence() throws Exception {
+        final BaseDeclaration declaration = DeclarativeUtil.loadDeclaration(
+                Paths.get(ManagerDeclarativeTest.class.getResource("/shared-properties.yml").toURI()),
+                MappingUtil.YAML_MAPPER, ImmutableMap.of("embedded1", "overridden", "unused", "ignored"));
+
+        final DeclarativeGateway gateway = declaration.getSystem().getGateways().get(0);
+        assertEquals("value1", gateway.getConfig().getEndpoint());
+    }
+
+    /**
+     * Expect that the shared properties are read from the unresolved declaration.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReadSharedProperties() throws Exception {
+        final String unresolved = "system:\n" +
+                "  gateways:\n" +
+                "    - name: \"${gatewayName}\"\n" +
+                "      shared: \"not the shared block\"\n" +
+                "shared:\n" +
+                "  policies: []\n" +
+                "  properties:\n" +
+                "    gatewayName: \"test-gw\"\n" +
+                "    endpoint: \"${host}/apiman-gateway-api\"\n" +
+                "    port: 8080\n" +
+                "org:\n" +
+                "  name: \"${orgName}\"\n";
+
+        final Map<String, String> sharedProperties = DeclarativeUtil.readSharedProperties(
+                MappingUtil.YAML_MAPPER.readTree(unresolved));
+
+        assertEquals(3, sharedProperties.size());
+        assertEquals("test-gw", sharedProperties.get("gatewayName"));
+        assertEquals("${host}/apiman-gateway-api", sharedProperties.get("endpoint"));
+        assertEquals("8080", sharedProperties.get("port"));
+    }
+
+    /**
+     * Expect that placeholders outside quotes are detected, as their resolved type is not known.
+     */
+    @Test
+    public void testHasUnquotedPlaceholders() {
+        assertFalse(DeclarativeUtil.hasUnquotedPlaceholders("endpoint: \"${host}/apiman\"\nname: 'test'\n"));
+        assertFalse(DeclarativeUtil.hasUnquotedPlaceholders("{ \"ttl\": \"${ttl}\" }"));
+        assertTrue(DeclarativeUtil.hasUnquotedPlaceholders("name: \"test\"\nttl: ${ttl}\n"));
+        assertTrue(DeclarativeUtil.hasUnquotedPlaceholders("{ \"ttl\": ${ttl} }"));
+    }
+
     /**
      * Expect that the declarative model can be loaded from a JSON file with shared items.
      *
@@ -170,4 +235,53 @@ public class DeclarativeUtilTest {
         assertNotNull(declaration.getOrg().getApis().get(0).getConfig());
         assertNotNull(declaration.getOrg().getApis().get(0).getConfig().getSecurity());
     }
+
+    /**
+     * Expect that a directory is expanded into the declaration files beneath it, in path order.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExpandDeclarationPathDirectory() throws Exception {
+        final Path root = temporaryFolder.getRoot().toPath();
+        final Path teamB = Files.createDirectories(root.resolve("team-b"));
+        final Path teamA = Files.createDirectories(root.resolve("team-a"));
+        Files.createFile(teamB.resolve("apis.yml"));
+        Files.createFile(teamA.resolve("apis.json"));
+        Files.createFile(teamA.resolve("apis.yaml"));
+        Files.createFile(teamA.resolve("README.md"));
+
+        final List<Path> files = DeclarativeUtil.expandDeclarationPath(root);
+
+        assertEquals(Arrays.asList(teamA.resolve("apis.json"), teamA.resolve("apis.yaml"), teamB.resolve("apis.yml")), files);
+    }
+
+    /**
+     * Expect that a glob is expanded into the matching files, in path order.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExpandDeclarationPathGlob() throws Exception {
+        final Path root = temporaryFolder.getRoot().toPath();
+        final Path teamA = Files.createDirectories(root.resolve("team-a"));
+        final Path teamB = Files.createDirectories(root.resolve("team-b"));
+        Files.createFile(teamA.resolve("apis.yml"));
+        Files.createFile(teamA.resolve("apis.json"));
+        Files.createFile(teamB.resolve("apis.yml"));
+
+        final List<Path> files = DeclarativeUtil.expandDeclarationPath(root.resolve("team-*").resolve("*.yml"));
+
+        assertEquals(Arrays.asList(teamA.resolve("apis.yml"), teamB.resolve("apis.yml")), files);
+    }
+
+    /**
+     * Expect that a file is returned as-is.
+     */
+    @Test
+    public void testExpandDeclarationPathFile() {
+        final Path file = Paths.get("/path/to/declaration.yml");
+
+        assertEquals(Collections.singletonList(file), DeclarativeUtil.expandDeclarationPath(file));
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.gatewayapi;
+
+import com.google.common.collect.Lists;
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.util.MappingUtil;
+import io.apiman.gateway.engine.beans.Api;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link GatewayPublisher}.
+ */
+public class GatewayPublisherTest {
+    @Test
+    public void testPublish_AllGateways() throws Exception {
+        // test data
+        final DeclarativeGateway gateway1 = buildGateway("gw1");
+        final DeclarativeGateway gateway2 = buildGateway("gw2");
+        final GatewayApi client1 = mock(GatewayApi.class);
+        final GatewayApi client2 = mock(GatewayApi.class);
+        final AtomicInteger clientsBuilt = new AtomicInteger();
+
+        final Map<DeclarativeGateway, List<Api>> gatewayToApis = new LinkedHashMap<>();
+        gatewayToApis.put(gateway1, Lists.newArrayList(buildApi("a"), buildApi("b"), buildApi("c")));
+        gatewayToApis.put(gateway2, Lists.newArrayList(buildApi("a")));
+
+        // test
+        new GatewayPublisher(gateway -> {
+            clientsBuilt.incrementAndGet();
+            return gateway == gateway1 ? client1 : client2;
+        }, 2).publish(gatewayToApis);
+
+        // assertions
+        assertEquals(2, clientsBuilt.get());
+        verify(client1, times(3)).publishApi(any(Api.class));
+        verify(client2, times(1)).publishApi(any(Api.class));
+    }
+
+    @Test
+    public void testPublish_ContinuesAfterFailure() throws Exception {
+        // test data
+        final DeclarativeGateway gateway1 = buildGateway("gw1");
+        final DeclarativeGateway gateway2 = buildGateway("gw2");
+        final GatewayApi client1 = mock(GatewayApi.class);
+        final GatewayApi client2 = mock(GatewayApi.class);
+
+        final Map<DeclarativeGateway, List<Api>> gatewayToApis = new LinkedHashMap<>();
+        gatewayToApis.put(gateway1, Lists.newArrayList(buildApi("a"), buildApi("b"), buildApi("c")));
+        gatewayToApis.put(gateway2, Lists.newArrayList(buildApi("a"), buildApi("b")));
+
+        // mock behaviour
+        when(client1.publishApi(argThat(api -> "b".equals(api.getApiId()))))
+                .thenThrow(new IllegalStateException("Gateway unavailable"));
+
+        // test
+        try {
+            new GatewayPublisher(gateway -> gateway == gateway1 ? client1 : client2, 1).publish(gatewayToApis);
+            fail("CommandException expected");
+
+        } catch (CommandException e) {
+            // assertions
+            assertEquals("Failed to publish 1 of 5 APIs: gw1 (1)", e.getMessage());
+        }
+
+        verify(client1, times(3)).publishApi(any(Api.class));
+        verify(client2, times(2)).publishApi(any(Api.class));
+    }
+
+    private static DeclarativeGateway buildGateway(String name) throws Exception {
+        return MappingUtil.JSON_MAPPER.readValue(
+                "{\"name\":\"" + name + "\",\"config\":{\"endpoint\":\"http://" + name + "\"}}",
+                DeclarativeGateway.class);
+    }
+
+    private static Api buildApi(String apiId) {
+        final Api api = new Api();
+        api.setOrganizationId("test");
+        api.setApiId(apiId);
+        api.setVersion("1.0");
+        return api;
+    }
+}
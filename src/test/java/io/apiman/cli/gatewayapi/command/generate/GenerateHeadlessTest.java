@@ -19,11 +19,14 @@ package io.apiman.cli.gatewayapi.command.generate;
 import io.apiman.cli.common.BaseTest;
 import io.apiman.cli.gatewayapi.command.generate.GenerateHeadless.HeadlessConfigBean;
 import io.apiman.cli.util.LogUtil;
+import io.apiman.cli.util.PluginCache;
 import io.apiman.cli.util.PolicyResolver;
 import io.apiman.gateway.engine.beans.Api;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 
 import java.nio.file.Files;
@@ -48,10 +51,14 @@ public class GenerateHeadlessTest extends BaseTest {
     @Mock
     private GenerateHeadless.JsonWriter mJsonWriter = mock(GenerateHeadless.JsonWriter.class);
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
         command = new GenerateHeadless();
-        command.setPolicyResolver(new PolicyResolver());
+        command.setPolicyResolver(new PolicyResolver(new PluginCache(temporaryFolder.newFolder(),
+                PluginCache.DEFAULT_MAX_SIZE, PluginCache.DEFAULT_MAX_AGE)));
         // Configure logging level
         command.setLogDebug(LOG_DEBUG);
         LogUtil.configureLogging(LOG_DEBUG);
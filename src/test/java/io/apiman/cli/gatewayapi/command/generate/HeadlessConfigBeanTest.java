@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.gatewayapi.command.generate;
+
+import io.apiman.cli.gatewayapi.command.generate.GenerateHeadless.HeadlessConfigBean;
+import io.apiman.cli.util.MappingUtil;
+import io.apiman.gateway.engine.beans.Api;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Tests for {@link HeadlessConfigBean}.
+ */
+public class HeadlessConfigBeanTest {
+    /**
+     * Expect that the streamed JSON is byte-identical to the JSON built in memory.
+     */
+    @Test
+    public void testWriteJson_MatchesToJson() throws Exception {
+        // test data
+        final HeadlessConfigBean config = MappingUtil.JSON_MAPPER.readValue(
+                HeadlessConfigBeanTest.class.getResource("/gateway/generateHeadless/expected-multiple-gateways.json"),
+                HeadlessConfigBean.class);
+
+        // test
+        final ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        config.writeJson(streamed);
+
+        // assertions
+        assertArrayEquals(config.toJson().getBytes(StandardCharsets.UTF_8), streamed.toByteArray());
+    }
+
+    /**
+     * Expect that empty and missing lists are streamed in the same format as the JSON built in memory.
+     */
+    @Test
+    public void testWriteJson_EmptyAndNull() throws Exception {
+        // test data
+        final HeadlessConfigBean config = new HeadlessConfigBean(Collections.singletonList(new Api()), null);
+
+        // test
+        final ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        config.writeJson(streamed);
+
+        // assertions
+        assertArrayEquals(config.toJson().getBytes(StandardCharsets.UTF_8), streamed.toByteArray());
+
+        final HeadlessConfigBean emptyConfig = new HeadlessConfigBean(Collections.emptyList(), Collections.emptyList());
+        final ByteArrayOutputStream emptyStreamed = new ByteArrayOutputStream();
+        emptyConfig.writeJson(emptyStreamed);
+        assertArrayEquals(emptyConfig.toJson().getBytes(StandardCharsets.UTF_8), emptyStreamed.toByteArray());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.gatewayapi.model;
+
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.command.declarative.DeclarativeUtil;
+import io.apiman.cli.util.MappingUtil;
+import io.apiman.cli.util.PluginCache;
+import io.apiman.cli.util.PolicyResolver;
+import io.apiman.common.plugin.PluginCoordinates;
+import io.apiman.gateway.engine.beans.Api;
+import io.apiman.manager.api.beans.policies.PolicyDefinitionBean;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link GatewayApiDataModel}.
+ */
+public class GatewayApiDataModelTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Expect that a plugin policy shared by several APIs is resolved only once.
+     */
+    @Test
+    public void testBuildDataModel_ResolvesSharedPluginPolicyOnce() throws Exception {
+        // test data
+        final AtomicInteger lookups = new AtomicInteger();
+        final PluginCache pluginCache = new PluginCache(temporaryFolder.newFolder(),
+                PluginCache.DEFAULT_MAX_SIZE, PluginCache.DEFAULT_MAX_AGE) {
+
+            @Override
+            public Optional<List<PolicyDefinitionBean>> readIndex(PluginCoordinates coordinates) {
+                lookups.incrementAndGet();
+                return super.readIndex(coordinates);
+            }
+        };
+
+        final PolicyDefinitionBean policyDefinition = new PolicyDefinitionBean();
+        policyDefinition.setId("test-policy");
+        policyDefinition.setPolicyImpl("plugin:io.apiman.plugins:apiman-plugins-test-policy:1.3.1.Final:war/io.apiman.plugins.TestPolicy");
+        pluginCache.writeIndex(new PluginCoordinates("io.apiman.plugins", "apiman-plugins-test-policy", "1.3.1.Final"),
+                Collections.singletonList(policyDefinition));
+
+        final BaseDeclaration declaration = DeclarativeUtil.loadDeclaration(
+                Paths.get(GatewayApiDataModelTest.class.getResource("/gateway/shared-plugin-policies.yml").toURI()),
+                MappingUtil.YAML_MAPPER, Collections.emptyMap());
+
+        // test
+        final GatewayApiDataModel dataModel = new GatewayApiDataModel(declaration, new PolicyResolver(pluginCache));
+
+        // assertions
+        assertEquals(1, lookups.get());
+        assertEquals(3, dataModel.getApiToGatewaysMap().size());
+
+        for (Api api : dataModel.getApiToGatewaysMap().keySet()) {
+            final String pluginPolicyImpl = api.getApiPolicies().get(api.getApiPolicies().size() - 1).getPolicyImpl();
+            assertEquals(policyDefinition.getPolicyImpl(), pluginPolicyImpl);
+        }
+    }
+}
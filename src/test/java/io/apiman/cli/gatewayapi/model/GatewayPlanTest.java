@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.gatewayapi.model;
+
+import io.apiman.cli.command.declarative.PlanFile;
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.cli.util.MappingUtil;
+import io.apiman.gateway.engine.beans.Api;
+import io.apiman.gateway.engine.beans.Policy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link GatewayPlan}.
+ */
+public class GatewayPlanTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWrite_RoundTrip() throws Exception {
+        // test data
+        final Path planFile = temporaryFolder.getRoot().toPath().resolve("plan.json");
+        final DeclarativeGateway gateway = MappingUtil.JSON_MAPPER.readValue(
+                "{\"name\":\"gw1\",\"config\":{\"endpoint\":\"http://gw1\",\"username\":\"user\"}}",
+                DeclarativeGateway.class);
+
+        final Policy policy = new Policy();
+        policy.setPolicyImpl("class:io.apiman.gateway.engine.policies.CachingPolicy");
+        policy.setPolicyJsonConfig("{\"ttl\":60}");
+
+        final Api api = new Api();
+        api.setOrganizationId("test");
+        api.setApiId("example");
+        api.setVersion("1.0");
+        api.setEndpoint("http://example.com");
+        api.setApiPolicies(Collections.singletonList(policy));
+
+        final GatewayPlan plan = GatewayPlan.create();
+        plan.addApis(gateway, Collections.singletonList(api));
+        plan.addApis(gateway, Collections.singletonList(new Api()));
+
+        // test
+        plan.write(planFile);
+        final Map<DeclarativeGateway, List<Api>> gatewayToApis = PlanFile.read(planFile, GatewayPlan.class,
+                GatewayPlan.KIND).getGatewayToApis();
+
+        // assertions
+        assertEquals(1, gatewayToApis.size());
+        final DeclarativeGateway readGateway = gatewayToApis.keySet().iterator().next();
+        assertEquals("gw1", readGateway.getName());
+        assertEquals("http://gw1", readGateway.getConfig().getEndpoint());
+
+        final List<Api> apis = gatewayToApis.get(readGateway);
+        assertEquals(2, apis.size());
+        assertEquals("example", apis.get(0).getApiId());
+        assertEquals("http://example.com", apis.get(0).getEndpoint());
+        assertEquals("class:io.apiman.gateway.engine.policies.CachingPolicy",
+                apis.get(0).getApiPolicies().get(0).getPolicyImpl());
+        assertEquals("{\"ttl\":60}", apis.get(0).getApiPolicies().get(0).getPolicyJsonConfig());
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.command.declarative.command;
+
+import com.beust.jcommander.JCommander;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.gatewayapi.GatewayApi;
+import io.apiman.cli.gatewayapi.command.factory.GatewayApiFactory;
+import io.apiman.cli.managerapi.declarative.command.ManagerApplyCommand;
+import io.apiman.cli.managerapi.service.DeclarativeService;
+import io.apiman.cli.managerapi.service.ImportService;
+import io.apiman.cli.managerapi.service.ManagementApiService;
+import io.apiman.cli.managerapi.service.PluginService;
+import io.apiman.gateway.engine.beans.SystemStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link ManagerApplyCommand} options.
+ */
+public class ManagerApplyCommandTest {
+    @Mock
+    private ManagementApiService managementApiService;
+
+    @Mock
+    private DeclarativeService declarativeService;
+
+    @Mock
+    private PluginService pluginService;
+
+    @Mock
+    private ImportService importService;
+
+    @Mock
+    private GatewayApiFactory gatewayApiFactory;
+
+    @Mock
+    private GatewayApi gatewayApi;
+
+    /**
+     * Unit under test.
+     */
+    private ManagerApplyCommand command;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        command = new ManagerApplyCommand(managementApiService, declarativeService, pluginService, importService,
+                gatewayApiFactory);
+    }
+
+    /**
+     * Expect that the management API is configured with the server options parsed from the command line,
+     * rather than the defaults, before the server is used.
+     */
+    @Test
+    public void testPerformAction_ServerOptions() throws Exception {
+        // mock behaviour
+        doThrow(new CommandException("Server unavailable")).when(managementApiService).addReadinessProbe(anyMap());
+
+        // test
+        final JCommander jc = new JCommander(command);
+        jc.parse("--server", "http://example.com:8080/apiman",
+                "--serverUsername", "admin",
+                "--serverPassword", "secret",
+                "--waitTime", "1",
+                "--declarationFile", getDeclarationFile("/simple-no-plugin.yml"));
+
+        try {
+            command.performAction(jc);
+            fail("CommandException expected");
+        } catch (CommandException ignored) {
+            // the command stops when waiting for the server
+        }
+
+        // assertions
+        final InOrder inOrder = inOrder(managementApiService);
+        inOrder.verify(managementApiService)
+                .configureEndpoint("http://example.com:8080/apiman", "admin", "secret");
+        inOrder.verify(managementApiService).addReadinessProbe(anyMap());
+    }
+
+    /**
+     * Expect that the declared gateways are probed whilst waiting for the management API,
+     * rather than only once it has started.
+     */
+    @Test
+    public void testPerformAction_AwaitsManagerAndGateways() throws Exception {
+        // test data
+        final SystemStatus upStatus = new SystemStatus();
+        upStatus.setUp(true);
+
+        // mock behaviour
+        mockManagerProbe(false);
+
+        when(gatewayApiFactory.build(anyString(), anyString(), anyString(), anyBoolean())).thenReturn(gatewayApi);
+        when(gatewayApi.getSystemStatus()).thenReturn(upStatus);
+
+        // test
+        final JCommander jc = new JCommander(command);
+        jc.parse("--server", "http://example.com:8080/apiman",
+                "--waitTime", "1",
+                "--declarationFile", getDeclarationFile("/simple-no-plugin.yml"));
+
+        try {
+            command.performAction(jc);
+            fail("CommandException expected");
+        } catch (CommandException e) {
+            // only the management API is not ready
+            final String message = e.getCause().getMessage();
+            assertTrue(message.contains("http://example.com:8080/apiman"));
+            assertFalse(message.contains("apiman-gateway-api"));
+        }
+
+        // assertions
+        verify(gatewayApiFactory).build(eq("http://localhost:8080/apiman-gateway-api"), eq("apimanager"),
+                eq("apiman123!"), anyBoolean());
+        verify(gatewayApi, atLeastOnce()).getSystemStatus();
+        verify(declarativeService, never()).applyGateways(any());
+    }
+
+    /**
+     * Expect that gateways already present on the manager are not probed, as they need not be
+     * reachable from the CLI.
+     */
+    @Test
+    public void testPerformAction_ExistingGatewayNotAwaited() throws Exception {
+        // mock behaviour
+        mockManagerProbe(true);
+        when(declarativeService.isGatewayPresent("test-gw")).thenReturn(true);
+        when(gatewayApiFactory.build(anyString(), anyString(), anyString(), anyBoolean())).thenReturn(gatewayApi);
+
+        // test
+        final JCommander jc = new JCommander(command);
+        jc.parse("--waitTime", "1",
+                "--declarationFile", getDeclarationFile("/simple-no-plugin.yml"));
+
+        command.performAction(jc);
+
+        // assertions
+        verify(gatewayApi, never()).getSystemStatus();
+        verify(declarativeService).applyGateways(any());
+    }
+
+    /**
+     * Expect that a gateway declared by name only, without its configuration, is not awaited.
+     */
+    @Test
+    public void testPerformAction_GatewayNameOnly() throws Exception {
+        // mock behaviour
+        mockManagerProbe(true);
+
+        // test
+        final JCommander jc = new JCommander(command);
+        jc.parse("--waitTime", "1",
+                "--declarationFile", getDeclarationFile("/gateway-name-only.yml"));
+
+        command.performAction(jc);
+
+        // assertions
+        verify(gatewayApiFactory, never()).build(any(), any(), any(), anyBoolean());
+        verify(declarativeService).applyGateways(any());
+    }
+
+    private void mockManagerProbe(boolean ready) {
+        doAnswer(invocation -> {
+            final Map<String, BooleanSupplier> probes = invocation.getArgument(0);
+            probes.put("http://example.com:8080/apiman", () -> ready);
+            return null;
+        }).when(managementApiService).addReadinessProbe(anyMap());
+    }
+
+    private String getDeclarationFile(String resource) throws URISyntaxException {
+        return Paths.get(ManagerApplyCommandTest.class.getResource(resource).toURI()).toString();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.declarative.importer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.util.MappingUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ImportDocument}.
+ */
+public class ImportDocumentTest {
+    private static final String USERNAME = "admin";
+
+    @Test
+    public void testWriteTo() throws Exception {
+        // test data
+        final DeclarativeOrg org = loadOrg("/multiple-versions.yml");
+
+        // test
+        final JsonNode document = write(new ImportDocument(newArrayList(org), USERNAME));
+
+        // assertions
+        assertEquals(1, document.get("Orgs").size());
+        final JsonNode importedOrg = document.get("Orgs").get(0);
+        assertEquals("test", importedOrg.get("OrganizationBean").get("id").asText());
+        assertEquals("Test organisation", importedOrg.get("OrganizationBean").get("description").asText());
+        assertEquals(USERNAME, importedOrg.get("Memberships").get(0).get("userId").asText());
+        assertEquals("OrganizationOwner", importedOrg.get("Memberships").get(0).get("roleId").asText());
+
+        // versions of the same API are imported together
+        assertEquals(1, importedOrg.get("Apis").size());
+        final JsonNode api = importedOrg.get("Apis").get(0);
+        assertEquals("multi-version-example", api.get("ApiBean").get("id").asText());
+        assertEquals(2, api.get("Versions").size());
+
+        final JsonNode version = api.get("Versions").get(1).get("ApiVersionBean");
+        assertEquals(2, version.get("id").asLong());
+        assertEquals("2.0", version.get("version").asText());
+        assertEquals(ImportDocument.STATUS_READY, version.get("status").asText());
+        assertEquals("http://example.com/v2", version.get("endpoint").asText());
+        assertEquals("test-gw", version.get("gateways").get(0).get("gatewayId").asText());
+        assertTrue(version.get("publicAPI").asBoolean());
+
+        final JsonNode policy = api.get("Versions").get(1).get("Policies").get(0);
+        assertEquals("CachingPolicy", policy.get("definition").get("id").asText());
+        assertEquals("2.0", policy.get("entityVersion").asText());
+        assertEquals(0, policy.get("orderIndex").asInt());
+        assertTrue(MappingUtil.jsonEquals("{\"ttl\":60}", policy.get("configuration").asText()));
+    }
+
+    @Test
+    public void testWriteTo_CombinesOrgs() throws Exception {
+        // test data
+        final DeclarativeOrg first = loadOrg("/multiple-versions.yml");
+        final DeclarativeOrg second = loadOrg("/simple-no-plugin.yml");
+
+        // a private API without plans cannot be published
+        MappingUtil.JSON_MAPPER.readerForUpdating(second.getApis().get(0).getConfig()).readValue("{\"public\":false}");
+
+        // test
+        final JsonNode document = write(new ImportDocument(newArrayList(first, second), USERNAME));
+
+        // assertions
+        assertEquals(1, document.get("Orgs").size());
+        final JsonNode apis = document.get("Orgs").get(0).get("Apis");
+        assertEquals(2, apis.size());
+
+        final JsonNode version = apis.get(1).get("Versions").get(0).get("ApiVersionBean");
+        assertEquals(3, version.get("id").asLong());
+        assertEquals(ImportDocument.STATUS_CREATED, version.get("status").asText());
+    }
+
+    private static DeclarativeOrg loadOrg(String resource) throws IOException {
+        return MappingUtil.YAML_MAPPER.readValue(ImportDocumentTest.class.getResource(resource),
+                BaseDeclaration.class).getOrg();
+    }
+
+    private static JsonNode write(ImportDocument document) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.writeTo(out);
+        return MappingUtil.JSON_MAPPER.readTree(out.toByteArray());
+    }
+}
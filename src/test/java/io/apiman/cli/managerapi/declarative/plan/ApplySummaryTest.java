@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.managerapi.declarative.plan;
+
+import io.apiman.cli.command.api.model.ApiConfig;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ApplySummary}.
+ */
+public class ApplySummaryTest {
+    @Test
+    public void testDescribe() {
+        // test data
+        final ApiPlan created = buildPlan(null, ApiMutation.createVersion(), ApiMutation.publish());
+        final ApiPlan republished = buildPlan("Published", ApiMutation.configure(new ApiConfig()), ApiMutation.publish());
+        final ApiPlan unchanged = buildPlan("Published");
+        final ApiPlan definitionOnly = buildPlan("Published", ApiMutation.setDefinition("application/json", "{}"));
+        final ApiPlan v11xConfigured = buildPlan("Published", ApiMutation.addPolicy("CachingPolicy", null));
+
+        // assertions
+        assertEquals("created, published", ApplySummary.describe(created, true));
+        assertEquals("updated, republished", ApplySummary.describe(republished, true));
+        assertEquals("up to date, republish not required", ApplySummary.describe(unchanged, true));
+        assertEquals("updated, republish not required", ApplySummary.describe(definitionOnly, true));
+        assertEquals("updated, republish not supported", ApplySummary.describe(v11xConfigured, true));
+        assertEquals("up to date", ApplySummary.describe(buildPlan("Ready"), false));
+    }
+
+    @Test
+    public void testRecord() {
+        // test data
+        final ApplySummary summary = new ApplySummary();
+
+        // test
+        summary.record("up to date", "a 1.0");
+        summary.record("up to date", "b 1.0");
+        summary.record("updated, republished", "c 1.0");
+        summary.recordFailure("d 1.0");
+
+        // assertions
+        final Map<String, Integer> counts = summary.getCounts();
+        assertEquals(3, counts.size());
+        assertEquals(Integer.valueOf(2), counts.get("up to date"));
+        assertEquals(Integer.valueOf(1), counts.get("updated, republished"));
+        assertEquals(Integer.valueOf(1), counts.get(ApplySummary.FAILED));
+    }
+
+    private static ApiPlan buildPlan(String status, ApiMutation... mutations) {
+        final ApiPlan plan = new ApiPlan("test", "example", "1.0");
+        plan.setStatus(status);
+        for (ApiMutation mutation : mutations) {
+            plan.addMutation(mutation);
+        }
+        return plan;
+    }
+}
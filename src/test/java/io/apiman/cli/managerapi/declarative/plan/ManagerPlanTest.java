@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.declarative.plan;
+
+import io.apiman.cli.command.api.model.Api;
+import io.apiman.cli.command.api.model.ApiConfig;
+import io.apiman.cli.command.api.model.ApiPolicy;
+import io.apiman.cli.command.declarative.PlanFile;
+import io.apiman.cli.command.gateway.model.Gateway;
+import io.apiman.cli.command.gateway.model.GatewayType;
+import io.apiman.cli.command.org.model.Org;
+import io.apiman.cli.exception.CommandException;
+import io.apiman.cli.exception.DeclarativeException;
+import io.apiman.cli.gatewayapi.model.GatewayPlan;
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ManagerPlan}.
+ */
+public class ManagerPlanTest {
+    private static final String ENDPOINT = "http://localhost:8080/apiman";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWrite_RoundTrip() throws Exception {
+        // test data
+        final Path planFile = temporaryFolder.getRoot().toPath().resolve("plans").resolve("plan.json");
+
+        final ManagerPlan plan = new ManagerPlan(ENDPOINT, ManagementApiVersion.v12x);
+        plan.addGateway(new Gateway("test-gw", "Test gateway", GatewayType.REST, "{}"));
+        plan.addGateway(new Gateway("test-gw", "Repeated gateway", GatewayType.REST, "{}"));
+        plan.addOrg(new Org("test", "Test organisation"));
+
+        final ApiPlan apiPlan = new ApiPlan("test", "example", "1.0");
+        apiPlan.addMutation(ApiMutation.createApi(new Api("example", "Example API", null)));
+        apiPlan.addMutation(ApiMutation.createVersion());
+        apiPlan.addMutation(ApiMutation.configure(new ApiConfig("http://example.com", "rest", true,
+                Collections.emptyList())));
+        apiPlan.addMutation(ApiMutation.addPolicy("CachingPolicy", new ApiPolicy("{\"ttl\":60}")));
+        apiPlan.addMutation(ApiMutation.publish());
+        plan.addApi(apiPlan);
+
+        // test
+        plan.write(planFile);
+        final ManagerPlan read = PlanFile.read(planFile, ManagerPlan.class, ManagerPlan.KIND);
+
+        // assertions
+        assertEquals(ENDPOINT, read.getEndpoint());
+        assertEquals(ManagementApiVersion.v12x, read.getServerVersion());
+        assertEquals(plan.getCreated(), read.getCreated());
+        assertEquals(1, read.getGateways().size());
+        assertEquals("test", read.getOrgs().get(0).getName());
+        assertTrue(read.getPlugins().isEmpty());
+
+        assertEquals(1, read.getApis().size());
+        final ApiPlan readApiPlan = read.getApis().get(0);
+        assertEquals("example", readApiPlan.getApiName());
+        assertEquals("1.0", readApiPlan.getApiVersion());
+        assertEquals(5, readApiPlan.getMutations().size());
+        assertEquals("http://example.com", readApiPlan.getMutations().get(2).getConfig().getEndpoint());
+        assertEquals("CachingPolicy", readApiPlan.getMutations().get(3).getPolicyName());
+        assertEquals("{\"ttl\":60}", readApiPlan.getMutations().get(3).getPolicy().getConfiguration());
+        assertEquals(ApiMutation.Type.PUBLISH, readApiPlan.getMutations().get(4).getType());
+    }
+
+    @Test
+    public void testCheckDefinitionFile_Changed() throws Exception {
+        // test data
+        final Path definitionFile = temporaryFolder.newFile("swagger.json").toPath();
+        Files.write(definitionFile, "{\"swagger\":\"2.0\"}".getBytes(StandardCharsets.UTF_8));
+        final Path planFile = temporaryFolder.getRoot().toPath().resolve("plan.json");
+
+        final ApiMutation mutation = ApiMutation.setDefinitionFile("application/json", definitionFile.toString());
+        mutation.hashDefinitionFile();
+
+        final ManagerPlan plan = new ManagerPlan(ENDPOINT, ManagementApiVersion.v12x);
+        final ApiPlan apiPlan = new ApiPlan("test", "example", "1.0");
+        apiPlan.addMutation(mutation);
+        plan.addApi(apiPlan);
+        plan.write(planFile);
+
+        // test
+        final ApiMutation read = PlanFile.read(planFile, ManagerPlan.class, ManagerPlan.KIND)
+                .getApis().get(0).getMutations().get(0);
+        read.checkDefinitionFile();
+
+        Files.write(definitionFile, "{\"swagger\":\"3.0\"}".getBytes(StandardCharsets.UTF_8));
+        try {
+            read.checkDefinitionFile();
+            fail("DeclarativeException expected");
+        } catch (DeclarativeException ignored) {
+            // the file differs from the one planned
+        }
+
+        // assertions
+        assertEquals(mutation.getDefinitionHash(), read.getDefinitionHash());
+    }
+
+    @Test(expected = CommandException.class)
+    public void testRead_OtherKind() {
+        // test data
+        final Path planFile = temporaryFolder.getRoot().toPath().resolve("plan.json");
+        GatewayPlan.create().write(planFile);
+
+        // test
+        PlanFile.read(planFile, ManagerPlan.class, ManagerPlan.KIND);
+    }
+}
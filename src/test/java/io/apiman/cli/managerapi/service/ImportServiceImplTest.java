@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
+import io.apiman.cli.managerapi.command.common.model.ManagementApiVersion;
+import io.apiman.cli.managerapi.command.org.OrgApi;
+import io.apiman.cli.managerapi.management.api.SystemApi;
+import io.apiman.cli.util.MappingUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import retrofit.client.Response;
+import retrofit.mime.TypedOutput;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link ImportServiceImpl}.
+ */
+public class ImportServiceImplTest {
+    private static final int VERSION_COUNT = 10;
+
+    @Mock
+    private ManagementApiService managementApiService;
+
+    @Mock
+    private ApiService apiService;
+
+    @Mock
+    private OrgApi orgApiClient;
+
+    @Mock
+    private SystemApi systemApiClient;
+
+    @Mock
+    private VersionAgnosticApi apiClient;
+
+    /**
+     * Unit under test.
+     */
+    private ImportServiceImpl service;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        when(managementApiService.buildServerApiClient(OrgApi.class)).thenReturn(orgApiClient);
+        when(managementApiService.buildServerApiClient(SystemApi.class)).thenReturn(systemApiClient);
+        when(managementApiService.buildServerApiClient(VersionAgnosticApi.class, ManagementApiVersion.v12x))
+                .thenReturn(apiClient);
+
+        service = new ImportServiceImpl(managementApiService, apiService);
+    }
+
+    /**
+     * Expect that versions of the same API are published in declaration order.
+     */
+    @Test
+    public void testImportOrgs_PublishInOrder() throws Exception {
+        // test data
+        final DeclarativeOrg org = MappingUtil.YAML_MAPPER.readValue(
+                ImportServiceImplTest.class.getResource("/multiple-versions.yml"), BaseDeclaration.class).getOrg();
+
+        final DeclarativeApi template = org.getApis().get(0);
+        final List<DeclarativeApi> apis = newArrayList();
+        for (int i = 1; i <= VERSION_COUNT; i++) {
+            final DeclarativeApi api = MappingUtil.JSON_MAPPER.convertValue(
+                    MappingUtil.JSON_MAPPER.valueToTree(template), DeclarativeApi.class);
+            api.setVersion(i + ".0");
+            apis.add(api);
+        }
+        org.setApis(apis);
+
+        // mock behaviour
+        when(systemApiClient.importData(any(TypedOutput.class)))
+                .thenReturn(new Response("http://example.com", 200, "OK", Collections.emptyList(), null));
+
+        // test
+        service.importOrgs(ManagementApiVersion.v12x, newArrayList(org), "admin", 4);
+
+        // assertions
+        final InOrder inOrder = inOrder(apiService);
+        for (int i = 1; i <= VERSION_COUNT; i++) {
+            inOrder.verify(apiService).publish(ManagementApiVersion.v12x, "test", "multi-version-example",
+                    i + ".0", ApiService.STATE_READY);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import io.apiman.cli.command.api.model.Api;
+import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
+import io.apiman.cli.util.MappingUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Optional;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static io.apiman.cli.managerapi.command.common.model.ManagementApiVersion.v12x;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link InventoryServiceImpl}.
+ */
+public class InventoryServiceImplTest {
+    private static final String ORG_NAME = "test";
+
+    @Mock
+    private ManagementApiService managementApiService;
+
+    @Mock
+    private VersionAgnosticApi apiClient;
+
+    /**
+     * Unit under test.
+     */
+    private InventoryServiceImpl service;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        when(managementApiService.buildServerApiClient(VersionAgnosticApi.class, v12x)).thenReturn(apiClient);
+
+        service = new InventoryServiceImpl(managementApiService);
+    }
+
+    @Test
+    public void testFetchVersionStatus_LoadsVersionsOnce() throws Exception {
+        // mock behaviour
+        when(apiClient.list(ORG_NAME)).thenReturn(newArrayList(buildApi("example", null, null)));
+        when(apiClient.listVersions(ORG_NAME, "example")).thenReturn(newArrayList(
+                buildApi("example", "1.0", "Published"), buildApi("example", "2.0", "Ready")));
+
+        // test
+        service.load(v12x, ORG_NAME);
+
+        // assertions
+        assertTrue(service.apiExists(ORG_NAME, "example"));
+        assertFalse(service.apiExists(ORG_NAME, "missing"));
+        assertEquals(Optional.of("Published"), service.fetchVersionStatus(ORG_NAME, "example", "1.0"));
+        assertEquals(Optional.of("Ready"), service.fetchVersionStatus(ORG_NAME, "example", "2.0"));
+        assertEquals(Optional.empty(), service.fetchVersionStatus(ORG_NAME, "example", "3.0"));
+        assertEquals(Optional.empty(), service.fetchVersionStatus(ORG_NAME, "missing", "1.0"));
+
+        verify(apiClient, times(1)).listVersions(ORG_NAME, "example");
+        verify(apiClient, never()).listVersions(ORG_NAME, "missing");
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        // mock behaviour
+        when(apiClient.list(ORG_NAME)).thenReturn(newArrayList());
+
+        // test
+        service.load(v12x, ORG_NAME);
+        service.recordApi(ORG_NAME, "example");
+        service.recordVersion(ORG_NAME, "example", "1.0");
+
+        // assertions
+        assertTrue(service.apiExists(ORG_NAME, "example"));
+        assertTrue(service.fetchVersionStatus(ORG_NAME, "example", "1.0").isPresent());
+        verify(apiClient, never()).listVersions(ORG_NAME, "example");
+    }
+
+    private static Api buildApi(String name, String version, String status) throws Exception {
+        return MappingUtil.JSON_MAPPER.readValue(String.format(
+                "{\"id\":\"%s\",\"name\":\"%s\",\"version\":%s,\"status\":%s}", name, name,
+                null == version ? "null" : "\"" + version + "\"",
+                null == status ? "null" : "\"" + status + "\""), Api.class);
+    }
+}
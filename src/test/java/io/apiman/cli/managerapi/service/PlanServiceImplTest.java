@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.managerapi.service;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.apiman.cli.command.api.model.ApiConfig;
+import io.apiman.cli.command.api.model.ApiPolicy;
+import io.apiman.cli.command.api.model.ApiVersionState;
+import io.apiman.cli.command.api.model.EndpointProperties;
+import io.apiman.cli.command.declarative.model.BaseDeclaration;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.managerapi.command.api.VersionAgnosticApi;
+import io.apiman.cli.managerapi.declarative.plan.ApiMutation;
+import io.apiman.cli.managerapi.declarative.plan.ApiPlan;
+import io.apiman.cli.util.MappingUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static io.apiman.cli.managerapi.command.common.model.ManagementApiVersion.v12x;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link PlanServiceImpl}.
+ */
+public class PlanServiceImplTest {
+    private static final String ORG_NAME = "test";
+    private static final String API_NAME = "example";
+    private static final String API_VERSION = "1.0";
+    private static final Long POLICY_ID = 1L;
+
+    @Mock
+    private ManagementApiService managementApiService;
+
+    @Mock
+    private PolicyService policyService;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private VersionAgnosticApi apiClient;
+
+    private DeclarativeApi declarativeApi;
+
+    /**
+     * Unit under test.
+     */
+    private PlanServiceImpl service;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        when(managementApiService.buildServerApiClient(VersionAgnosticApi.class, v12x)).thenReturn(apiClient);
+
+        declarativeApi = MappingUtil.YAML_MAPPER.readValue(PlanServiceImplTest.class.getResource("/simple-no-plugin.yml"),
+                BaseDeclaration.class).getOrg().getApis().get(0);
+
+        service = new PlanServiceImpl(managementApiService, policyService, inventoryService);
+    }
+
+    @Test
+    public void testPlanApi_NewApi() throws Exception {
+        // mock behaviour
+        when(inventoryService.fetchVersionStatus(ORG_NAME, API_NAME, API_VERSION)).thenReturn(Optional.empty());
+
+        // test
+        final ApiPlan actual = service.planApi(v12x, declarativeApi, ORG_NAME, API_NAME, API_VERSION);
+
+        // assertions
+        verify(policyService, never()).fetchPolicies(any(), any(), any(), any());
+        assertEquals(newArrayList(ApiMutation.Type.CREATE_API, ApiMutation.Type.CREATE_VERSION,
+                ApiMutation.Type.CONFIGURE, ApiMutation.Type.ADD_POLICY, ApiMutation.Type.PUBLISH), types(actual));
+    }
+
+    @Test
+    public void testPlanApi_UpToDate() throws Exception {
+        // mock behaviour
+        mockExistingVersion("Published");
+        mockExistingPolicy("{ \"ttl\" : 60 }");
+
+        // test
+        final ApiPlan actual = service.planApi(v12x, declarativeApi, ORG_NAME, API_NAME, API_VERSION);
+
+        // assertions
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    public void testPlanApi_PolicyChanged() throws Exception {
+        // mock behaviour
+        mockExistingVersion("Published");
+        mockExistingPolicy("{\"ttl\":30}");
+
+        // test
+        final ApiPlan actual = service.planApi(v12x, declarativeApi, ORG_NAME, API_NAME, API_VERSION);
+
+        // assertions
+        assertEquals(newArrayList(ApiMutation.Type.CONFIGURE_POLICY, ApiMutation.Type.PUBLISH), types(actual));
+        assertEquals(POLICY_ID, actual.getMutations().get(0).getPolicyId());
+    }
+
+    @Test
+    public void testPlanApi_DefinitionUnchanged() throws Exception {
+        // test data
+        declareDefinition("{\"swagger\":\"2.0\"}");
+
+        // mock behaviour
+        mockExistingVersion("Published");
+        mockExistingPolicy("{ \"ttl\" : 60 }");
+        mockExistingDefinition("{\"swagger\":\"2.0\"}");
+
+        // test
+        final ApiPlan actual = service.planApi(v12x, declarativeApi, ORG_NAME, API_NAME, API_VERSION);
+
+        // assertions
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    public void testPlanApi_DefinitionChanged() throws Exception {
+        // test data
+        declareDefinition("{\"swagger\":\"2.0\",\"host\":\"example.com\"}");
+
+        // mock behaviour
+        mockExistingVersion("Published");
+        mockExistingPolicy("{ \"ttl\" : 60 }");
+        mockExistingDefinition("{\"swagger\":\"2.0\"}");
+
+        // test
+        final ApiPlan actual = service.planApi(v12x, declarativeApi, ORG_NAME, API_NAME, API_VERSION);
+
+        // assertions
+        assertEquals(newArrayList(ApiMutation.Type.SET_DEFINITION), types(actual));
+    }
+
+    private void declareDefinition(String body) throws Exception {
+        final ObjectNode definition = MappingUtil.JSON_MAPPER.createObjectNode();
+        definition.putObject("definition").put("body", body);
+        MappingUtil.JSON_MAPPER.readerForUpdating(declarativeApi).readValue(definition);
+    }
+
+    private void mockExistingDefinition(String body) {
+        final TypedByteArray existing = new TypedByteArray("application/json", body.getBytes(StandardCharsets.UTF_8));
+        when(apiClient.fetchDefinition(ORG_NAME, API_NAME, API_VERSION))
+                .thenReturn(new Response("", 200, "OK", Collections.emptyList(), existing));
+    }
+
+    /**
+     * Mock an existing API version, whose configuration matches the declaration.
+     */
+    private void mockExistingVersion(String status) throws Exception {
+        final ApiConfig apiConfig = MappingUtil.map(declarativeApi.getConfig(), ApiConfig.class);
+        apiConfig.setEndpointProperties(MappingUtil.map(declarativeApi.getConfig().getSecurity(), EndpointProperties.class));
+
+        // the server includes additional fields
+        final ObjectNode remote = MappingUtil.JSON_MAPPER.valueToTree(apiConfig);
+        remote.put("status", status);
+        remote.putArray("plans");
+
+        when(inventoryService.apiExists(ORG_NAME, API_NAME)).thenReturn(true);
+        when(inventoryService.fetchVersionStatus(ORG_NAME, API_NAME, API_VERSION)).thenReturn(Optional.of(status));
+        when(apiClient.fetchVersion(ORG_NAME, API_NAME, API_VERSION))
+                .thenReturn(MappingUtil.JSON_MAPPER.treeToValue(remote, ApiVersionState.class));
+    }
+
+    private void mockExistingPolicy(String configuration) throws Exception {
+        final ApiPolicy summary = MappingUtil.JSON_MAPPER.readValue(
+                "{\"policyDefinitionId\":\"CachingPolicy\",\"id\":" + POLICY_ID + "}", ApiPolicy.class);
+
+        final ApiPolicy remotePolicy = new ApiPolicy(configuration);
+
+        when(policyService.fetchPolicies(v12x, ORG_NAME, API_NAME, API_VERSION)).thenReturn(newArrayList(summary));
+        when(policyService.fetchPolicy(eq(v12x), eq(ORG_NAME), eq(API_NAME), eq(API_VERSION), any()))
+                .thenReturn(remotePolicy);
+    }
+
+    private static List<ApiMutation.Type> types(ApiPlan plan) {
+        return plan.getMutations().stream().map(ApiMutation::getType).collect(Collectors.toList());
+    }
+}
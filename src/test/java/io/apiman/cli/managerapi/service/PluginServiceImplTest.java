@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.managerapi.service;
+
+import io.apiman.cli.command.plugin.model.Plugin;
+import io.apiman.cli.managerapi.command.plugin.PluginApi;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link PluginServiceImpl}.
+ */
+public class PluginServiceImplTest {
+    private static final String GROUP_ID = "io.apiman.plugins";
+
+    @Mock
+    private ManagementApiService managementApiService;
+
+    @Mock
+    private PluginApi apiClient;
+
+    /**
+     * Unit under test.
+     */
+    private PluginServiceImpl service;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        when(managementApiService.buildServerApiClient(PluginApi.class)).thenReturn(apiClient);
+
+        service = new PluginServiceImpl(managementApiService);
+    }
+
+    @Test
+    public void testAddPlugins_OnlyMissing() {
+        // test data
+        final Plugin installed = new Plugin(GROUP_ID, "apiman-plugins-test-policy", null, "1.3.1.Final");
+        final Plugin missing = new Plugin(GROUP_ID, "apiman-plugins-cors-policy", null, "1.3.1.Final");
+        final Plugin otherVersion = new Plugin(GROUP_ID, "apiman-plugins-test-policy", null, "1.2.4.Final");
+        final Plugin duplicate = new Plugin(GROUP_ID, "apiman-plugins-cors-policy", null, "1.3.1.Final");
+
+        // mock behaviour
+        when(apiClient.list()).thenReturn(newArrayList(
+                new Plugin(GROUP_ID, "apiman-plugins-test-policy", null, "1.3.1.Final")));
+
+        // test
+        service.addPlugins(newArrayList(installed, missing, otherVersion, duplicate));
+
+        // assertions
+        verify(apiClient, times(1)).list();
+
+        final ArgumentCaptor<Plugin> created = ArgumentCaptor.forClass(Plugin.class);
+        verify(apiClient, times(2)).create(created.capture());
+
+        final List<String> versions = newArrayList();
+        created.getAllValues().forEach(plugin -> versions.add(plugin.getArtifactId() + ":" + plugin.getVersion()));
+        versions.sort(null);
+        assertEquals(newArrayList("apiman-plugins-cors-policy:1.3.1.Final", "apiman-plugins-test-policy:1.2.4.Final"),
+                versions);
+    }
+}
@@ -23,6 +23,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -53,4 +55,21 @@ public class ManagementApiServiceImplTest {
         assertNotNull(actual);
         assertTrue(OrgApi.class.isAssignableFrom(actual.getClass()));
     }
+
+    @Test
+    public void testBuildServerApiClient_Cached() throws Exception {
+        // test
+        final OrgApi first = service.buildServerApiClient(
+                OrgApi.class, ManagementApiVersion.UNSPECIFIED, URL, "username", "password", true);
+
+        final OrgApi second = service.buildServerApiClient(
+                OrgApi.class, ManagementApiVersion.UNSPECIFIED, URL, "username", "password", true);
+
+        final OrgApi otherCredentials = service.buildServerApiClient(
+                OrgApi.class, ManagementApiVersion.UNSPECIFIED, URL, "username", "other", true);
+
+        // assertions
+        assertSame(first, second);
+        assertNotSame(first, otherCredentials);
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support.stub;
+
+import java.net.HttpURLConnection;
+
+/**
+ * How a stub server responds to requests for a route: how long each request takes, how often it
+ * fails, and how many requests it serves at once.
+ */
+public class StubBehaviour {
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private long latency;
+    private double errorRate;
+    private int errorStatus = HttpURLConnection.HTTP_UNAVAILABLE;
+    private int maxConcurrentRequests;
+    private int retryAfter;
+
+    /**
+     * @param latency the time, in milliseconds, each request takes before it is served
+     * @return this
+     */
+    public StubBehaviour withLatency(long latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param errorRate the proportion of requests, between 0 and 1, that fail with the error status
+     * @return this
+     */
+    public StubBehaviour withErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1: " + errorRate);
+        }
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param errorStatus the HTTP status of failed requests
+     * @return this
+     */
+    public StubBehaviour withErrorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    /**
+     * @param maxConcurrentRequests the number of requests served at once, above which requests are
+     *                              rejected with HTTP 429, or 0 for no limit
+     * @return this
+     */
+    public StubBehaviour withMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        return this;
+    }
+
+    /**
+     * @param retryAfter the delay, in seconds, sent in the {@code Retry-After} header of throttled requests
+     * @return this
+     */
+    public StubBehaviour withRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * @param status the HTTP status
+     * @return <code>true</code> if the status tells the client to retry after a delay
+     */
+    static boolean isThrottled(int status) {
+        return HTTP_TOO_MANY_REQUESTS == status || HttpURLConnection.HTTP_UNAVAILABLE == status;
+    }
+}
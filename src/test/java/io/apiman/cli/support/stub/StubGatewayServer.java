@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support.stub;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Strings;
+import io.apiman.cli.util.MappingUtil;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * A stub apiman Gateway API, serving the requests made by <code>gateway apply</code> and the
+ * <code>gateway</code> API and client commands. Published APIs and registered clients are held in memory.
+ */
+public class StubGatewayServer extends StubServer {
+    private final EntityRegistry apis = new EntityRegistry("API", "apiId");
+    private final EntityRegistry clients = new EntityRegistry("Client", "clientId");
+
+    public StubGatewayServer() {
+        super("gateway", "/apiman-gateway-api");
+
+        route("GET", "/system/status", request -> StubResponse.ok(MappingUtil.JSON_MAPPER.createObjectNode()
+                .put("id", "stub-gateway")
+                .put("name", "Stub Gateway API")
+                .put("up", true)));
+
+        route("PUT", "/apis", request -> register(apis, request));
+        route("DELETE", "/apis/{organizationId}/{apiId}/{version}", request -> unregister(apis, request));
+        route("GET", "/apis/{organizationId}/{apiId}/{version}/endpoint", this::getApiEndpoint);
+        route("PUT", "/clients", request -> register(clients, request));
+        route("DELETE", "/clients/{organizationId}/{clientId}/{version}", request -> unregister(clients, request));
+
+        final String orgApis = "/organizations/{organizationId}/apis";
+        final String orgClients = "/organizations/{organizationId}/clients";
+
+        route("GET", "/organizations", request -> listOrgs());
+        route("GET", orgApis, request -> listIds(apis, request));
+        route("GET", orgApis + "/{apiId}/versions", request -> listVersions(apis, request));
+        route("GET", orgApis + "/{apiId}/versions/{version}", request -> fetch(apis, request));
+        route("GET", orgApis + "/{apiId}/versions/{version}/endpoint", this::getApiEndpoint);
+        route("DELETE", orgApis + "/{apiId}/versions/{version}", request -> unregister(apis, request));
+        route("GET", orgClients, request -> listIds(clients, request));
+        route("GET", orgClients + "/{clientId}/versions", request -> listVersions(clients, request));
+        route("GET", orgClients + "/{clientId}/versions/{version}", request -> fetch(clients, request));
+        route("DELETE", orgClients + "/{clientId}/versions/{version}", request -> unregister(clients, request));
+    }
+
+    /**
+     * @return the number of APIs published, across all organisations
+     */
+    public synchronized int countApis() {
+        return apis.count();
+    }
+
+    /**
+     * @param organizationId the organisation ID
+     * @param apiId          the API ID
+     * @param version        the API version
+     * @return the published API, or empty if it is not published
+     */
+    public synchronized Optional<ObjectNode> getApi(String organizationId, String apiId, String version) {
+        return apis.get(organizationId, apiId, version).map(ObjectNode::deepCopy);
+    }
+
+    private synchronized StubResponse register(EntityRegistry registry, StubRequest request) throws IOException {
+        final ObjectNode entity = request.readObject();
+        final String organizationId = entity.path("organizationId").asText(null);
+        final String id = entity.path(registry.idField).asText(null);
+        final String version = entity.path("version").asText(null);
+
+        if (Strings.isNullOrEmpty(organizationId) || Strings.isNullOrEmpty(id) || Strings.isNullOrEmpty(version)) {
+            return StubResponse.error(HttpURLConnection.HTTP_BAD_REQUEST, String.format(
+                    "%s organizationId, %s and version are required", registry.entityType, registry.idField));
+        }
+
+        // publishing again replaces the existing entity
+        registry.put(organizationId, id, version, entity);
+        return StubResponse.noContent();
+    }
+
+    private synchronized StubResponse unregister(EntityRegistry registry, StubRequest request) {
+        final String organizationId = request.param("organizationId");
+        final String id = request.param(registry.idField);
+        final String version = request.param("version");
+
+        if (!registry.remove(organizationId, id, version)) {
+            return StubResponse.notFound(registry.entityType, organizationId + "/" + id + "/" + version);
+        }
+        return StubResponse.noContent();
+    }
+
+    private synchronized StubResponse getApiEndpoint(StubRequest request) throws IOException {
+        final String organizationId = request.param("organizationId");
+        final String apiId = request.param("apiId");
+        final String version = request.param("version");
+
+        if (!apis.get(organizationId, apiId, version).isPresent()) {
+            return StubResponse.notFound(apis.entityType, organizationId + "/" + apiId + "/" + version);
+        }
+
+        final String endpoint = String.format("%s/apiman-gateway/%s/%s/%s",
+                getBaseUrl(), organizationId, apiId, version);
+        return StubResponse.ok(MappingUtil.JSON_MAPPER.createObjectNode().put("endpoint", endpoint));
+    }
+
+    private synchronized StubResponse listOrgs() throws IOException {
+        final TreeSet<String> organizationIds = new TreeSet<>(apis.entities.keySet());
+        organizationIds.addAll(clients.entities.keySet());
+        return StubResponse.ok(organizationIds);
+    }
+
+    private synchronized StubResponse listIds(EntityRegistry registry, StubRequest request) throws IOException {
+        return StubResponse.ok(ofNullable(registry.entities.get(request.param("organizationId")))
+                .map(ids -> new ArrayList<>(ids.keySet()))
+                .orElseGet(ArrayList::new));
+    }
+
+    private synchronized StubResponse listVersions(EntityRegistry registry, StubRequest request) throws IOException {
+        return StubResponse.ok(ofNullable(registry.entities.get(request.param("organizationId")))
+                .map(ids -> ids.get(request.param(registry.idField)))
+                .map(versions -> new ArrayList<>(versions.keySet()))
+                .orElseGet(ArrayList::new));
+    }
+
+    private synchronized StubResponse fetch(EntityRegistry registry, StubRequest request) throws IOException {
+        final String organizationId = request.param("organizationId");
+        final String id = request.param(registry.idField);
+        final String version = request.param("version");
+
+        final Optional<ObjectNode> entity = registry.get(organizationId, id, version);
+        if (!entity.isPresent()) {
+            return StubResponse.notFound(registry.entityType, organizationId + "/" + id + "/" + version);
+        }
+        return StubResponse.ok(entity.get());
+    }
+
+    /**
+     * Entities, keyed by version, keyed by ID, keyed by organisation.
+     */
+    private static final class EntityRegistry {
+        private final String entityType;
+        private final String idField;
+        private final Map<String, Map<String, Map<String, ObjectNode>>> entities = new TreeMap<>();
+
+        private EntityRegistry(String entityType, String idField) {
+            this.entityType = entityType;
+            this.idField = idField;
+        }
+
+        private void put(String organizationId, String id, String version, ObjectNode entity) {
+            entities.computeIfAbsent(organizationId, key -> new TreeMap<>())
+                    .computeIfAbsent(id, key -> new TreeMap<>())
+                    .put(version, entity);
+        }
+
+        private Optional<ObjectNode> get(String organizationId, String id, String version) {
+            return ofNullable(entities.get(organizationId))
+                    .map(ids -> ids.get(id))
+                    .map(versions -> versions.get(version));
+        }
+
+        private boolean remove(String organizationId, String id, String version) {
+            final Map<String, Map<String, ObjectNode>> ids = entities.get(organizationId);
+            final Map<String, ObjectNode> versions = null != ids ? ids.get(id) : null;
+            if (null == versions || null == versions.remove(version)) {
+                return false;
+            }
+
+            // empty organisations and IDs are no longer listed
+            if (versions.isEmpty()) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    entities.remove(organizationId);
+                }
+            }
+            return true;
+        }
+
+        private int count() {
+            return entities.values().stream()
+                    .flatMap(ids -> ids.values().stream())
+                    .mapToInt(Map::size)
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support.stub;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.apiman.cli.Cli;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link StubGatewayServer}, applying a declaration to it as to a real gateway.
+ */
+public class StubGatewayServerTest {
+    private StubGatewayServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubGatewayServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testApply() throws Exception {
+        // test
+        Cli.main("gateway", "apply",
+                "--declarationFile", getDeclarationFile(),
+                "-P", "gatewayEndpoint=" + server.getEndpoint());
+
+        // assertions
+        assertEquals(2, server.countApis());
+
+        final ObjectNode api = server.getApi("test", "example", "2.0").orElseThrow(AssertionError::new);
+        assertEquals("http://example.com/v2", api.path("endpoint").asText());
+        assertEquals(1, api.path("apiPolicies").size());
+    }
+
+    private static String getDeclarationFile() throws Exception {
+        return Paths.get(StubGatewayServerTest.class.getResource("/stub-apply.yml").toURI()).toString();
+    }
+}
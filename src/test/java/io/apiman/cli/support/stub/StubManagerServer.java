@@ -0,0 +1,465 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Strings;
+import io.apiman.cli.util.MappingUtil;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * A stub apiman Management API, serving the gateway, plugin, organisation, API (v1.2.x) and action
+ * requests made by <code>manager apply</code>. Entities are held in memory, and API versions move
+ * through the same states as on a real server: <code>Created</code>, <code>Ready</code> once they
+ * have an endpoint and a gateway, then <code>Published</code>.
+ */
+public class StubManagerServer extends StubServer {
+    public static final String STATUS_CREATED = "Created";
+    public static final String STATUS_READY = "Ready";
+    public static final String STATUS_PUBLISHED = "Published";
+    public static final String STATUS_RETIRED = "Retired";
+
+    private final Map<String, ObjectNode> gateways = new LinkedHashMap<>();
+    private final Map<Long, ObjectNode> plugins = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> orgs = new LinkedHashMap<>();
+
+    /**
+     * APIs, keyed by name, keyed by organisation.
+     */
+    private final Map<String, Map<String, StubApi>> apis = new LinkedHashMap<>();
+
+    private long nextId = 1;
+
+    public StubManagerServer() {
+        super("manager", "/apiman");
+
+        route("GET", "/system/status", request -> StubResponse.ok(MappingUtil.JSON_MAPPER.createObjectNode()
+                .put("name", "Stub Management API")
+                .put("up", true)));
+
+        route("POST", "/gateways", this::createGateway);
+        route("GET", "/gateways", this::listGateways);
+        route("GET", "/gateways/{gatewayId}", this::fetchGateway);
+        route("PUT", "/gateways", request -> StubResponse.ok(MappingUtil.JSON_MAPPER.createObjectNode()
+                .put("success", true)
+                .put("detail", "Stub gateway")));
+
+        route("POST", "/plugins", this::createPlugin);
+        route("GET", "/plugins", this::listPlugins);
+        route("GET", "/plugins/{pluginId}", this::fetchPlugin);
+
+        route("POST", "/organizations", this::createOrg);
+        route("GET", "/organizations/{orgName}", this::fetchOrg);
+
+        final String orgApis = "/organizations/{orgName}/apis";
+        final String apiVersion = orgApis + "/{apiName}/versions/{version}";
+
+        route("POST", orgApis, this::createApi);
+        route("GET", orgApis, this::listApis);
+        route("GET", orgApis + "/{apiName}", this::fetchApi);
+        route("POST", orgApis + "/{apiName}/versions", this::createVersion);
+        route("GET", orgApis + "/{apiName}/versions", this::listVersions);
+        route("GET", apiVersion, this::fetchVersion);
+        route("PUT", apiVersion, this::configure);
+        route("PUT", apiVersion + "/definition", this::setDefinition);
+        route("GET", apiVersion + "/definition", this::fetchDefinition);
+        route("POST", apiVersion + "/policies", this::addPolicy);
+        route("GET", apiVersion + "/policies", this::fetchPolicies);
+        route("GET", apiVersion + "/policies/{policyId}", this::fetchPolicy);
+        route("PUT", apiVersion + "/policies/{policyId}", this::configurePolicy);
+
+        route("POST", "/actions", this::doAction);
+    }
+
+    /**
+     * @param orgName    the organisation name
+     * @param apiName    the API name
+     * @param apiVersion the API version
+     * @return the status of the API version, or empty if it does not exist
+     */
+    public synchronized Optional<String> getApiVersionStatus(String orgName, String apiName, String apiVersion) {
+        return ofNullable(apis.get(orgName))
+                .map(orgApis -> orgApis.get(apiName))
+                .map(api -> api.versions.get(apiVersion))
+                .map(StubApiVersion::getStatus);
+    }
+
+    /**
+     * @param status the status, such as <code>Published</code>
+     * @return the number of API versions, across all organisations, with the status
+     */
+    public synchronized long countApiVersions(String status) {
+        return apis.values().stream()
+                .flatMap(orgApis -> orgApis.values().stream())
+                .flatMap(api -> api.versions.values().stream())
+                .filter(version -> status.equals(version.getStatus()))
+                .count();
+    }
+
+    private synchronized StubResponse createGateway(StubRequest request) throws IOException {
+        final ObjectNode gateway = request.readObject();
+        final String gatewayName = gateway.path("name").asText();
+        if (gateways.containsKey(gatewayName)) {
+            return StubResponse.conflict("Gateway", gatewayName);
+        }
+
+        // the CLI identifies gateways by name
+        gateway.put("id", gatewayName);
+        gateways.put(gatewayName, gateway);
+        return StubResponse.ok(gateway);
+    }
+
+    private synchronized StubResponse listGateways(StubRequest request) throws IOException {
+        return StubResponse.ok(gateways.values());
+    }
+
+    private synchronized StubResponse fetchGateway(StubRequest request) throws IOException {
+        final String gatewayId = request.param("gatewayId");
+        return okOrNotFound(gateways.get(gatewayId), "Gateway", gatewayId);
+    }
+
+    private synchronized StubResponse createPlugin(StubRequest request) throws IOException {
+        final ObjectNode plugin = request.readObject();
+        final String coordinates = describePlugin(plugin);
+        if (plugins.values().stream().anyMatch(existing -> coordinates.equals(describePlugin(existing)))) {
+            return StubResponse.conflict("Plugin", coordinates);
+        }
+
+        final long pluginId = nextId++;
+        plugin.put("id", pluginId);
+        plugins.put(pluginId, plugin);
+        return StubResponse.ok(plugin);
+    }
+
+    private synchronized StubResponse listPlugins(StubRequest request) throws IOException {
+        return StubResponse.ok(plugins.values());
+    }
+
+    private synchronized StubResponse fetchPlugin(StubRequest request) throws IOException {
+        final String pluginId = request.param("pluginId");
+        return okOrNotFound(parseId(pluginId).map(plugins::get).orElse(null), "Plugin", pluginId);
+    }
+
+    private synchronized StubResponse createOrg(StubRequest request) throws IOException {
+        final ObjectNode org = request.readObject();
+        final String orgName = org.path("name").asText();
+        if (orgs.containsKey(orgName)) {
+            return StubResponse.conflict("Organization", orgName);
+        }
+
+        org.put("id", orgName);
+        orgs.put(orgName, org);
+        apis.put(orgName, new LinkedHashMap<>());
+        return StubResponse.ok(org);
+    }
+
+    private synchronized StubResponse fetchOrg(StubRequest request) throws IOException {
+        final String orgName = request.param("orgName");
+        return okOrNotFound(orgs.get(orgName), "Organization", orgName);
+    }
+
+    private synchronized StubResponse createApi(StubRequest request) throws IOException {
+        final String orgName = request.param("orgName");
+        final Map<String, StubApi> orgApis = apis.get(orgName);
+        if (null == orgApis) {
+            return StubResponse.notFound("Organization", orgName);
+        }
+
+        final ObjectNode body = request.readObject();
+        final String apiName = body.path("name").asText();
+        if (orgApis.containsKey(apiName)) {
+            return StubResponse.conflict("API", apiName);
+        }
+
+        final ObjectNode summary = MappingUtil.JSON_MAPPER.createObjectNode()
+                .put("id", apiName)
+                .put("name", apiName)
+                .put("description", body.path("description").asText(null))
+                .put("organizationName", orgName);
+
+        final StubApi api = new StubApi(summary);
+        orgApis.put(apiName, api);
+
+        // as on a real server, an initial version is created if one is given
+        final String initialVersion = body.path("initialVersion").asText(null);
+        if (!Strings.isNullOrEmpty(initialVersion)) {
+            api.versions.put(initialVersion, new StubApiVersion(orgName, apiName, initialVersion));
+        }
+        return StubResponse.ok(summary);
+    }
+
+    private synchronized StubResponse listApis(StubRequest request) throws IOException {
+        final String orgName = request.param("orgName");
+        final Map<String, StubApi> orgApis = apis.get(orgName);
+        if (null == orgApis) {
+            return StubResponse.notFound("Organization", orgName);
+        }
+        return StubResponse.ok(orgApis.values().stream()
+                .map(api -> api.summary)
+                .collect(Collectors.toList()));
+    }
+
+    private synchronized StubResponse fetchApi(StubRequest request) throws IOException {
+        final StubApi api = findApi(request);
+        return okOrNotFound(null != api ? api.summary : null, "API", request.param("apiName"));
+    }
+
+    private synchronized StubResponse createVersion(StubRequest request) throws IOException {
+        final StubApi api = findApi(request);
+        if (null == api) {
+            return StubResponse.notFound("API", request.param("apiName"));
+        }
+
+        final String apiVersion = request.readObject().path("version").asText();
+        if (Strings.isNullOrEmpty(apiVersion)) {
+            return StubResponse.error(HttpURLConnection.HTTP_BAD_REQUEST, "API version is required");
+        }
+        if (api.versions.containsKey(apiVersion)) {
+            return StubResponse.conflict("API version", apiVersion);
+        }
+
+        final StubApiVersion version = new StubApiVersion(
+                request.param("orgName"), request.param("apiName"), apiVersion);
+        api.versions.put(apiVersion, version);
+        return StubResponse.ok(version.state);
+    }
+
+    private synchronized StubResponse listVersions(StubRequest request) throws IOException {
+        final StubApi api = findApi(request);
+        if (null == api) {
+            return StubResponse.notFound("API", request.param("apiName"));
+        }
+        return StubResponse.ok(api.versions.values().stream()
+                .map(version -> api.summary.deepCopy()
+                        .put("version", version.state.path("version").asText())
+                        .put("status", version.getStatus()))
+                .collect(Collectors.toList()));
+    }
+
+    private synchronized StubResponse fetchVersion(StubRequest request) throws IOException {
+        final StubApiVersion version = findVersion(request);
+        return okOrNotFound(null != version ? version.state : null, "API version", request.param("version"));
+    }
+
+    private synchronized StubResponse configure(StubRequest request) throws IOException {
+        final StubApiVersion version = findVersion(request);
+        if (null == version) {
+            return StubResponse.notFound("API version", request.param("version"));
+        }
+        if (STATUS_RETIRED.equals(version.getStatus())) {
+            return StubResponse.error(HttpURLConnection.HTTP_CONFLICT, "API version is retired");
+        }
+
+        final ObjectNode config = request.readObject();
+        config.remove("status");
+        config.remove("version");
+        version.state.setAll(config);
+
+        if (STATUS_CREATED.equals(version.getStatus()) && version.isReady()) {
+            version.setStatus(STATUS_READY);
+        }
+        return StubResponse.ok(version.state);
+    }
+
+    private synchronized StubResponse setDefinition(StubRequest request) {
+        final StubApiVersion version = findVersion(request);
+        if (null == version) {
+            return StubResponse.notFound("API version", request.param("version"));
+        }
+
+        version.definitionType = ofNullable(request.getHeader("Content-Type")).orElse("application/json");
+        version.definition = request.getBody();
+        return StubResponse.noContent();
+    }
+
+    private synchronized StubResponse fetchDefinition(StubRequest request) {
+        final StubApiVersion version = findVersion(request);
+        if (null == version || null == version.definition) {
+            return StubResponse.notFound("API definition", request.param("apiName"));
+        }
+        return StubResponse.content(version.definitionType, version.definition);
+    }
+
+    private synchronized StubResponse addPolicy(StubRequest request) throws IOException {
+        final StubApiVersion version = findVersion(request);
+        if (null == version) {
+            return StubResponse.notFound("API version", request.param("version"));
+        }
+
+        final ObjectNode body = request.readObject();
+        final long policyId = nextId++;
+        final ObjectNode policy = MappingUtil.JSON_MAPPER.createObjectNode()
+                .put("id", policyId)
+                .put("policyDefinitionId", body.path("definitionId").asText())
+                .put("configuration", body.path("configuration").asText());
+
+        version.policies.put(policyId, policy);
+        return StubResponse.ok(policy);
+    }
+
+    private synchronized StubResponse fetchPolicies(StubRequest request) throws IOException {
+        final StubApiVersion version = findVersion(request);
+        if (null == version) {
+            return StubResponse.notFound("API version", request.param("version"));
+        }
+
+        // as on a real server, the summaries do not include the configuration
+        return StubResponse.ok(version.policies.values().stream()
+                .map(policy -> policy.deepCopy().without("configuration"))
+                .collect(Collectors.toList()));
+    }
+
+    private synchronized StubResponse fetchPolicy(StubRequest request) throws IOException {
+        final StubApiVersion version = findVersion(request);
+        final String policyId = request.param("policyId");
+        return okOrNotFound(null != version ? parseId(policyId).map(version.policies::get).orElse(null) : null,
+                "Policy", policyId);
+    }
+
+    private synchronized StubResponse configurePolicy(StubRequest request) throws IOException {
+        final StubApiVersion version = findVersion(request);
+        final String policyId = request.param("policyId");
+        final ObjectNode policy = null != version ? parseId(policyId).map(version.policies::get).orElse(null) : null;
+        if (null == policy) {
+            return StubResponse.notFound("Policy", policyId);
+        }
+
+        policy.put("configuration", request.readObject().path("configuration").asText());
+        return StubResponse.noContent();
+    }
+
+    private synchronized StubResponse doAction(StubRequest request) throws IOException {
+        final ObjectNode action = request.readObject();
+        final String actionType = action.path("type").asText();
+        final String orgName = action.path("organizationId").asText();
+        final String apiName = action.path("entityId").asText();
+        final String apiVersion = action.path("entityVersion").asText();
+
+        final StubApiVersion version = ofNullable(apis.get(orgName))
+                .map(orgApis -> orgApis.get(apiName))
+                .map(api -> api.versions.get(apiVersion))
+                .orElse(null);
+
+        if (null == version) {
+            return StubResponse.notFound("API version", orgName + "/" + apiName + "/" + apiVersion);
+        }
+
+        switch (actionType) {
+            case "publishAPI":
+                if (!STATUS_READY.equals(version.getStatus()) && !STATUS_PUBLISHED.equals(version.getStatus())) {
+                    return StubResponse.error(HttpURLConnection.HTTP_CONFLICT,
+                            "API version is not ready to publish: " + version.getStatus());
+                }
+                version.setStatus(STATUS_PUBLISHED);
+                return StubResponse.noContent();
+
+            case "retireAPI":
+                if (!STATUS_PUBLISHED.equals(version.getStatus())) {
+                    return StubResponse.error(HttpURLConnection.HTTP_CONFLICT,
+                            "API version is not published: " + version.getStatus());
+                }
+                version.setStatus(STATUS_RETIRED);
+                return StubResponse.noContent();
+
+            default:
+                return StubResponse.error(HttpURLConnection.HTTP_BAD_REQUEST, "Unsupported action: " + actionType);
+        }
+    }
+
+    private StubApi findApi(StubRequest request) {
+        return ofNullable(apis.get(request.param("orgName")))
+                .map(orgApis -> orgApis.get(request.param("apiName")))
+                .orElse(null);
+    }
+
+    private StubApiVersion findVersion(StubRequest request) {
+        return ofNullable(findApi(request))
+                .map(api -> api.versions.get(request.param("version")))
+                .orElse(null);
+    }
+
+    private static StubResponse okOrNotFound(JsonNode entity, String entityType, String id) throws IOException {
+        return null != entity ? StubResponse.ok(entity) : StubResponse.notFound(entityType, id);
+    }
+
+    private static Optional<Long> parseId(String id) {
+        try {
+            return Optional.of(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static String describePlugin(JsonNode plugin) {
+        return plugin.path("groupId").asText() + ":" + plugin.path("artifactId").asText() + ":"
+                + plugin.path("version").asText() + ":" + plugin.path("classifier").asText();
+    }
+
+    /**
+     * An API and its versions.
+     */
+    private static final class StubApi {
+        private final ObjectNode summary;
+        private final Map<String, StubApiVersion> versions = new LinkedHashMap<>();
+
+        private StubApi(ObjectNode summary) {
+            this.summary = summary;
+        }
+    }
+
+    /**
+     * An API version, with its configuration, definition and policies.
+     */
+    private static final class StubApiVersion {
+        private final ObjectNode state;
+        private final Map<Long, ObjectNode> policies = new LinkedHashMap<>();
+        private String definitionType;
+        private byte[] definition;
+
+        private StubApiVersion(String orgName, String apiName, String apiVersion) {
+            this.state = MappingUtil.JSON_MAPPER.createObjectNode()
+                    .put("organizationName", orgName)
+                    .put("name", apiName)
+                    .put("version", apiVersion)
+                    .put("status", STATUS_CREATED);
+        }
+
+        private String getStatus() {
+            return state.path("status").asText();
+        }
+
+        private void setStatus(String status) {
+            state.put("status", status);
+        }
+
+        /**
+         * @return <code>true</code> if the version has an endpoint and a gateway, so can be published
+         */
+        private boolean isReady() {
+            return !Strings.isNullOrEmpty(state.path("endpoint").asText(null)) && state.path("gateways").size() > 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support.stub;
+
+import io.apiman.cli.Cli;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link StubManagerServer}, applying a declaration to it as to a real server.
+ */
+public class StubManagerServerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private StubManagerServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubManagerServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testApply() throws Exception {
+        // test
+        apply();
+
+        // assertions
+        final Optional<String> published = Optional.of(StubManagerServer.STATUS_PUBLISHED);
+        assertEquals(published, server.getApiVersionStatus("test", "example", "1.0"));
+        assertEquals(published, server.getApiVersionStatus("test", "example", "2.0"));
+        assertEquals(2, server.countApiVersions(StubManagerServer.STATUS_PUBLISHED));
+    }
+
+    @Test
+    public void testApply_Unchanged() throws Exception {
+        // test data
+        apply();
+        final long initialRequests = server.getRequestCount();
+
+        // test
+        apply();
+
+        // assertions
+        assertEquals(2, server.countApiVersions(StubManagerServer.STATUS_PUBLISHED));
+        assertTrue("unchanged APIs should only be read",
+                server.getRequestCount() - initialRequests < initialRequests);
+    }
+
+    /**
+     * Expect that a plan for several declarations of the same organisation creates each API once.
+     */
+    @Test
+    public void testPlan_MultipleDeclarations() throws Exception {
+        // test data
+        final String planFile = temporaryFolder.getRoot().toPath().resolve("plan.json").toString();
+
+        // test
+        apply("--declarationFile", getDeclarationFile("/stub-apply-v3.yml"), "--plan-out", planFile);
+        Cli.main("manager", "apply",
+                "--server", server.getEndpoint(),
+                "--plan-in", planFile);
+
+        // assertions
+        assertEquals(3, server.countApiVersions(StubManagerServer.STATUS_PUBLISHED));
+        assertEquals(Optional.of(StubManagerServer.STATUS_PUBLISHED),
+                server.getApiVersionStatus("test", "example", "3.0"));
+    }
+
+    private void apply(String... args) throws Exception {
+        final List<String> allArgs = newArrayList("manager", "apply",
+                "--server", server.getEndpoint(),
+                "--declarationFile", getDeclarationFile("/stub-apply.yml"),
+                "-P", "gatewayEndpoint=http://localhost:8080/apiman-gateway-api");
+        allArgs.addAll(Arrays.asList(args));
+        Cli.main(allArgs.toArray(new String[allArgs.size()]));
+    }
+
+    private static String getDeclarationFile(String resource) throws Exception {
+        return Paths.get(StubManagerServerTest.class.getResource(resource).toURI()).toString();
+    }
+}
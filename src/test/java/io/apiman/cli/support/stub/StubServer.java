@@ -0,0 +1,507 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support.stub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.apiman.cli.util.MappingUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * An in-process HTTP server that stands in for an apiman server, so the CLI can be run, and measured,
+ * without one. Subclasses declare the routes of the API they implement, and hold its state in memory.
+ * <p>
+ * Each route responds according to a {@link StubBehaviour}, which can add latency, inject errors and
+ * cap the number of requests served at once. Routes are identified by their method and path template,
+ * as declared by the CLI's API clients, such as <code>PUT /apis</code>.
+ */
+public abstract class StubServer implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(StubServer.class);
+    private static final String CONTENT_TYPE_JSON = "application/json";
+
+    private final String name;
+    private final String contextPath;
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private volatile StubBehaviour defaultBehaviour = new StubBehaviour();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong injectedErrorCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param name        the name of the server, used to name its threads
+     * @param contextPath the path under which the API is served
+     */
+    protected StubServer(String name, String contextPath) {
+        this.name = name;
+        this.contextPath = contextPath;
+    }
+
+    /**
+     * Add a route. Routes are matched in the order they are added.
+     *
+     * @param method   the HTTP method
+     * @param template the path template, relative to the context path, such as <code>/gateways/{gatewayId}</code>
+     * @param handler  serves requests for the route
+     */
+    protected void route(String method, String template, Handler handler) {
+        final Route route = new Route(method, template, handler);
+        routes.put(route.getKey(), route);
+    }
+
+    /**
+     * Start the server on a free port on the loopback interface.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    public void start() throws IOException {
+        executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("stub-" + name + "-%d")
+                .setDaemon(true)
+                .build());
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(contextPath, this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        LOGGER.debug("Started stub {} server: {}", name, getEndpoint());
+    }
+
+    @Override
+    public void close() {
+        if (null != server) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * @return the address of the server, including the context path
+     */
+    public String getEndpoint() {
+        return getBaseUrl() + contextPath;
+    }
+
+    /**
+     * @return the address of the server, without the context path
+     */
+    protected String getBaseUrl() {
+        if (null == server) {
+            throw new IllegalStateException("Stub " + name + " server has not been started");
+        }
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the routes served, such as <code>PUT /apis</code>
+     */
+    public Set<String> getRoutes() {
+        return new LinkedHashSet<>(routes.keySet());
+    }
+
+    /**
+     * @param behaviour the behaviour of routes without a behaviour of their own
+     */
+    public void setBehaviour(StubBehaviour behaviour) {
+        this.defaultBehaviour = behaviour;
+    }
+
+    /**
+     * @param route     the route, such as <code>PUT /apis</code>
+     * @param behaviour the behaviour of the route
+     */
+    public void setBehaviour(String route, StubBehaviour behaviour) {
+        ofNullable(routes.get(route))
+                .orElseThrow(() -> new IllegalArgumentException(String.format(
+                        "Stub %s server has no route '%s' - routes are: %s", name, route, routes.keySet())))
+                .setBehaviour(behaviour);
+    }
+
+    /**
+     * @return the number of requests received, including those failed or throttled
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the number of requests failed by error injection
+     */
+    public long getInjectedErrorCount() {
+        return injectedErrorCount.get();
+    }
+
+    /**
+     * @return the number of requests rejected because the route was serving its maximum number of requests
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            // the body is always read, so the connection can be reused
+            final byte[] body = readBody(exchange);
+            final String path = exchange.getRequestURI().getRawPath().substring(contextPath.length());
+            final String[] segments = split(path);
+
+            StubResponse response = null;
+            for (Route route : routes.values()) {
+                final Map<String, String> params = route.match(exchange.getRequestMethod(), segments);
+                if (null != params) {
+                    response = serve(route, new StubRequest(params, exchange.getRequestHeaders(), body));
+                    break;
+                }
+            }
+
+            send(exchange, ofNullable(response).orElseGet(() -> StubResponse.error(
+                    HttpURLConnection.HTTP_NOT_FOUND, "No route for " + exchange.getRequestMethod() + " " + path)));
+
+        } catch (Exception e) {
+            LOGGER.warn("Error serving {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            send(exchange, StubResponse.error(HttpURLConnection.HTTP_INTERNAL_ERROR, e.getMessage()));
+
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Serve the request according to the behaviour of the route.
+     */
+    private StubResponse serve(Route route, StubRequest request) throws IOException {
+        final StubBehaviour behaviour = route.getBehaviour(defaultBehaviour);
+        final int inFlight = route.getInFlight().incrementAndGet();
+        try {
+            if (behaviour.getMaxConcurrentRequests() > 0 && inFlight > behaviour.getMaxConcurrentRequests()) {
+                throttledCount.incrementAndGet();
+                return StubResponse.error(StubBehaviour.HTTP_TOO_MANY_REQUESTS, "Too many requests")
+                        .withHeader("Retry-After", String.valueOf(behaviour.getRetryAfter()));
+            }
+
+            if (behaviour.getLatency() > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(behaviour.getLatency());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return StubResponse.error(HttpURLConnection.HTTP_UNAVAILABLE, "Server stopping");
+                }
+            }
+
+            if (behaviour.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < behaviour.getErrorRate()) {
+                injectedErrorCount.incrementAndGet();
+                final StubResponse error = StubResponse.error(behaviour.getErrorStatus(), "Injected error");
+                return StubBehaviour.isThrottled(behaviour.getErrorStatus()) ?
+                        error.withHeader("Retry-After", String.valueOf(behaviour.getRetryAfter())) : error;
+            }
+
+            try {
+                return route.getHandler().handle(request);
+            } catch (JsonProcessingException e) {
+                return StubResponse.error(HttpURLConnection.HTTP_BAD_REQUEST,
+                        "Invalid request body: " + e.getMessage());
+            }
+
+        } finally {
+            route.getInFlight().decrementAndGet();
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        final boolean gzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        try (InputStream in = gzip ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody()) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private static void send(HttpExchange exchange, StubResponse response) throws IOException {
+        response.getHeaders().forEach((headerName, value) -> exchange.getResponseHeaders().set(headerName, value));
+
+        final byte[] body = response.getBody();
+        if (body.length == 0) {
+            exchange.sendResponseHeaders(response.getStatus(), -1);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", response.getContentType());
+        exchange.sendResponseHeaders(response.getStatus(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * @param path the path, which may have a trailing slash
+     * @return the decoded segments of the path
+     */
+    private static String[] split(String path) throws UnsupportedEncodingException {
+        final String[] segments = Arrays.stream(path.split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .toArray(String[]::new);
+
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = URLDecoder.decode(segments[i], StandardCharsets.UTF_8.name());
+        }
+        return segments;
+    }
+
+    /**
+     * Serves requests for a route.
+     */
+    @FunctionalInterface
+    protected interface Handler {
+        StubResponse handle(StubRequest request) throws IOException;
+    }
+
+    /**
+     * A request matched to a route.
+     */
+    protected static final class StubRequest {
+        private final Map<String, String> params;
+        private final Headers headers;
+        private final byte[] body;
+
+        private StubRequest(Map<String, String> params, Headers headers, byte[] body) {
+            this.params = params;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * @param paramName the name of the parameter in the path template
+         * @return the value of the path parameter
+         */
+        public String param(String paramName) {
+            return params.get(paramName);
+        }
+
+        public String getHeader(String headerName) {
+            return headers.getFirst(headerName);
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return the body, as a JSON object
+         * @throws IOException if the body is not a JSON object
+         */
+        public ObjectNode readObject() throws IOException {
+            final JsonNode tree = MappingUtil.JSON_MAPPER.readTree(body);
+            if (null == tree || !tree.isObject()) {
+                throw new IOException("Request body is not a JSON object");
+            }
+            return (ObjectNode) tree;
+        }
+    }
+
+    /**
+     * The response to a request.
+     */
+    protected static final class StubResponse {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+        private final Map<String, String> headers = new HashMap<>();
+
+        private StubResponse(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        /**
+         * @param entity the entity, which is written as JSON
+         * @return a response with status 200
+         */
+        public static StubResponse ok(Object entity) throws JsonProcessingException {
+            return new StubResponse(HttpURLConnection.HTTP_OK, CONTENT_TYPE_JSON,
+                    MappingUtil.JSON_MAPPER.writeValueAsBytes(entity));
+        }
+
+        /**
+         * @return a response with status 204 and no body
+         */
+        public static StubResponse noContent() {
+            return new StubResponse(HttpURLConnection.HTTP_NO_CONTENT, CONTENT_TYPE_JSON, new byte[0]);
+        }
+
+        /**
+         * @param contentType the type of the content
+         * @param content     the content
+         * @return a response with status 200
+         */
+        public static StubResponse content(String contentType, byte[] content) {
+            return new StubResponse(HttpURLConnection.HTTP_OK, contentType, content);
+        }
+
+        /**
+         * @param status  the HTTP status
+         * @param message describes the error
+         * @return an error response, with a body in the form of an apiman error
+         */
+        public static StubResponse error(int status, String message) {
+            final ObjectNode error = MappingUtil.JSON_MAPPER.createObjectNode()
+                    .put("errorCode", status)
+                    .put("message", message);
+
+            return new StubResponse(status, CONTENT_TYPE_JSON,
+                    error.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @param entityType the type of entity, such as <code>Organization</code>
+         * @param id         identifies the entity
+         * @return a response with status 404
+         */
+        public static StubResponse notFound(String entityType, String id) {
+            return error(HttpURLConnection.HTTP_NOT_FOUND, String.format("%s not found: %s", entityType, id));
+        }
+
+        /**
+         * @param entityType the type of entity, such as <code>Organization</code>
+         * @param id         identifies the entity
+         * @return a response with status 409
+         */
+        public static StubResponse conflict(String entityType, String id) {
+            return error(HttpURLConnection.HTTP_CONFLICT, String.format("%s already exists: %s", entityType, id));
+        }
+
+        public StubResponse withHeader(String headerName, String value) {
+            headers.put(headerName, value);
+            return this;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+    }
+
+    /**
+     * A method and path template, and the handler and behaviour for requests that match them.
+     */
+    private static final class Route {
+        private final String method;
+        private final String[] segments;
+        private final Handler handler;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile StubBehaviour behaviour;
+
+        private Route(String method, String template, Handler handler) {
+            this.method = method;
+            this.segments = Arrays.stream(template.split("/"))
+                    .filter(segment -> !segment.isEmpty())
+                    .toArray(String[]::new);
+            this.handler = handler;
+        }
+
+        /**
+         * @return the method and path template, such as <code>PUT /apis</code>
+         */
+        private String getKey() {
+            return method + " /" + String.join("/", segments);
+        }
+
+        /**
+         * @param requestMethod the method of the request
+         * @param pathSegments  the segments of the request path
+         * @return the path parameters, or <code>null</code> if the request does not match
+         */
+        private Map<String, String> match(String requestMethod, String[] pathSegments) {
+            if (!method.equals(requestMethod) || segments.length != pathSegments.length) {
+                return null;
+            }
+
+            final Map<String, String> params = new HashMap<>();
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i].startsWith("{") && segments[i].endsWith("}")) {
+                    params.put(segments[i].substring(1, segments[i].length() - 1), pathSegments[i]);
+                } else if (!segments[i].equals(pathSegments[i])) {
+                    return null;
+                }
+            }
+            return params;
+        }
+
+        private Handler getHandler() {
+            return handler;
+        }
+
+        private AtomicInteger getInFlight() {
+            return inFlight;
+        }
+
+        private StubBehaviour getBehaviour(StubBehaviour defaultBehaviour) {
+            return ofNullable(behaviour).orElse(defaultBehaviour);
+        }
+
+        private void setBehaviour(StubBehaviour behaviour) {
+            this.behaviour = behaviour;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.support.stub;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the behaviours of {@link StubServer} routes.
+ */
+public class StubServerTest {
+    private static final String STATUS_ROUTE = "GET /system/status";
+
+    private StubGatewayServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubGatewayServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testBehaviour_Default() throws Exception {
+        // test
+        final HttpURLConnection connection = checkStatus();
+
+        // assertions
+        assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testBehaviour_Latency() throws Exception {
+        // test data
+        server.setBehaviour(STATUS_ROUTE, new StubBehaviour().withLatency(200));
+
+        // test
+        final long start = System.nanoTime();
+        final int status = checkStatus().getResponseCode();
+
+        // assertions
+        assertEquals(HttpURLConnection.HTTP_OK, status);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testBehaviour_InjectedErrors() throws Exception {
+        // test data
+        server.setBehaviour(new StubBehaviour()
+                .withErrorRate(1)
+                .withErrorStatus(HttpURLConnection.HTTP_UNAVAILABLE)
+                .withRetryAfter(2));
+
+        // test
+        final HttpURLConnection connection = checkStatus();
+
+        // assertions
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, connection.getResponseCode());
+        assertEquals("2", connection.getHeaderField("Retry-After"));
+        assertEquals(1, server.getInjectedErrorCount());
+    }
+
+    @Test
+    public void testBehaviour_MaxConcurrentRequests() throws Exception {
+        // test data
+        server.setBehaviour(STATUS_ROUTE, new StubBehaviour()
+                .withLatency(1000)
+                .withMaxConcurrentRequests(1));
+
+        // test
+        final CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return checkStatus().getResponseCode();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(200);
+        final int second = checkStatus().getResponseCode();
+
+        // assertions
+        assertEquals(StubBehaviour.HTTP_TOO_MANY_REQUESTS, second);
+        assertEquals(HttpURLConnection.HTTP_OK, first.get().intValue());
+        assertEquals(1, server.getThrottledCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetBehaviour_UnknownRoute() {
+        // test
+        server.setBehaviour("GET /unknown", new StubBehaviour());
+    }
+
+    private HttpURLConnection checkStatus() throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(server.getEndpoint() + "/system/status")
+                .openConnection();
+        connection.getResponseCode();
+        return connection;
+    }
+}
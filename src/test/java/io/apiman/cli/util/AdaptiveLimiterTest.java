@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.util;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link AdaptiveLimiter} and {@link AdaptiveLimitInterceptor}.
+ */
+public class AdaptiveLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Mock
+    private Interceptor.Chain chain;
+
+    private AdaptiveLimiter limiter;
+    private AdaptiveLimitInterceptor interceptor;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        limiter = new AdaptiveLimiter("localhost:8080", 4, 1, 64);
+        interceptor = new AdaptiveLimitInterceptor(server -> limiter, 1);
+    }
+
+    @Test
+    public void testLimit_GrowsWhenUsedAndHalvesWhenThrottled() throws Exception {
+        // test: fill the limit, then complete each request quickly
+        for (long request : fill(4)) {
+            limiter.release(request, FAST, true);
+        }
+        final int afterSlowStart = limiter.getLimit();
+
+        limiter.release(fill(1).get(0), FAST, false);
+        final int afterThrottle = limiter.getLimit();
+
+        // assertions
+        assertEquals(6, afterSlowStart);
+        assertEquals(3, afterThrottle);
+    }
+
+    @Test
+    public void testLimit_NotBelowMinimum() throws Exception {
+        // test
+        for (int i = 0; i < 10; i++) {
+            limiter.release(fill(1).get(0), FAST, false);
+        }
+
+        // assertions
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimit_DecreasesOncePerRoundTrip() throws Exception {
+        // test: every request in flight fails
+        for (long request : fill(4)) {
+            limiter.release(request, FAST, false);
+        }
+        final int afterBurst = limiter.getLimit();
+
+        // a request sent after the decrease can decrease it again
+        limiter.release(fill(1).get(0), FAST, false);
+
+        // assertions
+        assertEquals(2, afterBurst);
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testIntercept_StatusProbesNotLimited() throws Exception {
+        // test data
+        final Request request = new Request.Builder().url("http://localhost:8080/apiman/system/status").get().build();
+
+        // mock behaviour
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(any())).thenReturn(buildResponse(request, 503, "0"));
+
+        // test
+        final Response actual = interceptor.intercept(chain);
+
+        // assertions
+        assertEquals(503, actual.code());
+        verify(chain, times(1)).proceed(any());
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getPeakInFlight());
+    }
+
+    @Test
+    public void testIntercept_RetriesAfterRetryAfter() throws Exception {
+        // test data
+        final Request request = new Request.Builder().url("http://localhost:8080/apiman/organizations").post(
+                com.squareup.okhttp.RequestBody.create(MediaType.parse("application/json"), "{}")).build();
+
+        // mock behaviour
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(any())).thenReturn(
+                buildResponse(request, 429, "0"),
+                buildResponse(request, 201, null));
+
+        // test
+        final Response actual = interceptor.intercept(chain);
+
+        // assertions
+        assertEquals(201, actual.code());
+        verify(chain, times(2)).proceed(any());
+    }
+
+    @Test
+    public void testIntercept_RetriesIdempotentRequests() throws Exception {
+        // test data
+        final Request request = new Request.Builder().url("http://localhost:8080/apiman/organizations").get().build();
+
+        // mock behaviour
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(any()))
+                .thenThrow(new SocketTimeoutException())
+                .thenReturn(buildResponse(request, 503, null), buildResponse(request, 200, null));
+
+        // test
+        final Response actual = interceptor.intercept(chain);
+
+        // assertions
+        assertEquals(200, actual.code());
+        verify(chain, times(3)).proceed(any());
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void testIntercept_DoesNotRetryNonIdempotentRequests() throws Exception {
+        // test data
+        final Request request = new Request.Builder().url("http://localhost:8080/apiman/organizations").post(
+                com.squareup.okhttp.RequestBody.create(MediaType.parse("application/json"), "{}")).build();
+
+        // mock behaviour
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(any())).thenThrow(new SocketTimeoutException());
+
+        // test
+        interceptor.intercept(chain);
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        // assertions
+        assertEquals(Long.valueOf(2000), AdaptiveLimitInterceptor.parseRetryAfter("2"));
+        assertEquals(Long.valueOf(0), AdaptiveLimitInterceptor.parseRetryAfter("Thu, 01 Jan 1970 00:00:00 GMT"));
+        assertNull(AdaptiveLimitInterceptor.parseRetryAfter("soon"));
+        assertNull(AdaptiveLimitInterceptor.parseRetryAfter(null));
+    }
+
+    private List<Long> fill(int requests) throws InterruptedException {
+        final List<Long> acquired = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            acquired.add(limiter.acquire());
+        }
+        assertTrue(limiter.getPeakInFlight() >= requests);
+        return acquired;
+    }
+
+    private static Response buildResponse(Request request, int status, String retryAfter) throws IOException {
+        final Response.Builder builder = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(status)
+                .body(ResponseBody.create(MediaType.parse("application/json"), "{}"));
+
+        if (null != retryAfter) {
+            builder.header("Retry-After", retryAfter);
+        }
+        return builder.build();
+    }
+}
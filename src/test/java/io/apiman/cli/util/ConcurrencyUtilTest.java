@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ConcurrencyUtil}.
+ */
+public class ConcurrencyUtilTest {
+    @Test
+    public void testForEach_ProcessesAllItems() throws Exception {
+        // test data
+        final List<String> items = Lists.newArrayList("a", "b", "c", "d", "e");
+        final List<String> processed = new CopyOnWriteArrayList<>();
+
+        // test
+        final Map<String, Exception> failures = ConcurrencyUtil.forEach(items, 3, "test", processed::add);
+
+        // assertions
+        assertTrue(failures.isEmpty());
+        assertEquals(items.size(), processed.size());
+        assertTrue(processed.containsAll(items));
+    }
+
+    @Test
+    public void testForEach_ContinuesAfterFailure() throws Exception {
+        // test data
+        final List<String> items = Lists.newArrayList("a", "fail1", "b", "fail2", "c");
+        final AtomicInteger successes = new AtomicInteger();
+
+        // test
+        final Map<String, Exception> failures = ConcurrencyUtil.forEach(items, 2, "test", item -> {
+            if (item.startsWith("fail")) {
+                throw new IllegalStateException(item);
+            }
+            successes.incrementAndGet();
+        });
+
+        // assertions
+        assertEquals(3, successes.get());
+        assertEquals(Lists.newArrayList("fail1", "fail2"), Lists.newArrayList(failures.keySet()));
+        assertEquals("fail1", failures.get("fail1").getMessage());
+    }
+
+    @Test
+    public void testForEach_SerialisesItemsWithSameKey() throws Exception {
+        // test data
+        final List<String> items = Lists.newArrayList("api1:1.0", "api2:1.0", "api1:2.0", "api1:3.0", "api2:2.0");
+        final List<String> processed = Collections.synchronizedList(Lists.newArrayList());
+
+        // test
+        final Map<String, Exception> failures = ConcurrencyUtil.forEach(items, item -> item.split(":")[0], 4,
+                "test", processed::add);
+
+        // assertions
+        assertTrue(failures.isEmpty());
+        assertTrue(processed.indexOf("api1:1.0") < processed.indexOf("api1:2.0"));
+        assertTrue(processed.indexOf("api1:2.0") < processed.indexOf("api1:3.0"));
+        assertTrue(processed.indexOf("api2:1.0") < processed.indexOf("api2:2.0"));
+    }
+
+    @Test
+    public void testForEach_BoundsItemsReadAhead() throws Exception {
+        // test data
+        final List<String> items = Lists.newArrayList("api1:1.0", "api2:1.0", "api1:2.0", "api3:1.0", "api1:3.0",
+                "fail:1.0", "api2:2.0", "api4:1.0");
+        final List<String> processed = Collections.synchronizedList(Lists.newArrayList());
+        final AtomicInteger read = new AtomicInteger();
+        final AtomicInteger maxPending = new AtomicInteger();
+
+        final Iterator<String> source = Iterators.transform(items.iterator(), item -> {
+            maxPending.accumulateAndGet(read.incrementAndGet() - processed.size(), Math::max);
+            return item;
+        });
+
+        // test
+        final Map<String, Exception> failures = ConcurrencyUtil.forEach(source, item -> item.split(":")[0], 3, 2,
+                "test", item -> {
+                    if (item.startsWith("fail")) {
+                        processed.add(item);
+                        throw new IllegalStateException(item);
+                    }
+                    processed.add(item);
+                });
+
+        // assertions
+        assertEquals(Lists.newArrayList("fail:1.0"), Lists.newArrayList(failures.keySet()));
+        assertEquals(items.size(), processed.size());
+        assertTrue(maxPending.get() <= 2);
+        assertTrue(processed.indexOf("api1:1.0") < processed.indexOf("api1:2.0"));
+        assertTrue(processed.indexOf("api1:2.0") < processed.indexOf("api1:3.0"));
+        assertTrue(processed.indexOf("api2:1.0") < processed.indexOf("api2:2.0"));
+    }
+
+    @Test
+    public void testForEach_ContinuesAfterError() throws Exception {
+        // test data
+        final List<String> items = Lists.newArrayList("api1:1.0", "api1:2.0", "api2:1.0", "api1:3.0", "api1:4.0");
+        final List<String> processed = Collections.synchronizedList(Lists.newArrayList());
+
+        // test
+        final Map<String, Exception> failures = ConcurrencyUtil.forEach(items.iterator(),
+                item -> item.split(":")[0], 2, items.size(), "test", item -> {
+                    processed.add(item);
+                    if ("api1:1.0".equals(item)) {
+                        throw new AssertionError(item);
+                    }
+                });
+
+        // assertions
+        assertEquals(items.size(), processed.size());
+        assertEquals(Lists.newArrayList("api1:1.0"), Lists.newArrayList(failures.keySet()));
+        assertTrue(failures.get("api1:1.0").getCause() instanceof AssertionError);
+    }
+}
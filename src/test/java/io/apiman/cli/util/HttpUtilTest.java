@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import com.google.common.base.Strings;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link HttpUtil}.
+ */
+public class HttpUtilTest {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Mock
+    private Interceptor.Chain chain;
+
+    private HttpUtil.GzipRequestInterceptor interceptor;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        interceptor = new HttpUtil.GzipRequestInterceptor();
+    }
+
+    @Test
+    public void testGzipRequestInterceptor_LargeBody() throws Exception {
+        // test data
+        final String content = Strings.repeat("{\"name\":\"example\"}", 100);
+        final Request request = buildRequest(content);
+
+        // mock behaviour
+        when(chain.request()).thenReturn(request);
+
+        // test
+        interceptor.intercept(chain);
+
+        // assertions
+        final ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        verify(chain).proceed(captor.capture());
+
+        final Request actual = captor.getValue();
+        assertEquals("gzip", actual.header("Content-Encoding"));
+
+        final Buffer compressed = new Buffer();
+        actual.body().writeTo(compressed);
+        assertEquals(content, Okio.buffer(new GzipSource(compressed)).readUtf8());
+    }
+
+    @Test
+    public void testGzipRequestInterceptor_SmallBody() throws Exception {
+        // test data
+        final Request request = buildRequest("{\"name\":\"example\"}");
+
+        // mock behaviour
+        when(chain.request()).thenReturn(request);
+
+        // test
+        interceptor.intercept(chain);
+
+        // assertions
+        final ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        verify(chain).proceed(captor.capture());
+        assertSame(request, captor.getValue());
+        assertNull(captor.getValue().header("Content-Encoding"));
+    }
+
+    private static Request buildRequest(String content) {
+        return new Request.Builder()
+                .url("http://example.com")
+                .post(RequestBody.create(JSON, content))
+                .build();
+    }
+}
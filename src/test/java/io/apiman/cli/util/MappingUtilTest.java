@@ -23,7 +23,9 @@ import java.util.Map;
 
 import static com.google.common.collect.Maps.newHashMap;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for {@link MappingUtil}.
@@ -46,6 +48,19 @@ public class MappingUtilTest {
                 "{\"key\":\"value\"}", actual.replaceAll("\\s+",""));
     }
 
+    @Test
+    public void testSafeWriteValueAsWireJson_Compact() throws Exception {
+        // test data
+        final Map<String, Object> input = newHashMap();
+        input.put("key", newHashMap());
+
+        // test
+        final String actual = MappingUtil.safeWriteValueAsWireJson(input);
+
+        // assertions
+        assertEquals("{\"key\":{}}", actual);
+    }
+
     @Test
     public void testSafeWriteValueAsJson_Null() throws Exception {
         // test data
@@ -69,4 +84,23 @@ public class MappingUtilTest {
         // assertions
         assertEquals(input, actual);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testJsonEquals_Equivalent() throws Exception {
+        // test data
+        final String json1 = "{\"ttl\":60,\"nested\":{\"a\":1,\"b\":[1,2]}}";
+        final String json2 = "{\n  \"nested\" : { \"b\" : [ 1, 2 ], \"a\" : 1 },\n  \"ttl\" : 60\n}";
+
+        // assertions
+        assertTrue(MappingUtil.jsonEquals(json1, json2));
+        assertTrue(MappingUtil.jsonEquals(null, null));
+    }
+
+    @Test
+    public void testJsonEquals_Different() throws Exception {
+        // assertions
+        assertFalse(MappingUtil.jsonEquals("{\"ttl\":60}", "{\"ttl\":61}"));
+        assertFalse(MappingUtil.jsonEquals("{\"b\":[1,2]}", "{\"b\":[2,1]}"));
+        assertFalse(MappingUtil.jsonEquals("{\"ttl\":60}", null));
+    }
+}
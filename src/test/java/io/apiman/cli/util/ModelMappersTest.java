@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import io.apiman.cli.command.api.model.Api;
+import io.apiman.cli.command.api.model.ApiConfig;
+import io.apiman.cli.command.api.model.EndpointProperties;
+import io.apiman.cli.command.api.model.ServiceConfig;
+import io.apiman.cli.command.declarative.model.DeclarativeApi;
+import io.apiman.cli.command.declarative.model.DeclarativeApiConfig;
+import io.apiman.cli.command.declarative.model.DeclarativeEndpointSecurity;
+import io.apiman.cli.command.declarative.model.DeclarativeGateway;
+import io.apiman.cli.command.declarative.model.DeclarativeOrg;
+import io.apiman.cli.command.gateway.model.Gateway;
+import io.apiman.cli.command.org.model.Org;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests for {@link ModelMappers}, which must produce the same result as the reflective mapping.
+ */
+public class ModelMappersTest {
+    private static final String API_CONFIG = "{\"endpoint\":\"http://example.com\",\"endpointType\":\"rest\"," +
+            "\"endpointProperties\":{\"authorization.type\":\"BASIC\",\"basic-auth.username\":\"user\"}," +
+            "\"publicApi\":false,\"gateways\":[{\"gatewayId\":\"ignored\"}],\"gateway\":\"test-gw\"," +
+            "\"makePublic\":true,\"security\":{\"authorizationType\":\"BASIC\",\"requireSsl\":true," +
+            "\"username\":\"user\",\"password\":\"secret\"}}";
+
+    @Test
+    public void testMap_Gateway() throws Exception {
+        assertMappedAsReflectively("{\"name\":\"test-gw\",\"description\":\"Test gateway\",\"type\":\"REST\"," +
+                "\"configuration\":\"ignored\",\"config\":{\"endpoint\":\"http://localhost:8080/apiman-gateway-api\"," +
+                "\"username\":\"apimanager\",\"password\":\"secret\"}}", DeclarativeGateway.class, Gateway.class);
+    }
+
+    @Test
+    public void testMap_Org() throws Exception {
+        assertMappedAsReflectively("{\"name\":\"test\",\"description\":\"Test organisation\"," +
+                "\"apis\":[{\"name\":\"example\"}]}", DeclarativeOrg.class, Org.class);
+    }
+
+    @Test
+    public void testMap_Api() throws Exception {
+        assertMappedAsReflectively("{\"id\":\"example\",\"name\":\"example\",\"description\":\"Example API\"," +
+                "\"organizationName\":\"test\",\"initialVersion\":\"0.9\",\"version\":\"1.0\",\"status\":\"Ready\"," +
+                "\"published\":true,\"config\":" + API_CONFIG + ",\"policies\":[{\"name\":\"CachingPolicy\"}]," +
+                "\"definition\":{\"file\":\"example.json\",\"type\":\"application/json\"}}",
+                DeclarativeApi.class, Api.class);
+    }
+
+    @Test
+    public void testMap_ApiConfig() throws Exception {
+        assertMappedAsReflectively(API_CONFIG, DeclarativeApiConfig.class, ApiConfig.class);
+        assertMappedAsReflectively("{\"endpoint\":\"http://example.com\"}", DeclarativeApiConfig.class, ApiConfig.class);
+    }
+
+    @Test
+    public void testMap_EndpointProperties() throws Exception {
+        assertMappedAsReflectively("{\"authorizationType\":\"BASIC\",\"requireSsl\":true,\"username\":\"user\"," +
+                "\"password\":\"secret\"}", DeclarativeEndpointSecurity.class, EndpointProperties.class);
+    }
+
+    @Test
+    public void testMap_ServiceConfig() throws Exception {
+        assertMappedAsReflectively("{\"endpoint\":\"http://example.com\",\"endpointType\":\"rest\"," +
+                "\"publicApi\":true,\"gateways\":[{\"gatewayId\":\"test-gw\"}]}", ApiConfig.class, ServiceConfig.class);
+    }
+
+    private static <S, D> void assertMappedAsReflectively(String sourceJson, Class<S> sourceClass,
+                                                          Class<D> destinationClass) throws Exception {
+        // test data
+        final S source = MappingUtil.JSON_MAPPER.readValue(sourceJson, sourceClass);
+
+        // test
+        final D expected = MappingUtil.mapReflectively(source, destinationClass);
+        final D actual = MappingUtil.map(source, destinationClass);
+
+        // assertions
+        assertNotNull("Mapper should be specialised", ModelMappers.find(sourceClass, destinationClass));
+        assertEquals(destinationClass, actual.getClass());
+        assertEquals(MappingUtil.safeWriteValueAsWireJson(expected), MappingUtil.safeWriteValueAsWireJson(actual));
+    }
+}
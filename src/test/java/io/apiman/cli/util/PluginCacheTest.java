@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import io.apiman.common.plugin.PluginCoordinates;
+import io.apiman.common.plugin.PluginUtils;
+import io.apiman.manager.api.beans.policies.PolicyDefinitionBean;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PluginCache}.
+ */
+public class PluginCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = temporaryFolder.newFolder("plugins");
+    }
+
+    @Test
+    public void testReadIndex_RoundTrip() {
+        // test data
+        final PluginCache pluginCache = new PluginCache(cacheDir, PluginCache.DEFAULT_MAX_SIZE, PluginCache.DEFAULT_MAX_AGE);
+        final PluginCoordinates coordinates = buildCoordinates("1.0.0");
+
+        // test
+        final Optional<List<PolicyDefinitionBean>> before = pluginCache.readIndex(coordinates);
+        pluginCache.writeIndex(coordinates, Collections.singletonList(buildPolicyDefinition("test-policy")));
+        final Optional<List<PolicyDefinitionBean>> after = pluginCache.readIndex(coordinates);
+
+        // assertions
+        assertFalse(before.isPresent());
+        assertTrue(after.isPresent());
+        assertEquals(1, after.get().size());
+        assertEquals("test-policy", after.get().get(0).getId());
+        assertEquals("io.example.TestPolicy", after.get().get(0).getPolicyImpl());
+    }
+
+    @Test
+    public void testReadIndex_SnapshotNotIndexed() {
+        // test data
+        final PluginCache pluginCache = new PluginCache(cacheDir, PluginCache.DEFAULT_MAX_SIZE, PluginCache.DEFAULT_MAX_AGE);
+        final PluginCoordinates coordinates = buildCoordinates("1.0.0-SNAPSHOT");
+
+        // test
+        pluginCache.writeIndex(coordinates, Collections.singletonList(buildPolicyDefinition("test-policy")));
+
+        // assertions
+        assertFalse(pluginCache.readIndex(coordinates).isPresent());
+    }
+
+    @Test
+    public void testEvict_ExpiredAndOversized() throws Exception {
+        // test data
+        final PluginCache pluginCache = new PluginCache(cacheDir, 1500, TimeUnit.DAYS.toMillis(1));
+        final PluginCoordinates expired = buildCoordinates("1.0.0");
+        final PluginCoordinates leastRecent = buildCoordinates("2.0.0");
+        final PluginCoordinates mostRecent = buildCoordinates("3.0.0");
+
+        final long now = System.currentTimeMillis();
+        writeEntry(pluginCache, expired, now - TimeUnit.DAYS.toMillis(2));
+        writeEntry(pluginCache, leastRecent, now - TimeUnit.HOURS.toMillis(2));
+        writeEntry(pluginCache, mostRecent, now - TimeUnit.HOURS.toMillis(1));
+
+        // test
+        pluginCache.evict();
+
+        // assertions
+        assertFalse(pluginCache.readIndex(expired).isPresent());
+        assertFalse(new File(cacheDir, PluginUtils.getPluginRelativePath(expired)).exists());
+        assertFalse(pluginCache.readIndex(leastRecent).isPresent());
+        assertFalse(new File(cacheDir, PluginUtils.getPluginRelativePath(leastRecent)).exists());
+        assertTrue(pluginCache.readIndex(mostRecent).isPresent());
+        assertTrue(new File(cacheDir, PluginUtils.getPluginRelativePath(mostRecent)).exists());
+    }
+
+    /**
+     * Write an index entry and a 1KB plugin artifact, last used at the given time.
+     */
+    private void writeEntry(PluginCache pluginCache, PluginCoordinates coordinates, long lastUsed) throws Exception {
+        final File pluginDir = new File(cacheDir, PluginUtils.getPluginRelativePath(coordinates));
+        pluginDir.mkdirs();
+        Files.write(new File(pluginDir, "plugin.war").toPath(), new byte[1024]);
+
+        final File indexDir = new File(cacheDir, ".index");
+        final List<File> existing = Arrays.asList(indexDir.listFiles());
+        pluginCache.writeIndex(coordinates, Collections.singletonList(buildPolicyDefinition("test-policy")));
+
+        for (File indexFile : indexDir.listFiles()) {
+            if (!existing.contains(indexFile)) {
+                indexFile.setLastModified(lastUsed);
+            }
+        }
+    }
+
+    private static PluginCoordinates buildCoordinates(String version) {
+        return new PluginCoordinates("io.example", "test-plugin", version, null, "war");
+    }
+
+    private static PolicyDefinitionBean buildPolicyDefinition(String id) {
+        final PolicyDefinitionBean policyDefinition = new PolicyDefinitionBean();
+        policyDefinition.setId(id);
+        policyDefinition.setName("Test Policy");
+        policyDefinition.setPolicyImpl("io.example.TestPolicy");
+        return policyDefinition;
+    }
+}
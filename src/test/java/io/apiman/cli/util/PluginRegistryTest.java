@@ -10,6 +10,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * @author Marc Savy {@literal <marc@rhymewithgravy.com>}
@@ -25,9 +26,13 @@ public class PluginRegistryTest {
     @Rule
     public final ExpectedException exception = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
-    public void setup() {
-        this.policyResolver = new PolicyResolver();
+    public void setup() throws Exception {
+        this.policyResolver = new PolicyResolver(new PluginCache(temporaryFolder.newFolder(),
+                PluginCache.DEFAULT_MAX_SIZE, PluginCache.DEFAULT_MAX_AGE));
     }
 
     @Test
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apiman.cli.util;
+
+import io.apiman.cli.exception.CommandException;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ReadinessUtil}.
+ */
+public class ReadinessUtilTest {
+    @Test
+    public void testAwaitReady_AllEndpoints() throws Exception {
+        // test data
+        final AtomicInteger slowProbes = new AtomicInteger();
+        final Map<String, BooleanSupplier> probes = new LinkedHashMap<>();
+        probes.put("http://ready", () -> true);
+        probes.put("http://slow", () -> slowProbes.incrementAndGet() >= 3);
+        probes.put("http://failing", new BooleanSupplier() {
+            private int attempts;
+
+            @Override
+            public boolean getAsBoolean() {
+                if (++attempts < 2) {
+                    throw new IllegalStateException("Connection refused");
+                }
+                return true;
+            }
+        });
+
+        // test
+        final Map<String, Long> timesToReady = ReadinessUtil.awaitReady(probes, 5000, 10, 20);
+
+        // assertions
+        assertEquals(probes.keySet(), timesToReady.keySet());
+        assertEquals(3, slowProbes.get());
+        assertTrue(timesToReady.get("http://ready") <= timesToReady.get("http://slow"));
+    }
+
+    @Test
+    public void testAwaitReady_Timeout() throws Exception {
+        // test data
+        final Map<String, BooleanSupplier> probes = new LinkedHashMap<>();
+        probes.put("http://ready", () -> true);
+        probes.put("http://down", () -> false);
+
+        // test
+        try {
+            ReadinessUtil.awaitReady(probes, 200, 10, 20);
+            fail("CommandException expected");
+
+        } catch (CommandException e) {
+            // assertions
+            assertTrue(e.getMessage().endsWith("waiting for server(s) to start: http://down"));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Pete Cornish
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.apiman.cli.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link TaskGraph}.
+ */
+public class TaskGraphTest {
+    @Test
+    public void testExecute_IndependentTasksRunConcurrently() {
+        // test data
+        final TaskGraph graph = new TaskGraph();
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final List<String> completed = new CopyOnWriteArrayList<>();
+
+        final TaskGraph.Task gateways = graph.add("gateways", () -> awaitBoth(bothStarted, completed, "gateways"));
+        final TaskGraph.Task plugins = graph.add("plugins", () -> awaitBoth(bothStarted, completed, "plugins"));
+        graph.add("apis", () -> completed.add("apis"), gateways, plugins);
+
+        // test
+        graph.execute(4, "test");
+
+        // assertions
+        assertTrue(graph.getFailures().isEmpty());
+        assertEquals(3, completed.size());
+        assertEquals("apis", completed.get(2));
+    }
+
+    @Test
+    public void testExecute_FailureSkipsDependents() {
+        // test data
+        final TaskGraph graph = new TaskGraph();
+        final List<String> completed = new CopyOnWriteArrayList<>();
+
+        final TaskGraph.Task org = graph.add("org", () -> {
+            throw new IllegalStateException("Org unavailable");
+        });
+        graph.add("apis", () -> completed.add("apis"), org);
+        graph.add("plugins", () -> completed.add("plugins"));
+
+        // test
+        graph.execute(4, "test");
+
+        // assertions
+        assertEquals(newArrayList("plugins"), completed);
+        assertEquals(newArrayList("org"), names(graph.getFailures()));
+        assertEquals("Org unavailable", graph.getFailures().get(0).getFailure().getMessage());
+        assertEquals(newArrayList("apis"), names(graph.getSkipped()));
+    }
+
+    @Test
+    public void testExecute_ErrorRecordedAsFailure() {
+        // test data
+        final TaskGraph graph = new TaskGraph();
+        final TaskGraph.Task org = graph.add("org", () -> {
+            throw new AssertionError("Org invalid");
+        });
+        graph.add("apis", () -> {}, org);
+
+        // test
+        graph.execute(4, "test");
+
+        // assertions
+        assertEquals(newArrayList("org"), names(graph.getFailures()));
+        assertEquals("Org invalid", graph.getFailures().get(0).getFailure().getCause().getMessage());
+        assertEquals(newArrayList("apis"), names(graph.getSkipped()));
+    }
+
+    @Test
+    public void testGetCriticalPath() {
+        // test data
+        final TaskGraph graph = new TaskGraph();
+        final TaskGraph.Task gateways = graph.add("gateways", () -> sleep(50));
+        final TaskGraph.Task plugins = graph.add("plugins", () -> {});
+        final TaskGraph.Task org = graph.add("org", () -> {}, plugins);
+        graph.add("apis", () -> {}, org, gateways);
+
+        // test
+        graph.execute(4, "test");
+
+        // assertions
+        assertEquals(newArrayList("gateways", "apis"), names(graph.getCriticalPath()));
+    }
+
+    private static void awaitBoth(CountDownLatch bothStarted, List<String> completed, String name) {
+        bothStarted.countDown();
+        try {
+            // only completes if the other task is running at the same time
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        completed.add(name);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<String> names(List<TaskGraph.Task> tasks) {
+        return tasks.stream().map(TaskGraph.Task::getName).collect(Collectors.toList());
+    }
+}